@@ -2,6 +2,7 @@ package app;
 
 import lib.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class Aplicativo {
@@ -11,12 +12,60 @@ public class Aplicativo {
     }
     
     private static Grafo<String> grafo;
+    // nos modos sem menu só tem consultas, então elas rodam direto na cópia compacta (ver carregarGrafoDoArquivo)
+    private static ConsultasEmLote<String> consultas;
 
-    public static void main(String[] args) {
+    private static final int PORTA_PADRAO = 8080;
+
+    // com --lista-arestas o Gravar e Sair grava os .txt na lista de arestas quando ela fica menor
+    // (ver EscritorGrafo.gravar); sem a opção eles saem sempre na matriz do professor
+    private static boolean listaArestas;
+
+    // uso: java app.Aplicativo [arquivo] [--lista-arestas] [--lote | --servidor [porta]]
+    // sem opção abre o menu; --lote responde os pedidos que chegam pela entrada padrão (ver ProtocoloLinhas)
+    // e --servidor abre o servidor HTTP local (ver ServidorHttp); nos dois o grafo é carregado uma vez só
+    // e as mensagens da carga vão pra saída de erro, pra saída padrão ficar só com as respostas
+    public static void main(String[] args) throws IOException {
         grafo = new Grafo<>();
 
-        // caminho para ler o arquivo entrada.txt do professor
-        carregarGrafoDoArquivo("grafinhos-main/src/lib/entrada.txt");
+        // caminho para ler o arquivo entrada.txt do professor, ou o arquivo passado como argumento
+        // (por exemplo o grafo.bin gravado na saída anterior)
+        String nomeArquivo = "grafinhos-main/src/lib/entrada.txt";
+        String modo = null;
+        int porta = PORTA_PADRAO;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--lista-arestas")) {
+                listaArestas = true;
+            } else if (args[i].equals("--lote")) {
+                modo = args[i];
+            } else if (args[i].equals("--servidor")) {
+                modo = args[i];
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    porta = Integer.parseInt(args[++i]);
+                }
+            } else {
+                nomeArquivo = args[i];
+            }
+        }
+
+        if (modo != null) {
+            if (!carregarGrafoDoArquivo(nomeArquivo, System.err, true)) {
+                System.exit(1);
+            }
+            if (modo.equals("--lote")) {
+                BufferedReader entrada = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+                Writer saida = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+                new ProtocoloLinhas(consultas).executar(entrada, saida);
+                if (Metricas.estaAtivo()) {
+                    System.err.print(Metricas.relatorio());
+                }
+            } else {
+                ServidorHttp.iniciar(consultas, porta);
+                System.err.println("Servidor em http://127.0.0.1:" + porta + "/");
+            }
+            return;
+        }
+        carregarGrafoDoArquivo(nomeArquivo, System.out, false);
 
         // menu dos crias
         Scanner scanner = new Scanner(System.in);
@@ -59,62 +108,53 @@ public class Aplicativo {
             }
         }
         scanner.close();
+        if (Metricas.estaAtivo()) {
+            System.out.print(Metricas.relatorio());
+        }
     }
 
-    private static void carregarGrafoDoArquivo(String nomeArquivo) {
+    // devolve se o grafo foi carregado; as mensagens vão pra saída passada
+    // com soConsultas (modos sem menu) o grafo não vai ser alterado, então o .bin é servido direto da
+    // cópia compacta lida do arquivo, sem montar o Grafo editável (um Vertice e uma Aresta por
+    // elemento, mais os índices), e a memória fica só nos vetores do arquivo
+    private static boolean carregarGrafoDoArquivo(String nomeArquivo, PrintStream mensagens, boolean soConsultas) {
         File arquivo = new File(nomeArquivo);
         if (!arquivo.exists()) {
-            System.out.println("Arquivo não encontrado: " + nomeArquivo);
-            return;
+            mensagens.println("Arquivo não encontrado: " + nomeArquivo);
+            return false;
         }
-        
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(arquivo), "UTF-8"))) {
-            br.mark(1);
-            if (br.read() != 0xFEFF) {
-                br.reset();
-            }
-    
-            String linha = br.readLine();
-            if (linha != null) {
-                int n = Integer.parseInt(linha.trim());
-                System.out.println("Número de cidades: " + n);
-    
-                List<String> cidades = new ArrayList<>();
-                for (int i = 0; i < n; i++) {
-                    String cidade = br.readLine().trim();
-                    cidades.add(cidade);
-                    System.out.println("Cidade lida: " + cidade);
-                }
-    
-                float[][] matrizAdjacencia = new float[n][n];
-                for (int i = 0; i < n; i++) {
-                    String[] valores = br.readLine().split(",");
-                    for (int j = 0; j < n; j++) {
-                        matrizAdjacencia[i][j] = Float.parseFloat(valores[j].trim());
-                        System.out.print(matrizAdjacencia[i][j] + " ");
-                    }
-                    System.out.println();
-                }
-    
-                grafo = new Grafo<>();
-                for (String cidade : cidades) {
-                    grafo.adicionaVertice(cidade);
+
+        // a leitura é feita em blocos, sem mostrar cada cidade e cada valor da matriz
+        // o arquivo binário já traz a AGM calculada (e a hierarquia de contração, se tiver sido gravada)
+        // com -Dgrafinhos.metricas=true o tempo da carga entra nas métricas (ver lib.Metricas)
+        long inicio = Metricas.inicio();
+        try {
+            int cidades;
+            if (nomeArquivo.endsWith(".bin")) {
+                ArquivoBinario.Conteudo conteudo = ArquivoBinario.ler(arquivo.toPath());
+                if (soConsultas) {
+                    consultas = new ConsultasEmLote<>(conteudo.getGrafo(), conteudo.getAgm(), conteudo.getHierarquia());
+                } else {
+                    grafo = Grafo.deCompacto(conteudo.getGrafo(), conteudo.getAgm(), conteudo.getHierarquia());
                 }
-                for (int i = 0; i < n; i++) {
-                    for (int j = 0; j < n; j++) {
-                        if (matrizAdjacencia[i][j] != 0) {
-                            grafo.adicionarAresta(cidades.get(i), cidades.get(j), matrizAdjacencia[i][j]);
-                        }
-                    }
+                cidades = conteudo.getGrafo().getNumeroVertices();
+            } else {
+                grafo = LeitorGrafo.ler(arquivo.toPath());
+                if (soConsultas) {
+                    consultas = grafo.consultasEmLote();
                 }
-                System.out.println("lib.Grafo carregado com sucesso.");
+                cidades = grafo.getVertices().size();
             }
+            Metricas.registrarCarga(nomeArquivo, arquivo.length(), inicio);
+            mensagens.println("Número de cidades: " + cidades);
+            mensagens.println("lib.Grafo carregado com sucesso.");
+            return true;
         } catch (IOException e) {
-            System.out.println("Erro ao ler o arquivo: " + e.getMessage());
+            mensagens.println("Erro ao ler o arquivo: " + e.getMessage());
         } catch (NumberFormatException e) {
-            System.out.println("Erro de formato no arquivo: " + e.getMessage());
+            mensagens.println("Erro de formato no arquivo: " + e.getMessage());
         }
-
+        return false;
     }
 
     private static void adicionarCidade(Scanner scanner) {
@@ -177,69 +217,37 @@ public class Aplicativo {
     }
 
     private static void calcularCaminhoMinimoAGM(Scanner scanner) {
-        Grafo<String> agm = grafo.calcularArvoreGeradoraMinima();
         System.out.print("Cidade de origem: ");
         String origem = scanner.nextLine();
         System.out.print("Cidade de destino: ");
         String destino = scanner.nextLine();
-        agm.calcularCaminhoMinimo(origem, destino);
+        grafo.calcularCaminhoMinimoAGM(origem, destino);
     }
 
     private static void gravarArquivos() {
+        long inicio = Metricas.inicio();
         try {
-            // Gravar grafo completo
-            try (PrintWriter pw = new PrintWriter(new FileWriter("grafoCompleto.txt"))) {
-                List<Vertice<String>> vertices = grafo.getVertices();
-                pw.println(vertices.size());
-                for (Vertice<String> vertice : vertices) {
-                    pw.println(vertice.getValor());
-                }
-                // cria a matriz se ainda nao foi criada, e preenche com valores
-                float[][] matrizAdjacencia = new float[vertices.size()][vertices.size()];
-                for (Aresta<String> aresta : grafo.getArestas()) {
-                    int origemIndex = vertices.indexOf(aresta.getOrigem());
-                    int destinoIndex = vertices.indexOf(aresta.getDestino());
-                    matrizAdjacencia[origemIndex][destinoIndex] = aresta.getPeso();
-                }
-                for (int i = 0; i < matrizAdjacencia.length; i++) {
-                    for (int j = 0; j < matrizAdjacencia[i].length; j++) {
-                        pw.print(matrizAdjacencia[i][j]);
-                        if (j < matrizAdjacencia[i].length - 1) {
-                            pw.print(",");
-                        }
-                    }
-                    pw.println();
-                }
-            }
+            // Gravar grafo completo e AGM em texto, na matriz (ou, com --lista-arestas, no que ficar menor)
+            gravarTexto(new File("grafoCompleto.txt"), grafo.congelar());
+            gravarTexto(new File("agm.txt"), grafo.calcularArvoreGeradoraMinimaCompacta());
 
-            // Gravar AGM
-            try (PrintWriter pw = new PrintWriter(new FileWriter("agm.txt"))) {
-                Grafo<String> agm = grafo.calcularArvoreGeradoraMinima();
-                List<Vertice<String>> vertices = agm.getVertices();
-                pw.println(vertices.size());
-                for (Vertice<String> vertice : vertices) {
-                    pw.println(vertice.getValor());
-                }
-                // Criar e preencher matriz de adjacência da AGM
-                float[][] matrizAdjacencia = new float[vertices.size()][vertices.size()];
-                for (Aresta<String> aresta : agm.getArestas()) {
-                    int origemIndex = vertices.indexOf(aresta.getOrigem());
-                    int destinoIndex = vertices.indexOf(aresta.getDestino());
-                    matrizAdjacencia[origemIndex][destinoIndex] = aresta.getPeso();
-                }
-                for (int i = 0; i < matrizAdjacencia.length; i++) {
-                    for (int j = 0; j < matrizAdjacencia[i].length; j++) {
-                        pw.print(matrizAdjacencia[i][j]);
-                        if (j < matrizAdjacencia[i].length - 1) {
-                            pw.print(",");
-                        }
-                    }
-                    pw.println();
-                }
-            }
+            // Gravar grafo e AGM juntos no formato binário, que carrega bem mais rápido
+            // (a hierarquia de contração vai junto se ela veio do arquivo e o grafo não mudou)
+            ArquivoBinario.gravar(new File("grafo.bin").toPath(), grafo.congelar(), grafo.calcularArvoreGeradoraMinimaCompacta(),
+                    grafo.getHierarquiaContracao());
+            Metricas.registrarGravacao("grafoCompleto.txt, agm.txt, grafo.bin", new File("grafoCompleto.txt").length()
+                    + new File("agm.txt").length() + new File("grafo.bin").length(), inicio);
 
         } catch (IOException e) {
             System.out.println("Erro ao gravar os arquivos: " + e.getMessage());
         }
-    } 
+    }
+
+    private static void gravarTexto(File arquivo, GrafoCompacto<String> grafo) throws IOException {
+        if (listaArestas) {
+            EscritorGrafo.gravar(arquivo.toPath(), grafo);
+        } else {
+            EscritorGrafo.gravarMatriz(arquivo.toPath(), grafo);
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package app;
+
+import lib.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// protocolo de linhas do modo sem menu: cada linha é um pedido e recebe exatamente uma linha de resposta,
+// na mesma ordem; os campos são separados por tab (ou por espaços, se a linha não tiver tab)
+//
+//   caminho <origem> <destino>       ok <distancia> <cidade> <cidade> ...   (ou "nenhum")
+//   distancia <origem> <destino>     ok <distancia>                         (ou "nenhum")
+//   agm-caminho <origem> <destino>   igual ao caminho, só pelas arestas da AGM
+//   agm                              ok <numero de arestas> <peso total>
+//   qualquer outra coisa             erro <mensagem>
+//
+// as linhas que já chegaram são respondidas juntas pelo ConsultasEmLote, em paralelo, e a saída só
+// é descarregada quando a entrada não tem mais nada esperando, então quem manda vários pedidos
+// sem esperar as respostas (pipeline) não paga uma escrita no console por pedido
+final class ProtocoloLinhas {
+
+    // máximo de linhas respondidas de uma vez
+    private static final int TAMANHO_BLOCO = 4096;
+
+    private final ConsultasEmLote<String> consultas;
+    // resposta do pedido "agm", montada na primeira vez
+    private volatile String respostaAgm;
+
+    ProtocoloLinhas(ConsultasEmLote<String> consultas) {
+        this.consultas = consultas;
+    }
+
+    // lê pedidos até a entrada acabar
+    void executar(BufferedReader entrada, Writer saida) throws IOException {
+        List<String> bloco = new ArrayList<>();
+        String linha;
+        while ((linha = entrada.readLine()) != null) {
+            bloco.add(linha);
+            if (bloco.size() == TAMANHO_BLOCO || !entrada.ready()) {
+                responder(bloco, saida);
+                bloco.clear();
+                if (!entrada.ready()) {
+                    saida.flush();
+                }
+            }
+        }
+        responder(bloco, saida);
+        saida.flush();
+    }
+
+    // responde um bloco de linhas, uma linha de resposta por pedido (linhas em branco são ignoradas)
+    void responder(List<String> linhas, Appendable saida) throws IOException {
+        List<ConsultasEmLote.Pedido<String>> pedidos = new ArrayList<>();
+        List<String[]> campos = new ArrayList<>(linhas.size());
+        for (String linha : linhas) {
+            String[] partes = separar(linha);
+            campos.add(partes);
+            ConsultasEmLote.Pedido<String> pedido = pedido(partes);
+            if (pedido != null) {
+                pedidos.add(pedido);
+            }
+        }
+        List<ConsultasEmLote.Resposta<String>> respostas = consultas.executar(pedidos);
+        int proxima = 0;
+        for (String[] partes : campos) {
+            if (partes.length == 0) {
+                continue;
+            }
+            if (pedido(partes) == null) {
+                saida.append(erro(partes)).append('\n');
+                continue;
+            }
+            escrever(partes[0], respostas.get(proxima++), saida);
+            saida.append('\n');
+        }
+    }
+
+    private static String[] separar(String linha) {
+        String texto = linha.strip();
+        if (texto.isEmpty()) {
+            return new String[0];
+        }
+        return texto.indexOf('\t') >= 0 ? texto.split("\t") : texto.split("\\s+");
+    }
+
+    // o pedido da linha, ou null se ela não for um pedido válido
+    private static ConsultasEmLote.Pedido<String> pedido(String[] partes) {
+        if (partes.length == 3 && (partes[0].equals("caminho") || partes[0].equals("distancia"))) {
+            return ConsultasEmLote.Pedido.caminho(partes[1], partes[2]);
+        }
+        if (partes.length == 3 && partes[0].equals("agm-caminho")) {
+            return ConsultasEmLote.Pedido.caminhoAgm(partes[1], partes[2]);
+        }
+        if (partes.length == 1 && partes[0].equals("agm")) {
+            return ConsultasEmLote.Pedido.agm();
+        }
+        return null;
+    }
+
+    private static String erro(String[] partes) {
+        switch (partes[0]) {
+            case "caminho":
+            case "distancia":
+            case "agm-caminho":
+                return "erro\t" + partes[0] + " precisa de origem e destino";
+            case "agm":
+                return "erro\tagm não tem argumentos";
+            default:
+                return "erro\tcomando desconhecido: " + partes[0];
+        }
+    }
+
+    private void escrever(String comando, ConsultasEmLote.Resposta<String> resposta, Appendable saida) throws IOException {
+        if (comando.equals("agm")) {
+            saida.append(respostaAgm(resposta.getArvoreGeradoraMinima()));
+            return;
+        }
+        Caminho<String> caminho = resposta.getCaminho();
+        if (caminho == null) {
+            saida.append("nenhum");
+            return;
+        }
+        saida.append("ok\t").append(Float.toString(caminho.getDistancia()));
+        if (!comando.equals("distancia")) {
+            for (String cidade : caminho.getVertices()) {
+                saida.append('\t').append(cidade);
+            }
+        }
+    }
+
+    private String respostaAgm(GrafoCompacto<String> agm) {
+        String resposta = respostaAgm;
+        if (resposta == null) {
+            double total = 0;
+            for (int a = 0; a < agm.getNumeroArestas(); a++) {
+                total += agm.getPeso(a);
+            }
+            resposta = "ok\t" + agm.getNumeroArestas() + "\t" + (float) total;
+            respostaAgm = resposta;
+        }
+        return resposta;
+    }
+}
@@ -0,0 +1,159 @@
+package app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lib.*;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+
+// servidor HTTP local (só escuta em 127.0.0.1) com o grafo carregado uma vez na memória
+//
+//   GET  /caminho?origem=A&destino=B       {"distancia":3.5,"caminho":["A","X","B"]}
+//   GET  /agm/caminho?origem=A&destino=B   o mesmo, só pelas arestas da AGM
+//   GET  /agm                              {"arestas":9,"peso":42.0}
+//   POST /lote                             corpo e resposta no ProtocoloLinhas, uma linha por pedido
+//
+// sem caminho, "distancia" e "caminho" vêm null; parâmetro faltando dá 400
+// as consultas rodam no ConsultasEmLote, sobre a cópia compacta do grafo, que aceita várias threads
+// lendo ao mesmo tempo; cada pedido GET é respondido na thread do servidor que recebeu ele
+final class ServidorHttp {
+
+    private ServidorHttp() {
+    }
+
+    static HttpServer iniciar(ConsultasEmLote<String> consultas, int porta) throws IOException {
+        HttpServer servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        ProtocoloLinhas protocolo = new ProtocoloLinhas(consultas);
+        servidor.createContext("/caminho", troca -> responder(troca, () -> caminho(consultas, troca, false)));
+        servidor.createContext("/agm/caminho", troca -> responder(troca, () -> caminho(consultas, troca, true)));
+        servidor.createContext("/agm", troca -> responder(troca, () -> agm(consultas)));
+        servidor.createContext("/lote", troca -> responder(troca, () -> lote(protocolo, troca)));
+        servidor.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+        servidor.start();
+        return servidor;
+    }
+
+    // resposta pronta: código HTTP, tipo do conteúdo e corpo
+    private static final class Resposta {
+        final int codigo;
+        final String tipo;
+        final String corpo;
+
+        Resposta(int codigo, String tipo, String corpo) {
+            this.codigo = codigo;
+            this.tipo = tipo;
+            this.corpo = corpo;
+        }
+
+        static Resposta json(int codigo, String corpo) {
+            return new Resposta(codigo, "application/json; charset=utf-8", corpo);
+        }
+    }
+
+    private interface Tratamento {
+        Resposta executar() throws IOException;
+    }
+
+    private static void responder(HttpExchange troca, Tratamento tratamento) throws IOException {
+        Resposta resposta;
+        try {
+            resposta = tratamento.executar();
+        } catch (RuntimeException e) {
+            resposta = Resposta.json(500, "{\"erro\":" + texto(String.valueOf(e.getMessage())) + "}");
+        }
+        byte[] corpo = resposta.corpo.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", resposta.tipo);
+        troca.sendResponseHeaders(resposta.codigo, corpo.length == 0 ? -1 : corpo.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+
+    private static Resposta caminho(ConsultasEmLote<String> consultas, HttpExchange troca, boolean agm) {
+        if (!troca.getRequestMethod().equals("GET")) {
+            return Resposta.json(405, "{\"erro\":\"use GET\"}");
+        }
+        Map<String, String> parametros = parametros(troca.getRequestURI().getRawQuery());
+        String origem = parametros.get("origem");
+        String destino = parametros.get("destino");
+        if (origem == null || destino == null) {
+            return Resposta.json(400, "{\"erro\":\"faltam os parâmetros origem e destino\"}");
+        }
+        Caminho<String> caminho = consultas.responder(agm
+                ? ConsultasEmLote.Pedido.caminhoAgm(origem, destino)
+                : ConsultasEmLote.Pedido.caminho(origem, destino)).getCaminho();
+        if (caminho == null) {
+            return Resposta.json(200, "{\"distancia\":null,\"caminho\":null}");
+        }
+        StringBuilder json = new StringBuilder("{\"distancia\":").append(caminho.getDistancia()).append(",\"caminho\":[");
+        List<String> cidades = caminho.getVertices();
+        for (int i = 0; i < cidades.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(texto(cidades.get(i)));
+        }
+        return Resposta.json(200, json.append("]}").toString());
+    }
+
+    private static Resposta agm(ConsultasEmLote<String> consultas) {
+        GrafoCompacto<String> agm = consultas.getArvoreGeradoraMinima();
+        double total = 0;
+        for (int a = 0; a < agm.getNumeroArestas(); a++) {
+            total += agm.getPeso(a);
+        }
+        return Resposta.json(200, "{\"arestas\":" + agm.getNumeroArestas() + ",\"peso\":" + (float) total + "}");
+    }
+
+    private static Resposta lote(ProtocoloLinhas protocolo, HttpExchange troca) throws IOException {
+        if (!troca.getRequestMethod().equals("POST")) {
+            return Resposta.json(405, "{\"erro\":\"use POST\"}");
+        }
+        List<String> linhas = new ArrayList<>();
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(troca.getRequestBody(), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                linhas.add(linha);
+            }
+        }
+        StringBuilder saida = new StringBuilder();
+        protocolo.responder(linhas, saida);
+        return new Resposta(200, "text/plain; charset=utf-8", saida.toString());
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) {
+                parametros.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                        URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parametros;
+    }
+
+    // texto em JSON, com aspas e os caracteres especiais escapados
+    private static String texto(String valor) {
+        StringBuilder json = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,247 @@
+package bench;
+
+import lib.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// benchmarks das operações do lib.Grafo sobre os grafos do GeradorGrafos
+// cada operação roda um tempo de aquecimento e depois um tempo de medição, e o resultado mostra
+// quantas operações por segundo e quantos bytes alocados por operação (medido pela JVM na thread atual,
+// então o que as threads do pool alocam na agm-paralela não entra na conta)
+//
+// uso (da pasta do projeto):
+//   javac -d out $(find src -name '*.java')
+//   java -cp out bench.Benchmarks [tamanhos...] [--tempo ms] [--filtro texto]
+//   tamanhos: números de vértices (padrão 100 1000 10000 100000; vai até 1000000)
+//   --tempo: tempo de medição de cada operação em milissegundos (padrão 2000, o aquecimento é a metade)
+//   --filtro: roda só as operações cujo nome contém o texto
+public final class Benchmarks {
+
+    private static final long SEMENTE = 42;
+    private static final int GRAU_MEDIO = 8;
+    // o grafo completo tem V² arestas, então só é gerado até esse tamanho
+    private static final int LIMITE_COMPLETO = 2000;
+    private static final int TOTAL_PARES = 1024;
+    private static final int LIMITE_TODOS_PARES = 2000;
+    private static final int MAIS_PROXIMOS = 10;
+    private static final int CAMINHOS_ALTERNATIVOS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // guarda os resultados pra JIT não jogar o trabalho fora
+    static volatile Object sumidouro;
+
+    private static long tempoMedicao = 2000;
+    private static String filtro = "";
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> tamanhos = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--tempo")) {
+                tempoMedicao = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--filtro")) {
+                filtro = args[++i];
+            } else {
+                tamanhos.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (tamanhos.isEmpty()) {
+            tamanhos.addAll(Arrays.asList(100, 1000, 10000, 100000));
+        }
+
+        System.out.printf(Locale.ROOT, "%-18s %-11s %9s %10s %14s %14s%n", "operacao", "grafo", "vertices", "arestas", "ops/s", "bytes/op");
+        Path pasta = Files.createTempDirectory("grafinhos-bench");
+        try {
+            for (int n : tamanhos) {
+                rodar("esparso", GeradorGrafos.aleatorioEsparso(n, GRAU_MEDIO, SEMENTE), pasta);
+                int lado = (int) Math.round(Math.sqrt(n));
+                rodar("grade", GeradorGrafos.grade(lado, SEMENTE), pasta);
+                rodar("geometrico", GeradorGrafos.geometrico(n, GRAU_MEDIO, SEMENTE), pasta);
+                if (n <= LIMITE_COMPLETO) {
+                    rodar("completo", GeradorGrafos.completo(n, SEMENTE), pasta);
+                }
+            }
+        } finally {
+            try (var arquivos = Files.list(pasta)) {
+                for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+            Files.deleteIfExists(pasta);
+        }
+    }
+
+    private static void rodar(String tipo, Grafo<String> grafo, Path pasta) {
+        GrafoCompacto<String> compacto = grafo.congelar();
+        int n = compacto.getNumeroVertices();
+        Random aleatorio = new Random(SEMENTE);
+        String[] origens = new String[TOTAL_PARES];
+        String[] destinos = new String[TOTAL_PARES];
+        for (int i = 0; i < TOTAL_PARES; i++) {
+            origens[i] = compacto.getValor(aleatorio.nextInt(n));
+            destinos[i] = compacto.getValor(aleatorio.nextInt(n));
+        }
+        int[] proximo = {0};
+
+        Path texto = pasta.resolve(tipo + n + ".txt");
+        Path binario = pasta.resolve(tipo + n + ".bin");
+
+        medir("carga", tipo, compacto, () -> Grafo.deCompacto(compacto));
+        medir("congelar", tipo, compacto, () -> {
+            Grafo<String> copia = Grafo.deCompacto(compacto);
+            copia.adicionaVertice("novo");
+            return copia.congelar();
+        });
+        medir("agm", tipo, compacto, compacto::arvoreGeradoraMinima);
+        medir("agm-paralela", tipo, compacto, compacto::arvoreGeradoraMinimaParalela);
+        medir("agm-cache", tipo, compacto, grafo::calcularArvoreGeradoraMinima);
+        medir("caminho-agm", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return grafo.caminhoMinimoAGM(origens[i], destinos[i]);
+        });
+        medir("caminho", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return grafo.caminhoMinimo(origens[i], destinos[i]);
+        });
+        medir("caminho-bidir", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return grafo.caminhoMinimoBidirecional(origens[i], destinos[i]);
+        });
+        medir("caminho-a-estrela", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return grafo.caminhoMinimoAEstrela(origens[i], destinos[i]);
+        });
+        medir("k-caminhos", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return grafo.caminhosMinimos(origens[i], destinos[i], CAMINHOS_ALTERNATIVOS);
+        });
+        medir("k-caminhos-paralelo", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return grafo.caminhosMinimosParalelo(origens[i], destinos[i], CAMINHOS_ALTERNATIVOS);
+        });
+        medir("arvore-caminhos", tipo, compacto, () -> grafo.arvoreCaminhosMinimos(origens[proximo[0]++ & (TOTAL_PARES - 1)]));
+        medir("mais-proximos", tipo, compacto, () -> grafo.verticesMaisProximos(origens[proximo[0]++ & (TOTAL_PARES - 1)], MAIS_PROXIMOS));
+        medir("arvore-delta", tipo, compacto, () -> grafo.arvoreCaminhosMinimosParalela(origens[proximo[0]++ & (TOTAL_PARES - 1)]));
+        medirEscalaDelta(tipo, compacto, origens);
+        // a hierarquia de contração é pra grafos parecidos com malhas de estradas; nos aleatórios
+        // quase tudo vira núcleo e a construção só gasta tempo
+        if (tipo.equals("grade") || tipo.equals("geometrico")) {
+            medirHierarquia(tipo, compacto, origens, destinos);
+        }
+        // a tabela completa tem n² valores e custa n buscas inteiras, então só nos grafos pequenos
+        if (n <= LIMITE_TODOS_PARES) {
+            medir("todos-pares", tipo, compacto, () -> DistanciasTodosPares.calcular(compacto, DistanciasTodosPares.Metodo.DIJKSTRA));
+            medir("todos-pares-fw", tipo, compacto, () -> DistanciasTodosPares.calcular(compacto, DistanciasTodosPares.Metodo.FLOYD_WARSHALL));
+        }
+        medir("ciclo", tipo, compacto, grafo::temCiclo);
+        medir("topologica", tipo, compacto, grafo::ordenacaoTopologica);
+        medir("gravar-texto", tipo, compacto, () -> {
+            try {
+                return EscritorGrafo.gravar(texto, compacto);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        medir("ler-texto", tipo, compacto, () -> {
+            try {
+                return Files.exists(texto) ? LeitorGrafo.ler(texto) : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        medir("gravar-binario", tipo, compacto, () -> {
+            try {
+                ArquivoBinario.gravar(binario, compacto, null);
+                return binario;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        medir("ler-binario", tipo, compacto, () -> {
+            try {
+                return Files.exists(binario) ? ArquivoBinario.ler(binario) : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void medirHierarquia(String tipo, GrafoCompacto<String> compacto, String[] origens, String[] destinos) {
+        medir("hierarquia", tipo, compacto, () -> HierarquiaContracao.construir(compacto));
+        // a consulta precisa de uma hierarquia pronta, que só é construída se ela passar no filtro
+        if (!"caminho-hierarquia".contains(filtro)) {
+            return;
+        }
+        ConsultaHierarquia<String> consulta = new ConsultaHierarquia<>(HierarquiaContracao.construir(compacto));
+        int[] proximo = {0};
+        medir("caminho-hierarquia", tipo, compacto, () -> {
+            int i = proximo[0]++ & (TOTAL_PARES - 1);
+            return consulta.caminho(origens[i], destinos[i]);
+        });
+    }
+
+    // delta-stepping com 1, 2, 4, ... threads até o número de núcleos (e com todos eles), pra ver
+    // quanto ele escala comparado com o arvore-caminhos sequencial
+    private static void medirEscalaDelta(String tipo, GrafoCompacto<String> compacto, String[] origens) {
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        List<Integer> contagens = new ArrayList<>();
+        for (int threads = 1; threads < nucleos; threads *= 2) {
+            contagens.add(threads);
+        }
+        contagens.add(nucleos);
+        double delta = DeltaStepping.deltaPadrao(compacto);
+        int[] proximo = {0};
+        for (int threads : contagens) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                medir("delta-p" + threads, tipo, compacto, () -> {
+                    int origem = compacto.indiceDe(origens[proximo[0]++ & (TOTAL_PARES - 1)]);
+                    return DeltaStepping.calcular(compacto, origem, delta, pool);
+                });
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // operação medida; devolve alguma coisa só pra ela não ser eliminada pelo JIT
+    interface Operacao {
+        Object executar();
+    }
+
+    private static void medir(String nome, String tipo, GrafoCompacto<String> grafo, Operacao operacao) {
+        if (!nome.contains(filtro)) {
+            return;
+        }
+        long thread = Thread.currentThread().getId();
+
+        long fimAquecimento = System.nanoTime() + tempoMedicao * 500_000L;
+        do {
+            sumidouro = operacao.executar();
+        } while (System.nanoTime() < fimAquecimento);
+
+        long bytesAntes = THREADS.getThreadAllocatedBytes(thread);
+        long inicio = System.nanoTime();
+        long operacoes = 0;
+        long decorrido;
+        do {
+            sumidouro = operacao.executar();
+            operacoes++;
+            decorrido = System.nanoTime() - inicio;
+        } while (decorrido < tempoMedicao * 1_000_000L);
+        long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesAntes;
+
+        System.out.printf(Locale.ROOT, "%-18s %-11s %9d %10d %14.2f %14d%n", nome, tipo,
+                grafo.getNumeroVertices(), grafo.getNumeroArestas(),
+                operacoes * 1e9 / decorrido, bytes / operacoes);
+    }
+}
@@ -0,0 +1,126 @@
+package bench;
+
+import lib.*;
+import java.util.*;
+
+// geradores de grafos sintéticos pros benchmarks, sempre com semente fixa pra dar pra repetir
+// as cidades se chamam "v0", "v1", ... e toda aresta vai do vértice de id menor pro de id maior,
+// então os grafos gerados não têm ciclo e servem também pra ordenação topológica
+public final class GeradorGrafos {
+
+    private GeradorGrafos() {
+    }
+
+    // n vértices e grauMedio * n / 2 arestas entre pares sorteados, com peso de 1 a 100
+    public static Grafo<String> aleatorioEsparso(int n, int grauMedio, long semente) {
+        Random aleatorio = new Random(semente);
+        Grafo<String> grafo = vertices(n);
+        List<Vertice<String>> vertices = grafo.getVertices();
+        long m = (long) n * grauMedio / 2;
+        for (long e = 0; e < m; e++) {
+            int u = aleatorio.nextInt(n);
+            int v = aleatorio.nextInt(n);
+            if (u != v) {
+                ligar(grafo, vertices, u, v, 1 + aleatorio.nextInt(100));
+            }
+        }
+        return grafo;
+    }
+
+    // grade lado x lado, cada vértice ligado ao da direita e ao de baixo, com peso de 1 a 100
+    public static Grafo<String> grade(int lado, long semente) {
+        Random aleatorio = new Random(semente);
+        Grafo<String> grafo = vertices(lado * lado);
+        List<Vertice<String>> vertices = grafo.getVertices();
+        for (int linha = 0; linha < lado; linha++) {
+            for (int coluna = 0; coluna < lado; coluna++) {
+                int v = linha * lado + coluna;
+                if (coluna + 1 < lado) {
+                    ligar(grafo, vertices, v, v + 1, 1 + aleatorio.nextInt(100));
+                }
+                if (linha + 1 < lado) {
+                    ligar(grafo, vertices, v, v + lado, 1 + aleatorio.nextInt(100));
+                }
+            }
+        }
+        return grafo;
+    }
+
+    // pontos sorteados num quadrado de lado 1000, ligando os que estão a menos de um raio
+    // escolhido pra dar mais ou menos grauMedio vizinhos; o peso é a distância entre os pontos,
+    // parecido com uma malha de estradas, e cada vértice fica com a localização do seu ponto
+    public static Grafo<String> geometrico(int n, int grauMedio, long semente) {
+        Random aleatorio = new Random(semente);
+        double lado = 1000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = aleatorio.nextDouble() * lado;
+            y[v] = aleatorio.nextDouble() * lado;
+        }
+        double raio = lado * Math.sqrt(grauMedio / (Math.PI * Math.max(n, 1)));
+
+        // divide o quadrado em células do tamanho do raio, pra só comparar pontos de células vizinhas
+        int celulas = Math.max(1, (int) (lado / raio));
+        List<List<Integer>> grade = new ArrayList<>(celulas * celulas);
+        for (int c = 0; c < celulas * celulas; c++) {
+            grade.add(new ArrayList<>());
+        }
+        for (int v = 0; v < n; v++) {
+            grade.get(celula(x[v], lado, celulas) * celulas + celula(y[v], lado, celulas)).add(v);
+        }
+
+        Grafo<String> grafo = vertices(n);
+        List<Vertice<String>> vertices = grafo.getVertices();
+        for (int v = 0; v < n; v++) {
+            grafo.definirLocalizacao(vertices.get(v).getValor(), x[v], y[v]);
+        }
+        for (int u = 0; u < n; u++) {
+            int cx = celula(x[u], lado, celulas);
+            int cy = celula(y[u], lado, celulas);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (cx + dx < 0 || cx + dx >= celulas || cy + dy < 0 || cy + dy >= celulas) {
+                        continue;
+                    }
+                    for (int v : grade.get((cx + dx) * celulas + cy + dy)) {
+                        double distancia = Math.hypot(x[u] - x[v], y[u] - y[v]);
+                        if (u < v && distancia <= raio) {
+                            ligar(grafo, vertices, u, v, (float) Math.max(distancia, 1e-3));
+                        }
+                    }
+                }
+            }
+        }
+        return grafo;
+    }
+
+    // todos os pares de vértices ligados (n * (n - 1) / 2 arestas), com peso de 1 a 100
+    public static Grafo<String> completo(int n, long semente) {
+        Random aleatorio = new Random(semente);
+        Grafo<String> grafo = vertices(n);
+        List<Vertice<String>> vertices = grafo.getVertices();
+        for (int u = 0; u < n; u++) {
+            for (int v = u + 1; v < n; v++) {
+                ligar(grafo, vertices, u, v, 1 + aleatorio.nextInt(100));
+            }
+        }
+        return grafo;
+    }
+
+    private static int celula(double coordenada, double lado, int celulas) {
+        return Math.min(celulas - 1, (int) (coordenada / lado * celulas));
+    }
+
+    private static Grafo<String> vertices(int n) {
+        Grafo<String> grafo = new Grafo<>();
+        for (int v = 0; v < n; v++) {
+            grafo.adicionaVertice("v" + v);
+        }
+        return grafo;
+    }
+
+    private static void ligar(Grafo<String> grafo, List<Vertice<String>> vertices, int u, int v, float peso) {
+        grafo.adicionarAresta(vertices.get(Math.min(u, v)), vertices.get(Math.max(u, v)), peso);
+    }
+}
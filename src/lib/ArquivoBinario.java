@@ -0,0 +1,441 @@
+package lib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// grava e lê o grafo num arquivo binário, bem mais rápido de carregar que a matriz em texto
+// tudo em little-endian, com cada vetor de números começando numa posição múltipla de 8, nesta ordem:
+//   "GRFB", versão do formato, indicadores (bit 0: tem árvore geradora mínima,
+//   bit 1: tem hierarquia de contração, bit 2: grafo não direcionado, bit 3: tem localizações), n, m
+//   tabela de nomes: n + 1 posições de início (em bytes) e depois os nomes em UTF-8 colados
+//   índice dos nomes: tamanho t da tabela de espalhamento e os 2t ints dela (ver GrafoCompacto.montarTabelaIndice)
+//   grafo em CSR: inicioSaida (n + 1 ints), origens e destinos (m ints cada), pesos (m floats),
+//   e o CSR de entrada: inicioEntrada (n + 1 ints) e arestasEntrada (m ints)
+//   se tiver localizações (usadas pelo A*): o fator da estimativa (double), x de cada vértice (n doubles)
+//   e depois y (n doubles)
+//   se tiver árvore geradora mínima: número de arestas dela e o CSR dela no mesmo formato
+//   se tiver hierarquia de contração: número de arestas dela, primeiro nível do núcleo, o nível de cada vértice (n ints),
+//   o CSR das arestas pra cima (n + 1 ints e os destinos), os pesos (doubles), os vértices do meio e o dono de cada aresta
+// a leitura mapeia o arquivo na memória uma vez só e o grafo lido usa vistas desse mapa direto: nada é
+// copiado pra memória da JVM nem montado de novo (o índice dos nomes e o CSR de entrada já estão
+// gravados), e os nomes só são decodificados quando alguém pede um deles
+// um arquivo de até 2 GB é um mapa só; acima disso ele é mapeado em pedaços de até 2 GB, e cada vetor
+// tem que caber inteiro num pedaço
+public final class ArquivoBinario {
+
+    private static final int MAGICO = 0x42465247; // "GRFB" lido em little-endian
+    private static final int VERSAO_FORMATO = 2;
+    private static final int TEM_AGM = 1;
+    private static final int TEM_HIERARQUIA = 2;
+    private static final int NAO_DIRECIONADO = 4;
+    private static final int TEM_LOCALIZACOES = 8;
+
+    private ArquivoBinario() {
+    }
+
+    // o que foi lido do arquivo: o grafo e, se tiverem sido gravadas, a árvore geradora mínima
+    // e a hierarquia de contração
+    public static final class Conteudo {
+
+        private final GrafoCompacto<String> grafo;
+        private final GrafoCompacto<String> agm;
+        private final HierarquiaContracao<String> hierarquia;
+
+        private Conteudo(GrafoCompacto<String> grafo, GrafoCompacto<String> agm, HierarquiaContracao<String> hierarquia) {
+            this.grafo = grafo;
+            this.agm = agm;
+            this.hierarquia = hierarquia;
+        }
+
+        public GrafoCompacto<String> getGrafo() {
+            return grafo;
+        }
+
+        // pode ser null se o arquivo foi gravado sem a árvore
+        public GrafoCompacto<String> getAgm() {
+            return agm;
+        }
+
+        // pode ser null se o arquivo foi gravado sem a hierarquia
+        public HierarquiaContracao<String> getHierarquia() {
+            return hierarquia;
+        }
+    }
+
+    // grava o grafo e, se não for null, a árvore geradora mínima dele
+    public static void gravar(Path arquivo, GrafoCompacto<String> grafo, GrafoCompacto<String> agm) throws IOException {
+        gravar(arquivo, grafo, agm, null);
+    }
+
+    // grava também a hierarquia de contração, se não for null (ela tem que ser deste grafo)
+    public static void gravar(Path arquivo, GrafoCompacto<String> grafo, GrafoCompacto<String> agm,
+                              HierarquiaContracao<String> hierarquia) throws IOException {
+        if (hierarquia != null && hierarquia.getGrafo() != grafo) {
+            throw new IllegalArgumentException("A hierarquia de contração não é deste grafo");
+        }
+        int n = grafo.getNumeroVertices();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Escritor escritor = new Escritor(canal);
+            escritor.inteiro(MAGICO);
+            escritor.inteiro(VERSAO_FORMATO);
+            escritor.inteiro((agm != null ? TEM_AGM : 0) | (hierarquia != null ? TEM_HIERARQUIA : 0)
+                    | (grafo.ehNaoDirecionado() ? NAO_DIRECIONADO : 0) | (grafo.temLocalizacoes() ? TEM_LOCALIZACOES : 0));
+            escritor.inteiro(n);
+            escritor.inteiro(grafo.getNumeroArestas());
+            escritor.alinhar();
+            escritor.nomes(grafo);
+            int[] tabelaIndice = GrafoCompacto.montarTabelaIndice(grafo.getValores());
+            escritor.inteiro(tabelaIndice.length / 2);
+            escritor.inteiros(IntBuffer.wrap(tabelaIndice));
+            escritor.csr(grafo);
+            if (grafo.temLocalizacoes()) {
+                escritor.localizacoes(grafo);
+            }
+            if (agm != null) {
+                escritor.inteiro(agm.getNumeroArestas());
+                escritor.csr(agm);
+            }
+            if (hierarquia != null) {
+                escritor.hierarquia(hierarquia);
+            }
+            escritor.terminar();
+        }
+    }
+
+    // o grafo, a árvore e a hierarquia devolvidos continuam lendo do arquivo mapeado, que não deve ser
+    // alterado enquanto eles estiverem em uso (fechar o arquivo não desfaz o mapa)
+    public static Conteudo ler(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            Leitor leitor = new Leitor(canal);
+            if (leitor.inteiro() != MAGICO) {
+                throw new IOException("O arquivo não é um grafo binário: " + arquivo);
+            }
+            int versao = leitor.inteiro();
+            if (versao != VERSAO_FORMATO) {
+                throw new IOException("Versão de arquivo binário não suportada: " + versao);
+            }
+            int indicadores = leitor.inteiro();
+            int n = leitor.inteiro();
+            int m = leitor.inteiro();
+            if (n < 0 || n == Integer.MAX_VALUE) {
+                throw new IOException("Arquivo binário corrompido");
+            }
+
+            IntBuffer inicioNome = leitor.inteiros(n + 1);
+            if (inicioNome.get(0) != 0) {
+                throw new IOException("Arquivo binário corrompido");
+            }
+            List<String> nomes = new Nomes(inicioNome, leitor.bytes(inicioNome.get(n)));
+            int tamanhoTabela = leitor.inteiro();
+            if (tamanhoTabela <= 0 || tamanhoTabela > Integer.MAX_VALUE / 2) {
+                throw new IOException("Arquivo binário corrompido");
+            }
+            IntBuffer tabelaIndice = leitor.inteiros(2 * tamanhoTabela);
+
+            boolean naoDirecionado = (indicadores & NAO_DIRECIONADO) != 0;
+            GrafoCompacto<String> grafo = leitor.csr(nomes, tabelaIndice, m, naoDirecionado);
+            // antes da hierarquia, que tem que ser montada sobre o grafo já com as localizações
+            if ((indicadores & TEM_LOCALIZACOES) != 0) {
+                double fator = leitor.realDuplo();
+                grafo = grafo.comLocalizacoes(leitor.reaisDuplos(n), leitor.reaisDuplos(n), fator);
+            }
+            GrafoCompacto<String> agm = null;
+            if ((indicadores & TEM_AGM) != 0) {
+                agm = leitor.csr(nomes, tabelaIndice, leitor.inteiro(), naoDirecionado);
+            }
+            HierarquiaContracao<String> hierarquia = null;
+            if ((indicadores & TEM_HIERARQUIA) != 0) {
+                hierarquia = leitor.hierarquia(grafo, leitor.inteiro());
+            }
+            return new Conteudo(grafo, agm, hierarquia);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Arquivo binário corrompido: " + e.getMessage(), e);
+        }
+    }
+
+    // escreve em blocos de um buffer direto (também usado pelo DistanciasTodosPares)
+    static final class Escritor {
+
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        // bytes escritos até agora (os que já foram pro canal e os que estão no buffer)
+        private long escritos;
+
+        Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                esvaziar();
+            }
+        }
+
+        private void esvaziar() throws IOException {
+            buffer.flip();
+            escritos += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // completa com zeros até a próxima posição múltipla de 8
+        void alinhar() throws IOException {
+            while ((escritos + buffer.position()) % 8 != 0) {
+                garantir(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void inteiro(int valor) throws IOException {
+            garantir(4);
+            buffer.putInt(valor);
+        }
+
+        void real(float valor) throws IOException {
+            garantir(4);
+            buffer.putFloat(valor);
+        }
+
+        void realDuplo(double valor) throws IOException {
+            garantir(8);
+            buffer.putDouble(valor);
+        }
+
+        // um vetor inteiro, começando numa posição alinhada (os três abaixo)
+        void inteiros(IntBuffer valores) throws IOException {
+            alinhar();
+            for (int i = 0; i < valores.limit(); i++) {
+                inteiro(valores.get(i));
+            }
+        }
+
+        void reais(FloatBuffer valores) throws IOException {
+            alinhar();
+            for (int i = 0; i < valores.limit(); i++) {
+                real(valores.get(i));
+            }
+        }
+
+        void reaisDuplos(DoubleBuffer valores) throws IOException {
+            alinhar();
+            for (int i = 0; i < valores.limit(); i++) {
+                realDuplo(valores.get(i));
+            }
+        }
+
+        // vários floats de uma vez, sem passar um por um pelo buffer
+        void reais(float[] valores, int inicio, int quantidade) throws IOException {
+            int feito = 0;
+            while (feito < quantidade) {
+                garantir(4);
+                int parte = Math.min(buffer.remaining() / 4, quantidade - feito);
+                buffer.asFloatBuffer().put(valores, inicio + feito, parte);
+                buffer.position(buffer.position() + 4 * parte);
+                feito += parte;
+            }
+        }
+
+        // tabela de nomes: n + 1 posições de início (em bytes) e depois os nomes em UTF-8 colados
+        void nomes(GrafoCompacto<String> grafo) throws IOException {
+            int n = grafo.getNumeroVertices();
+            byte[][] nomes = new byte[n][];
+            for (int v = 0; v < n; v++) {
+                nomes[v] = grafo.getValor(v).getBytes(StandardCharsets.UTF_8);
+            }
+            int inicio = 0;
+            inteiro(0);
+            for (byte[] nome : nomes) {
+                inicio += nome.length;
+                inteiro(inicio);
+            }
+            for (byte[] nome : nomes) {
+                bytes(nome);
+            }
+        }
+
+        void bytes(byte[] valores) throws IOException {
+            int feito = 0;
+            while (feito < valores.length) {
+                garantir(1);
+                int parte = Math.min(buffer.remaining(), valores.length - feito);
+                buffer.put(valores, feito, parte);
+                feito += parte;
+            }
+        }
+
+        void csr(GrafoCompacto<String> grafo) throws IOException {
+            inteiros(grafo.inicioSaida);
+            inteiros(grafo.origens);
+            inteiros(grafo.destinos);
+            reais(grafo.pesos);
+            inteiros(grafo.inicioEntrada);
+            inteiros(grafo.arestasEntrada);
+        }
+
+        void localizacoes(GrafoCompacto<String> grafo) throws IOException {
+            realDuplo(grafo.fatorEstimativa);
+            reaisDuplos(grafo.coordenadaX);
+            reaisDuplos(grafo.coordenadaY);
+        }
+
+        void hierarquia(HierarquiaContracao<String> hierarquia) throws IOException {
+            inteiro(hierarquia.getNumeroArestas());
+            inteiro(hierarquia.inicioNucleo);
+            inteiros(hierarquia.nivel);
+            inteiros(hierarquia.inicio);
+            inteiros(hierarquia.destinos);
+            reaisDuplos(hierarquia.pesos);
+            inteiros(hierarquia.meios);
+            inteiros(hierarquia.donos);
+        }
+
+        void terminar() throws IOException {
+            esvaziar();
+        }
+    }
+
+    // lê o arquivo pelo mapa dele na memória: cada vetor vira uma vista do mapa, sem cópia
+    private static final class Leitor {
+
+        private final FileChannel canal;
+        private final long tamanho;
+        private long posicao;
+        // o pedaço mapeado (o arquivo inteiro, se tiver até 2 GB) e onde ele começa no arquivo
+        private ByteBuffer mapa;
+        private long inicioMapa;
+
+        Leitor(FileChannel canal) throws IOException {
+            this.canal = canal;
+            this.tamanho = canal.size();
+            mapear(0);
+        }
+
+        private void mapear(long inicio) throws IOException {
+            this.mapa = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(tamanho - inicio, Integer.MAX_VALUE));
+            this.inicioMapa = inicio;
+        }
+
+        // os próximos bytes do arquivo, numa vista que começa na posição 0
+        private ByteBuffer secao(long bytes) throws IOException {
+            if (posicao + bytes > tamanho) {
+                throw new IOException("Arquivo binário incompleto");
+            }
+            if (posicao + bytes > inicioMapa + mapa.capacity()) {
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IOException("Vetor do arquivo binário maior que 2 GB");
+                }
+                mapear(posicao);
+            }
+            ByteBuffer parte = mapa.duplicate();
+            parte.position((int) (posicao - inicioMapa));
+            parte.limit((int) (posicao - inicioMapa + bytes));
+            posicao += bytes;
+            return parte.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // pula até a próxima posição múltipla de 8, onde começa cada vetor
+        private void alinhar() {
+            posicao = (posicao + 7) & ~7L;
+        }
+
+        private static void conferir(int quantidade) throws IOException {
+            if (quantidade < 0) {
+                throw new IOException("Arquivo binário corrompido");
+            }
+        }
+
+        int inteiro() throws IOException {
+            return secao(4).getInt(0);
+        }
+
+        double realDuplo() throws IOException {
+            return secao(8).getDouble(0);
+        }
+
+        IntBuffer inteiros(int quantidade) throws IOException {
+            conferir(quantidade);
+            alinhar();
+            return secao(4L * quantidade).asIntBuffer();
+        }
+
+        FloatBuffer reais(int quantidade) throws IOException {
+            conferir(quantidade);
+            alinhar();
+            return secao(4L * quantidade).asFloatBuffer();
+        }
+
+        DoubleBuffer reaisDuplos(int quantidade) throws IOException {
+            conferir(quantidade);
+            alinhar();
+            return secao(8L * quantidade).asDoubleBuffer();
+        }
+
+        ByteBuffer bytes(int quantidade) throws IOException {
+            conferir(quantidade);
+            return secao(quantidade);
+        }
+
+        GrafoCompacto<String> csr(List<String> nomes, IntBuffer tabelaIndice, int m, boolean naoDirecionado) throws IOException {
+            conferir(m);
+            int n = nomes.size();
+            IntBuffer inicioSaida = inteiros(n + 1);
+            IntBuffer origens = inteiros(m);
+            IntBuffer destinos = inteiros(m);
+            FloatBuffer pesos = reais(m);
+            IntBuffer inicioEntrada = inteiros(n + 1);
+            IntBuffer arestasEntrada = inteiros(m);
+            return GrafoCompacto.deVetores(nomes, tabelaIndice, inicioSaida, origens, destinos, pesos, inicioEntrada, arestasEntrada, naoDirecionado);
+        }
+
+        HierarquiaContracao<String> hierarquia(GrafoCompacto<String> grafo, int m) throws IOException {
+            conferir(m);
+            int n = grafo.getNumeroVertices();
+            int inicioNucleo = inteiro();
+            IntBuffer nivel = inteiros(n);
+            IntBuffer inicio = inteiros(n + 1);
+            IntBuffer destinos = inteiros(m);
+            DoubleBuffer pesos = reaisDuplos(m);
+            IntBuffer meios = inteiros(m);
+            IntBuffer donos = inteiros(m);
+            return HierarquiaContracao.deVetores(grafo, nivel, inicioNucleo, inicio, destinos, pesos, meios, donos);
+        }
+    }
+
+    // os nomes dos vértices lidos do arquivo: cada um só é decodificado quando alguém pede
+    private static final class Nomes extends AbstractList<String> implements RandomAccess {
+
+        private final IntBuffer inicio;
+        private final ByteBuffer textos;
+
+        Nomes(IntBuffer inicio, ByteBuffer textos) {
+            this.inicio = inicio;
+            this.textos = textos;
+        }
+
+        @Override
+        public String get(int vertice) {
+            int comeco = inicio.get(vertice);
+            byte[] bytes = new byte[inicio.get(vertice + 1) - comeco];
+            ByteBuffer parte = textos.duplicate();
+            parte.position(comeco);
+            parte.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+            return inicio.limit() - 1;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package lib;
+
+// árvore de caminhos mínimos a partir de uma origem: a distância até cada vértice
+// e por qual aresta se chega nele, então dá pra montar o caminho até qualquer destino
+public class ArvoreCaminhos<T> {
+
+    private final GrafoCompacto<T> grafo;
+    private final int origem;
+    private final float[] distancia;
+    private final int[] anterior;
+
+    ArvoreCaminhos(GrafoCompacto<T> grafo, int origem, float[] distancia, int[] anterior) {
+        this.grafo = grafo;
+        this.origem = origem;
+        this.distancia = distancia;
+        this.anterior = anterior;
+    }
+
+    public T getOrigem() {
+        return grafo.getValor(origem);
+    }
+
+    // distância da origem até o vértice, ou Float.POSITIVE_INFINITY se ele não for alcançável
+    public float getDistancia(int vertice) {
+        return distancia[vertice];
+    }
+
+    public float getDistancia(T valor) {
+        int vertice = grafo.indiceDe(valor);
+        return vertice < 0 ? Float.POSITIVE_INFINITY : distancia[vertice];
+    }
+
+    public boolean alcanca(T valor) {
+        return getDistancia(valor) != Float.POSITIVE_INFINITY;
+    }
+
+    // caminho da origem até o destino, ou null se não houver
+    public Caminho<T> caminhoAte(T destino) {
+        int vertice = grafo.indiceDe(destino);
+        return vertice < 0 ? null : caminhoAte(vertice);
+    }
+
+    public Caminho<T> caminhoAte(int destino) {
+        if (distancia[destino] == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        return new Caminho<>(grafo, BuscaCaminhoMinimo.montarCaminho(grafo, anterior, destino), distancia[destino]);
+    }
+}
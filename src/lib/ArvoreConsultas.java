@@ -0,0 +1,210 @@
+package lib;
+
+import java.util.Arrays;
+
+// consultas de caminho numa árvore (ou floresta), como a árvore geradora mínima
+// numa árvore só existe um caminho entre dois vértices, então não precisa de busca: cada pedaço da
+// floresta ganha uma raiz, e o caminho entre u e v sobe de u e de v até o ancestral comum mais baixo
+// (o LCA), achado por saltos de 2^k níveis (binary lifting) em O(log V)
+// a distância sai da distância de cada vértice até a raiz, e o gargalo (a aresta mais pesada do caminho)
+// do maior peso guardado em cada salto, os dois também em O(log V); só o caminho inteiro custa o
+// tamanho dele
+// a preparação custa O(V log V) de tempo e de memória (um int e um float por vértice e nível de salto)
+// depois de pronta não muda mais, então pode ser consultada por várias threads ao mesmo tempo
+// as arestas são tratadas como vias de mão dupla, igual ao Grafo.calcularCaminhoMinimo
+public class ArvoreConsultas<T> {
+
+    private final GrafoCompacto<T> arvore;
+    private final int niveis;
+    // pedaço da floresta de cada vértice (a raiz dele)
+    private final int[] raiz;
+    private final int[] profundidade;
+    // distância de cada vértice até a raiz, somada em double igual às buscas
+    private final double[] distanciaRaiz;
+    // aresta que liga cada vértice ao pai, ou -1 nas raízes
+    private final int[] arestaPai;
+    // salto[k * n + v]: ancestral 2^k níveis acima de v (a raiz, se passar dela)
+    private final int[] salto;
+    // maior[k * n + v]: maior peso entre v e salto[k * n + v]
+    private final float[] maior;
+
+    public ArvoreConsultas(GrafoCompacto<T> arvore) {
+        int n = arvore.getNumeroVertices();
+        this.arvore = arvore;
+        this.raiz = new int[n];
+        this.profundidade = new int[n];
+        this.distanciaRaiz = new double[n];
+        this.arestaPai = new int[n];
+        Arrays.fill(this.raiz, -1);
+        Arrays.fill(this.arestaPai, -1);
+
+        // busca em largura a partir de cada vértice ainda sem raiz, pra ter a ordem de cima pra baixo
+        int[] ordem = new int[n];
+        int totalRaizes = 0;
+        int maiorProfundidade = 0;
+        int fim = 0;
+        for (int r = 0; r < n; r++) {
+            if (raiz[r] >= 0) {
+                continue;
+            }
+            totalRaizes++;
+            raiz[r] = r;
+            ordem[fim++] = r;
+            for (int i = fim - 1; i < fim; i++) {
+                int u = ordem[i];
+                maiorProfundidade = Math.max(maiorProfundidade, profundidade[u]);
+                for (int a = arvore.inicioSaida(u); a < arvore.fimSaida(u); a++) {
+                    fim = visitar(a, u, r, ordem, fim);
+                }
+                for (int p = arvore.inicioEntrada(u); p < arvore.fimEntrada(u); p++) {
+                    fim = visitar(arvore.arestaEntrada(p), u, r, ordem, fim);
+                }
+            }
+        }
+        if (arvore.getNumeroArestas() != n - totalRaizes) {
+            throw new IllegalArgumentException("O grafo não é uma árvore nem uma floresta (tem ciclo ou aresta repetida)");
+        }
+
+        this.niveis = Math.max(1, 32 - Integer.numberOfLeadingZeros(maiorProfundidade));
+        this.salto = new int[niveis * n];
+        this.maior = new float[niveis * n];
+        for (int v = 0; v < n; v++) {
+            int a = arestaPai[v];
+            salto[v] = a < 0 ? v : BuscaCaminhoMinimo.outraPonta(arvore, a, v);
+            maior[v] = a < 0 ? Float.NEGATIVE_INFINITY : arvore.getPeso(a);
+        }
+        for (int k = 1; k < niveis; k++) {
+            int atual = k * n;
+            int anterior = atual - n;
+            for (int v = 0; v < n; v++) {
+                int meio = salto[anterior + v];
+                salto[atual + v] = salto[anterior + meio];
+                maior[atual + v] = Math.max(maior[anterior + v], maior[anterior + meio]);
+            }
+        }
+    }
+
+    private int visitar(int aresta, int u, int r, int[] ordem, int fim) {
+        int v = BuscaCaminhoMinimo.outraPonta(arvore, aresta, u);
+        // a aresta do pai aparece de novo vista do filho, e com ciclo o vértice já teria raiz
+        if (raiz[v] >= 0) {
+            return fim;
+        }
+        raiz[v] = r;
+        arestaPai[v] = aresta;
+        profundidade[v] = profundidade[u] + 1;
+        distanciaRaiz[v] = distanciaRaiz[u] + arvore.getPeso(aresta);
+        ordem[fim] = v;
+        return fim + 1;
+    }
+
+    public GrafoCompacto<T> getArvore() {
+        return arvore;
+    }
+
+    // se existe caminho entre os dois vértices (se estão no mesmo pedaço da floresta)
+    public boolean conectados(int u, int v) {
+        return raiz[u] == raiz[v];
+    }
+
+    // ancestral comum mais baixo dos dois vértices, ou -1 se eles estiverem em pedaços diferentes
+    public int ancestralComum(int u, int v) {
+        if (raiz[u] != raiz[v]) {
+            return -1;
+        }
+        int n = raiz.length;
+        if (profundidade[u] < profundidade[v]) {
+            int troca = u;
+            u = v;
+            v = troca;
+        }
+        // sobe u até a profundidade de v
+        for (int diferenca = profundidade[u] - profundidade[v], k = 0; diferenca != 0; diferenca >>>= 1, k++) {
+            if ((diferenca & 1) != 0) {
+                u = salto[k * n + u];
+            }
+        }
+        if (u == v) {
+            return u;
+        }
+        // sobe os dois juntos pelo maior salto que não chega num ancestral comum
+        for (int k = niveis - 1; k >= 0; k--) {
+            int pu = salto[k * n + u];
+            int pv = salto[k * n + v];
+            if (pu != pv) {
+                u = pu;
+                v = pv;
+            }
+        }
+        return salto[u];
+    }
+
+    // tamanho do caminho entre os dois vértices, ou Float.POSITIVE_INFINITY se não houver
+    public float distancia(int u, int v) {
+        int lca = ancestralComum(u, v);
+        if (lca < 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return (float) (distanciaRaiz[u] - distanciaRaiz[lca] + (distanciaRaiz[v] - distanciaRaiz[lca]));
+    }
+
+    public float distancia(T origem, T destino) {
+        int u = arvore.indiceDe(origem);
+        int v = arvore.indiceDe(destino);
+        return u < 0 || v < 0 ? Float.POSITIVE_INFINITY : distancia(u, v);
+    }
+
+    // peso da aresta mais pesada do caminho entre os dois vértices; Float.NEGATIVE_INFINITY se for
+    // o mesmo vértice (caminho sem arestas) e Float.NaN se não houver caminho
+    public float gargalo(int u, int v) {
+        int lca = ancestralComum(u, v);
+        if (lca < 0) {
+            return Float.NaN;
+        }
+        return Math.max(maiorAte(u, profundidade[u] - profundidade[lca]), maiorAte(v, profundidade[v] - profundidade[lca]));
+    }
+
+    public float gargalo(T origem, T destino) {
+        int u = arvore.indiceDe(origem);
+        int v = arvore.indiceDe(destino);
+        return u < 0 || v < 0 ? Float.NaN : gargalo(u, v);
+    }
+
+    // maior peso subindo a quantidade de níveis a partir de v
+    private float maiorAte(int v, int subir) {
+        int n = raiz.length;
+        float resultado = Float.NEGATIVE_INFINITY;
+        for (int k = 0; subir != 0; subir >>>= 1, k++) {
+            if ((subir & 1) != 0) {
+                resultado = Math.max(resultado, maior[k * n + v]);
+                v = salto[k * n + v];
+            }
+        }
+        return resultado;
+    }
+
+    // o caminho entre os dois vértices, ou null se algum não existir ou não houver caminho
+    public Caminho<T> caminho(T origem, T destino) {
+        int u = arvore.indiceDe(origem);
+        int v = arvore.indiceDe(destino);
+        return u < 0 || v < 0 ? null : caminho(u, v);
+    }
+
+    public Caminho<T> caminho(int u, int v) {
+        int lca = ancestralComum(u, v);
+        if (lca < 0) {
+            return null;
+        }
+        // de u subindo até o LCA, e depois de v subindo até o LCA de trás pra frente
+        int[] ids = new int[profundidade[u] + profundidade[v] - 2 * profundidade[lca] + 1];
+        int i = 0;
+        for (int x = u; x != lca; x = salto[x]) {
+            ids[i++] = x;
+        }
+        ids[i] = lca;
+        for (int x = v, j = ids.length - 1; x != lca; x = salto[x], j--) {
+            ids[j] = x;
+        }
+        return new Caminho<>(arvore, ids, distancia(u, v));
+    }
+}
@@ -0,0 +1,116 @@
+package lib;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// árvore geradora mínima pelo algoritmo de Borůvka, com a parte pesada rodando em paralelo
+// a cada rodada, todas as arestas são olhadas em paralelo e cada componente guarda a aresta mais leve
+// que sai dele; depois essas arestas entram na árvore e os componentes se juntam
+// como no máximo metade dos componentes sobra por rodada, são log(V) rodadas
+// o empate de peso é desfeito pelo id da aresta, então nunca se forma ciclo e o peso total é o mesmo do Kruskal
+final class BoruvkaParalelo {
+
+    // abaixo desse tamanho um pedaço de arestas é processado direto, sem dividir mais
+    private static final int LIMITE_DIVISAO = 1 << 13;
+    private static final long NENHUMA = Long.MAX_VALUE;
+
+    private BoruvkaParalelo() {
+    }
+
+    static <T> GrafoCompacto<T> calcular(GrafoCompacto<T> grafo, ForkJoinPool pool) {
+        long comeco = Metricas.inicio();
+        int n = grafo.getNumeroVertices();
+        int m = grafo.getNumeroArestas();
+        UniaoBusca conjuntos = new UniaoBusca(n);
+        int[] componente = new int[n];
+        AtomicLongArray maisLeve = new AtomicLongArray(n);
+
+        int[] origem = new int[Math.max(n - 1, 0)];
+        int[] destino = new int[origem.length];
+        float[] peso = new float[origem.length];
+        int total = 0;
+        // cada rodada olha todas as arestas
+        long examinadas = 0;
+
+        boolean juntou = true;
+        while (juntou && total < n - 1) {
+            for (int v = 0; v < n; v++) {
+                componente[v] = conjuntos.encontrar(v);
+                maisLeve.set(v, NENHUMA);
+            }
+
+            pool.invoke(new Rodada(grafo, componente, maisLeve, 0, m));
+            examinadas += m;
+
+            juntou = false;
+            for (int c = 0; c < n; c++) {
+                long chave = maisLeve.get(c);
+                if (componente[c] != c || chave == NENHUMA) {
+                    continue;
+                }
+                int a = (int) chave;
+                if (conjuntos.unir(grafo.origens.get(a), grafo.destinos.get(a))) {
+                    origem[total] = grafo.origens.get(a);
+                    destino[total] = grafo.destinos.get(a);
+                    peso[total] = grafo.pesos.get(a);
+                    total++;
+                    juntou = true;
+                }
+            }
+        }
+        Metricas.registrarAgm("boruvka", comeco, n, examinadas, conjuntos);
+        return GrafoCompacto.criar(grafo.getValores(), origem, destino, peso, total, grafo.ehNaoDirecionado());
+    }
+
+    // procura, num intervalo de arestas, a mais leve que sai de cada componente
+    private static final class Rodada extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final GrafoCompacto<?> grafo;
+        private final int[] componente;
+        private final AtomicLongArray maisLeve;
+        private final int inicio;
+        private final int fim;
+
+        Rodada(GrafoCompacto<?> grafo, int[] componente, AtomicLongArray maisLeve, int inicio, int fim) {
+            this.grafo = grafo;
+            this.componente = componente;
+            this.maisLeve = maisLeve;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > LIMITE_DIVISAO) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new Rodada(grafo, componente, maisLeve, inicio, meio),
+                        new Rodada(grafo, componente, maisLeve, meio, fim));
+                return;
+            }
+            IntBuffer origens = grafo.origens;
+            IntBuffer destinos = grafo.destinos;
+            FloatBuffer pesos = grafo.pesos;
+            for (int a = inicio; a < fim; a++) {
+                int cu = componente[origens.get(a)];
+                int cv = componente[destinos.get(a)];
+                if (cu != cv) {
+                    long chave = GrafoCompacto.chave(pesos.get(a), a);
+                    guardarMenor(cu, chave);
+                    guardarMenor(cv, chave);
+                }
+            }
+        }
+
+        private void guardarMenor(int c, long chave) {
+            long atual = maisLeve.get(c);
+            while (chave < atual && !maisLeve.compareAndSet(c, atual, chave)) {
+                atual = maisLeve.get(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package lib;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// motor de Dijkstra sobre o grafo compacto, pensado pra ser reaproveitado entre consultas
+// os vetores de distância, aresta anterior e o heap são criados uma vez só, e cada busca
+// limpa apenas os vértices que a busca anterior tocou, então uma consulta não aloca nada
+// além do resultado
+// as arestas são tratadas como vias de mão dupla, igual ao Grafo.calcularCaminhoMinimo
+// além do Dijkstra comum, tem duas buscas de ponto a ponto que fecham bem menos vértices:
+// a bidirecional (uma busca da origem e outra do destino, até elas se encontrarem) e o A*,
+// que usa a localização dos vértices pra ir primeiro na direção do destino
+// as distâncias são somadas em double e só viram float no resultado, assim as três buscas
+// chegam na mesma distância mesmo somando as arestas em outra ordem
+// não é thread-safe: cada thread deve usar a sua própria busca
+public class BuscaCaminhoMinimo<T> {
+
+    private final GrafoCompacto<T> grafo;
+    private final double[] distancia;
+    // aresta usada para chegar em cada vértice, ou -1
+    private final int[] anterior;
+    private final boolean[] fechado;
+    private final HeapIndexado fila;
+    // vértices que tiveram a distância alterada na última busca, pra limpar depois
+    private final int[] tocados;
+    private int totalTocados;
+    // quantos vértices a última busca fechou (tirou da fila) e quantas arestas ela olhou
+    private int fechados;
+    private long arestasExaminadas;
+
+    // vértices na ordem em que a última consulta de vizinhança fechou; só é criado quando ela é usada
+    private int[] ordemFechados;
+
+    // estado da busca que sai do destino, na bidirecional; só é criado quando ela é usada
+    private double[] distanciaVolta;
+    private int[] anteriorVolta;
+    private boolean[] fechadoVolta;
+    private HeapIndexado filaVolta;
+    private int[] tocadosVolta;
+    private int totalTocadosVolta;
+
+    // prioridade de cada vértice no A* (distância desde a origem + estimativa até o destino)
+    private double[] prioridade;
+    private HeapIndexado filaEstrela;
+
+    public BuscaCaminhoMinimo(GrafoCompacto<T> grafo) {
+        int n = grafo.getNumeroVertices();
+        this.grafo = grafo;
+        this.distancia = new double[n];
+        this.anterior = new int[n];
+        this.fechado = new boolean[n];
+        this.tocados = new int[n];
+        Arrays.fill(this.distancia, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.anterior, -1);
+        this.fila = new HeapIndexado(this.distancia);
+    }
+
+    public GrafoCompacto<T> getGrafo() {
+        return grafo;
+    }
+
+    // caminho mínimo entre dois valores, ou null se algum não existir ou não houver caminho
+    public Caminho<T> caminho(T origem, T destino) {
+        int o = grafo.indiceDe(origem);
+        int d = grafo.indiceDe(destino);
+        if (o < 0 || d < 0) {
+            return null;
+        }
+        return caminho(o, d);
+    }
+
+    // caminho mínimo entre dois vértices (posições no grafo compacto), ou null se não houver caminho
+    // a busca para assim que o destino sai da fila
+    public Caminho<T> caminho(int origem, int destino) {
+        long inicio = Metricas.inicio();
+        executar(origem, destino);
+        registrar("dijkstra", inicio);
+        if (distancia[destino] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        return new Caminho<>(grafo, montarCaminho(grafo, anterior, destino), (float) distancia[destino]);
+    }
+
+    // mesmo caminho mínimo (mesma distância) pela busca bidirecional: a origem e o destino
+    // crescem uma bola cada um, alternando pelo lado com a fila menor, e a busca para quando
+    // a soma dos topos das duas filas já não melhora o melhor encontro achado
+    public Caminho<T> caminhoBidirecional(T origem, T destino) {
+        int o = grafo.indiceDe(origem);
+        int d = grafo.indiceDe(destino);
+        if (o < 0 || d < 0) {
+            return null;
+        }
+        return caminhoBidirecional(o, d);
+    }
+
+    public Caminho<T> caminhoBidirecional(int origem, int destino) {
+        long inicio = Metricas.inicio();
+        int encontro = executarBidirecional(origem, destino);
+        registrar("bidirecional", inicio);
+        if (encontro < 0) {
+            return null;
+        }
+        // caminho da origem até o encontro pela busca de ida, e do encontro até o destino pela de volta
+        int[] ida = montarCaminho(grafo, anterior, encontro);
+        int tamanho = ida.length;
+        for (int v = encontro; anteriorVolta[v] >= 0; v = outraPonta(grafo, anteriorVolta[v], v)) {
+            tamanho++;
+        }
+        int[] ids = Arrays.copyOf(ida, tamanho);
+        double total = distancia[encontro];
+        for (int v = encontro, i = ida.length; anteriorVolta[v] >= 0; i++) {
+            // soma a volta no sentido origem -> destino, na mesma ordem do Dijkstra
+            total += grafo.pesos.get(anteriorVolta[v]);
+            v = outraPonta(grafo, anteriorVolta[v], v);
+            ids[i] = v;
+        }
+        return new Caminho<>(grafo, ids, (float) total);
+    }
+
+    // mesmo caminho mínimo (mesma distância) pelo A*: a fila é ordenada pela distância desde a origem
+    // mais uma estimativa que nunca passa da distância que falta (a distância em linha reta vezes
+    // o menor peso por unidade de distância do grafo), então os vértices longe do destino ficam pra trás
+    // se o grafo compacto não tiver localização, a estimativa é 0 e vira o Dijkstra comum
+    public Caminho<T> caminhoAEstrela(T origem, T destino) {
+        int o = grafo.indiceDe(origem);
+        int d = grafo.indiceDe(destino);
+        if (o < 0 || d < 0) {
+            return null;
+        }
+        return caminhoAEstrela(o, d);
+    }
+
+    public Caminho<T> caminhoAEstrela(int origem, int destino) {
+        long inicio = Metricas.inicio();
+        executarEstrela(origem, destino);
+        registrar("a-estrela", inicio);
+        if (distancia[destino] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        return new Caminho<>(grafo, montarCaminho(grafo, anterior, destino), (float) distancia[destino]);
+    }
+
+    // quantos vértices a última busca fechou, pra comparar o trabalho dos modos de busca
+    public int getVerticesFechados() {
+        return fechados;
+    }
+
+    // só a distância, sem montar o caminho (Float.POSITIVE_INFINITY se não houver caminho)
+    public float distancia(int origem, int destino) {
+        long inicio = Metricas.inicio();
+        executar(origem, destino);
+        registrar("dijkstra", inicio);
+        return (float) distancia[destino];
+    }
+
+    // calcula a árvore de caminhos mínimos da origem até todos os vértices
+    public ArvoreCaminhos<T> arvore(T origem) {
+        int o = grafo.indiceDe(origem);
+        return o < 0 ? null : arvore(o);
+    }
+
+    public ArvoreCaminhos<T> arvore(int origem) {
+        long inicio = Metricas.inicio();
+        executar(origem, -1);
+        registrar("arvore", inicio);
+        float[] distancias = new float[distancia.length];
+        for (int v = 0; v < distancias.length; v++) {
+            distancias[v] = (float) distancia[v];
+        }
+        return new ArvoreCaminhos<>(grafo, origem, distancias, anterior.clone());
+    }
+
+    // distâncias da origem até todos os vértices, copiadas em saida a partir da posição inicio
+    // (Float.POSITIVE_INFINITY nos que não são alcançáveis); não aloca nada
+    void distancias(int origem, float[] saida, int inicio) {
+        long comeco = Metricas.inicio();
+        executar(origem, -1);
+        registrar("arvore", comeco);
+        for (int v = 0; v < distancia.length; v++) {
+            saida[inicio + v] = (float) distancia[v];
+        }
+    }
+
+    // vértices a no máximo raio de distância da origem (sem contar ela), do mais perto pro mais longe,
+    // ou null se a origem não existir
+    public List<Vizinho<T>> verticesNoRaio(T origem, float raio) {
+        int o = grafo.indiceDe(origem);
+        return o < 0 ? null : verticesNoRaio(o, raio);
+    }
+
+    // a busca para no primeiro vértice que passa do raio, então só olha a vizinhança da origem
+    public List<Vizinho<T>> verticesNoRaio(int origem, float raio) {
+        long inicio = Metricas.inicio();
+        int total = executarVizinhanca(origem, raio, Integer.MAX_VALUE);
+        registrar("raio", inicio);
+        return vizinhos(total);
+    }
+
+    // os k vértices mais perto da origem (sem contar ela), do mais perto pro mais longe; menos que k se
+    // não houver tantos alcançáveis, ou null se a origem não existir
+    public List<Vizinho<T>> verticesMaisProximos(T origem, int k) {
+        int o = grafo.indiceDe(origem);
+        return o < 0 ? null : verticesMaisProximos(o, k);
+    }
+
+    // a busca para assim que fecha o k-ésimo vértice
+    public List<Vizinho<T>> verticesMaisProximos(int origem, int k) {
+        long inicio = Metricas.inicio();
+        int total = executarVizinhanca(origem, Float.POSITIVE_INFINITY, k);
+        registrar("mais-proximos", inicio);
+        return vizinhos(total);
+    }
+
+    private List<Vizinho<T>> vizinhos(int total) {
+        List<Vizinho<T>> vizinhos = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            int v = ordemFechados[i];
+            vizinhos.add(new Vizinho<>(grafo.getValor(v), v, (float) distancia[v]));
+        }
+        return vizinhos;
+    }
+
+    // Dijkstra da origem que para antes de fechar um vértice a mais de raio dela, ou depois de fechar
+    // limite vértices além da origem; devolve quantos foram fechados (sem a origem), guardados em
+    // ordemFechados na ordem da distância
+    // a comparação com o raio é feita na distância já arredondada pra float, a mesma que é devolvida
+    private int executarVizinhanca(int origem, float raio, int limite) {
+        limpar();
+        if (ordemFechados == null) {
+            ordemFechados = new int[distancia.length];
+        }
+        if (limite <= 0 || raio < 0) {
+            return 0;
+        }
+        tocar(origem);
+        distancia[origem] = 0;
+        fila.inserir(origem);
+
+        IntBuffer inicioSaida = grafo.inicioSaida;
+        IntBuffer inicioEntrada = grafo.inicioEntrada;
+        IntBuffer origens = grafo.origens;
+        IntBuffer destinos = grafo.destinos;
+        FloatBuffer pesos = grafo.pesos;
+        IntBuffer arestasEntrada = grafo.arestasEntrada;
+
+        int total = 0;
+        while (!fila.vazio() && (float) distancia[fila.minimo()] <= raio) {
+            int u = fila.removerMinimo();
+            fechado[u] = true;
+            fechados++;
+            if (u != origem) {
+                ordemFechados[total++] = u;
+                if (total == limite) {
+                    break;
+                }
+            }
+            arestasExaminadas += inicioSaida.get(u + 1) - inicioSaida.get(u) + inicioEntrada.get(u + 1) - inicioEntrada.get(u);
+            double du = distancia[u];
+            for (int a = inicioSaida.get(u); a < inicioSaida.get(u + 1); a++) {
+                relaxar(destinos.get(a), du + pesos.get(a), a);
+            }
+            for (int p = inicioEntrada.get(u); p < inicioEntrada.get(u + 1); p++) {
+                int a = arestasEntrada.get(p);
+                relaxar(origens.get(a), du + pesos.get(a), a);
+            }
+        }
+        return total;
+    }
+
+    // roda o Dijkstra da origem até fechar o destino (ou todos os vértices, se o destino for -1)
+    private void executar(int origem, int destino) {
+        limpar();
+        tocar(origem);
+        distancia[origem] = 0;
+        fila.inserir(origem);
+
+        IntBuffer inicioSaida = grafo.inicioSaida;
+        IntBuffer inicioEntrada = grafo.inicioEntrada;
+        IntBuffer origens = grafo.origens;
+        IntBuffer destinos = grafo.destinos;
+        FloatBuffer pesos = grafo.pesos;
+        IntBuffer arestasEntrada = grafo.arestasEntrada;
+
+        while (!fila.vazio()) {
+            int u = fila.removerMinimo();
+            fechado[u] = true;
+            fechados++;
+            if (u == destino) {
+                return;
+            }
+            arestasExaminadas += inicioSaida.get(u + 1) - inicioSaida.get(u) + inicioEntrada.get(u + 1) - inicioEntrada.get(u);
+            double du = distancia[u];
+            for (int a = inicioSaida.get(u); a < inicioSaida.get(u + 1); a++) {
+                relaxar(destinos.get(a), du + pesos.get(a), a);
+            }
+            for (int p = inicioEntrada.get(u); p < inicioEntrada.get(u + 1); p++) {
+                int a = arestasEntrada.get(p);
+                relaxar(origens.get(a), du + pesos.get(a), a);
+            }
+        }
+    }
+
+    // devolve o vértice onde as duas buscas se encontram no caminho mínimo, ou -1 se não houver caminho
+    private int executarBidirecional(int origem, int destino) {
+        limpar();
+        prepararVolta();
+        tocar(origem);
+        distancia[origem] = 0;
+        fila.inserir(origem);
+        tocarVolta(destino);
+        distanciaVolta[destino] = 0;
+        filaVolta.inserir(destino);
+
+        IntBuffer inicioSaida = grafo.inicioSaida;
+        IntBuffer inicioEntrada = grafo.inicioEntrada;
+        IntBuffer origens = grafo.origens;
+        IntBuffer destinos = grafo.destinos;
+        FloatBuffer pesos = grafo.pesos;
+        IntBuffer arestasEntrada = grafo.arestasEntrada;
+
+        // melhor soma distancia[v] + distanciaVolta[v] vista até agora e o vértice dela
+        double melhor = origem == destino ? 0 : Double.POSITIVE_INFINITY;
+        int encontro = origem == destino ? origem : -1;
+        while (!fila.vazio() && !filaVolta.vazio()
+                && distancia[fila.minimo()] + distanciaVolta[filaVolta.minimo()] < melhor) {
+            boolean ida = fila.tamanho() <= filaVolta.tamanho();
+            int u;
+            double du;
+            if (ida) {
+                u = fila.removerMinimo();
+                fechado[u] = true;
+                du = distancia[u];
+            } else {
+                u = filaVolta.removerMinimo();
+                fechadoVolta[u] = true;
+                du = distanciaVolta[u];
+            }
+            fechados++;
+            arestasExaminadas += inicioSaida.get(u + 1) - inicioSaida.get(u) + inicioEntrada.get(u + 1) - inicioEntrada.get(u);
+            for (int a = inicioSaida.get(u); a < inicioSaida.get(u + 1); a++) {
+                int v = destinos.get(a);
+                if (ida) {
+                    relaxar(v, du + pesos.get(a), a);
+                } else {
+                    relaxarVolta(v, du + pesos.get(a), a);
+                }
+                if (distancia[v] + distanciaVolta[v] < melhor) {
+                    melhor = distancia[v] + distanciaVolta[v];
+                    encontro = v;
+                }
+            }
+            for (int p = inicioEntrada.get(u); p < inicioEntrada.get(u + 1); p++) {
+                int a = arestasEntrada.get(p);
+                int v = origens.get(a);
+                if (ida) {
+                    relaxar(v, du + pesos.get(a), a);
+                } else {
+                    relaxarVolta(v, du + pesos.get(a), a);
+                }
+                if (distancia[v] + distanciaVolta[v] < melhor) {
+                    melhor = distancia[v] + distanciaVolta[v];
+                    encontro = v;
+                }
+            }
+        }
+        return encontro;
+    }
+
+    // A* da origem até o destino; aceita reabrir um vértice já fechado se achar um caminho melhor
+    // até ele, então o resultado é exato mesmo com o arredondamento da estimativa
+    private void executarEstrela(int origem, int destino) {
+        limpar();
+        if (prioridade == null) {
+            prioridade = new double[distancia.length];
+            filaEstrela = new HeapIndexado(prioridade);
+        }
+        tocar(origem);
+        distancia[origem] = 0;
+        prioridade[origem] = estimativa(origem, destino);
+        filaEstrela.inserir(origem);
+
+        IntBuffer inicioSaida = grafo.inicioSaida;
+        IntBuffer inicioEntrada = grafo.inicioEntrada;
+        IntBuffer origens = grafo.origens;
+        IntBuffer destinos = grafo.destinos;
+        FloatBuffer pesos = grafo.pesos;
+        IntBuffer arestasEntrada = grafo.arestasEntrada;
+
+        while (!filaEstrela.vazio()) {
+            int u = filaEstrela.removerMinimo();
+            fechados++;
+            if (u == destino) {
+                return;
+            }
+            arestasExaminadas += inicioSaida.get(u + 1) - inicioSaida.get(u) + inicioEntrada.get(u + 1) - inicioEntrada.get(u);
+            double du = distancia[u];
+            for (int a = inicioSaida.get(u); a < inicioSaida.get(u + 1); a++) {
+                relaxarEstrela(destinos.get(a), du + pesos.get(a), a, destino);
+            }
+            for (int p = inicioEntrada.get(u); p < inicioEntrada.get(u + 1); p++) {
+                int a = arestasEntrada.get(p);
+                relaxarEstrela(origens.get(a), du + pesos.get(a), a, destino);
+            }
+        }
+    }
+
+    // manda os números da última busca pras Metricas, se elas estiverem ligadas
+    private void registrar(String tipo, long inicio) {
+        if (inicio == Metricas.DESLIGADO) {
+            return;
+        }
+        long insercoes = fila.getInsercoes();
+        long diminuicoes = fila.getDiminuicoes();
+        if (filaVolta != null) {
+            insercoes += filaVolta.getInsercoes();
+            diminuicoes += filaVolta.getDiminuicoes();
+        }
+        if (filaEstrela != null) {
+            insercoes += filaEstrela.getInsercoes();
+            diminuicoes += filaEstrela.getDiminuicoes();
+        }
+        Metricas.registrarBusca(tipo, inicio, fechados, arestasExaminadas, insercoes, diminuicoes);
+    }
+
+    private double estimativa(int v, int destino) {
+        return grafo.fatorEstimativa == 0 ? 0 : grafo.fatorEstimativa * grafo.distanciaReta(v, destino);
+    }
+
+    private void relaxar(int v, double nova, int aresta) {
+        if (fechado[v] || nova >= distancia[v]) {
+            return;
+        }
+        if (distancia[v] == Double.POSITIVE_INFINITY) {
+            tocar(v);
+        }
+        distancia[v] = nova;
+        anterior[v] = aresta;
+        if (fila.contem(v)) {
+            fila.diminuir(v);
+        } else {
+            fila.inserir(v);
+        }
+    }
+
+    private void relaxarVolta(int v, double nova, int aresta) {
+        if (fechadoVolta[v] || nova >= distanciaVolta[v]) {
+            return;
+        }
+        if (distanciaVolta[v] == Double.POSITIVE_INFINITY) {
+            tocarVolta(v);
+        }
+        distanciaVolta[v] = nova;
+        anteriorVolta[v] = aresta;
+        if (filaVolta.contem(v)) {
+            filaVolta.diminuir(v);
+        } else {
+            filaVolta.inserir(v);
+        }
+    }
+
+    private void relaxarEstrela(int v, double nova, int aresta, int destino) {
+        if (nova >= distancia[v]) {
+            return;
+        }
+        if (distancia[v] == Double.POSITIVE_INFINITY) {
+            tocar(v);
+        }
+        distancia[v] = nova;
+        anterior[v] = aresta;
+        prioridade[v] = nova + estimativa(v, destino);
+        if (filaEstrela.contem(v)) {
+            filaEstrela.diminuir(v);
+        } else {
+            filaEstrela.inserir(v);
+        }
+    }
+
+    private void prepararVolta() {
+        if (distanciaVolta == null) {
+            int n = distancia.length;
+            distanciaVolta = new double[n];
+            anteriorVolta = new int[n];
+            fechadoVolta = new boolean[n];
+            tocadosVolta = new int[n];
+            Arrays.fill(distanciaVolta, Double.POSITIVE_INFINITY);
+            Arrays.fill(anteriorVolta, -1);
+            filaVolta = new HeapIndexado(distanciaVolta);
+        }
+    }
+
+    private void tocar(int v) {
+        tocados[totalTocados++] = v;
+    }
+
+    private void tocarVolta(int v) {
+        tocadosVolta[totalTocadosVolta++] = v;
+    }
+
+    private void limpar() {
+        for (int i = 0; i < totalTocados; i++) {
+            int v = tocados[i];
+            distancia[v] = Double.POSITIVE_INFINITY;
+            anterior[v] = -1;
+            fechado[v] = false;
+        }
+        totalTocados = 0;
+        fila.limpar();
+        for (int i = 0; i < totalTocadosVolta; i++) {
+            int v = tocadosVolta[i];
+            distanciaVolta[v] = Double.POSITIVE_INFINITY;
+            anteriorVolta[v] = -1;
+            fechadoVolta[v] = false;
+        }
+        totalTocadosVolta = 0;
+        if (filaVolta != null) {
+            filaVolta.limpar();
+        }
+        if (filaEstrela != null) {
+            filaEstrela.limpar();
+        }
+        fechados = 0;
+        arestasExaminadas = 0;
+    }
+
+    // volta pelas arestas anteriores a partir do destino e devolve os vértices na ordem origem -> destino
+    static int[] montarCaminho(GrafoCompacto<?> grafo, int[] anterior, int destino) {
+        int tamanho = 1;
+        for (int v = destino; anterior[v] >= 0; v = outraPonta(grafo, anterior[v], v)) {
+            tamanho++;
+        }
+        int[] caminho = new int[tamanho];
+        int v = destino;
+        for (int i = tamanho - 1; i > 0; i--) {
+            caminho[i] = v;
+            v = outraPonta(grafo, anterior[v], v);
+        }
+        caminho[0] = v;
+        return caminho;
+    }
+
+    // a ponta da aresta que não é o vértice dado
+    static int outraPonta(GrafoCompacto<?> grafo, int aresta, int vertice) {
+        int origem = grafo.origens.get(aresta);
+        return origem == vertice ? grafo.destinos.get(aresta) : origem;
+    }
+}
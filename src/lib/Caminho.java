@@ -0,0 +1,38 @@
+package lib;
+
+import java.util.*;
+
+// resultado de uma busca de caminho mínimo: os vértices do caminho, da origem até o destino, e a distância total
+public class Caminho<T> {
+
+    private final List<T> vertices;
+    // posições dos vértices do caminho no grafo compacto
+    final int[] ids;
+    private final float distancia;
+
+    Caminho(GrafoCompacto<T> grafo, int[] ids, float distancia) {
+        List<T> vertices = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            vertices.add(grafo.getValor(id));
+        }
+        this.vertices = Collections.unmodifiableList(vertices);
+        this.ids = ids;
+        this.distancia = distancia;
+    }
+
+    public List<T> getVertices() {
+        return vertices;
+    }
+
+    public float getDistancia() {
+        return distancia;
+    }
+
+    public T getOrigem() {
+        return vertices.get(0);
+    }
+
+    public T getDestino() {
+        return vertices.get(vertices.size() - 1);
+    }
+}
@@ -0,0 +1,393 @@
+package lib;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// os k caminhos mais curtos sem repetir vértice entre duas cidades, pelo algoritmo de Yen
+// (com a melhoria de Lawler: cada caminho só gera desvios a partir do ponto em que ele saiu do caminho pai)
+// as buscas de desvio não copiam o grafo: os vértices e arestas proibidos são marcados num vetor
+// de carimbos, que vale só pra busca atual e é "apagado" trocando o carimbo
+// a árvore de caminhos mínimos até o destino, calculada uma vez por consulta, dá o primeiro caminho
+// e serve de estimativa exata pro A* dos desvios (tirar arestas só aumenta as distâncias, então ela
+// nunca passa da distância de verdade)
+// os motores de busca são reaproveitados entre as consultas, e consultas ao mesmo tempo não dividem motor
+public final class CaminhosAlternativos<T> {
+
+    // abaixo disso não vale dividir os desvios entre as threads
+    private static final int MINIMO_PARALELO = 2;
+
+    private static final Comparator<Rota> ORDEM = Comparator.comparingDouble((Rota r) -> r.custo)
+            .thenComparingInt(r -> r.arestas.length);
+
+    private final GrafoCompacto<T> grafo;
+    private final Queue<Motor> motores = new ConcurrentLinkedQueue<>();
+
+    public CaminhosAlternativos(GrafoCompacto<T> grafo) {
+        this.grafo = grafo;
+    }
+
+    public GrafoCompacto<T> getGrafo() {
+        return grafo;
+    }
+
+    // os k caminhos mais curtos da origem ao destino, do mais curto pro mais longo (menos que k se não
+    // houver tantos), ou null se a origem ou o destino não existirem
+    public List<Caminho<T>> calcular(T origem, T destino, int k) {
+        return calcular(origem, destino, k, null);
+    }
+
+    // com pool != null, as buscas de desvio de cada caminho rodam em paralelo nele
+    public List<Caminho<T>> calcular(T origem, T destino, int k, ForkJoinPool pool) {
+        int o = grafo.indiceDe(origem);
+        int d = grafo.indiceDe(destino);
+        if (o < 0 || d < 0) {
+            return null;
+        }
+        return calcular(o, d, k, pool);
+    }
+
+    public List<Caminho<T>> calcular(int origem, int destino, int k, ForkJoinPool pool) {
+        long inicio = Metricas.inicio();
+        List<Caminho<T>> caminhos = new ArrayList<>();
+        if (k <= 0) {
+            return caminhos;
+        }
+        Consulta consulta = new Consulta(destino);
+        Motor primeiro = pegarMotor();
+        try {
+            primeiro.arvoreAteDestino(consulta);
+        } finally {
+            motores.offer(primeiro);
+        }
+        if (consulta.distancia[origem] == Double.POSITIVE_INFINITY) {
+            registrar(consulta, inicio);
+            return caminhos;
+        }
+
+        List<Rota> aceitas = new ArrayList<>();
+        PriorityQueue<Rota> candidatas = new PriorityQueue<>(ORDEM);
+        Set<Rota> vistas = new HashSet<>();
+        Rota rota = primeiraRota(consulta, origem);
+        vistas.add(rota);
+        while (true) {
+            aceitas.add(rota);
+            caminhos.add(new Caminho<>(grafo, rota.vertices, (float) rota.custo));
+            if (caminhos.size() == k) {
+                break;
+            }
+            // um desvio por vértice do último caminho (menos o destino), a partir de onde ele desviou
+            int total = rota.vertices.length - 1 - rota.desvio;
+            Rota[] desvios = new Rota[Math.max(total, 0)];
+            if (pool != null && total >= MINIMO_PARALELO) {
+                pool.invoke(new Desvios(consulta, aceitas, rota, desvios, 0, total));
+            } else {
+                Motor motor = pegarMotor();
+                try {
+                    for (int i = 0; i < total; i++) {
+                        desvios[i] = motor.desviar(consulta, aceitas, rota, rota.desvio + i);
+                    }
+                } finally {
+                    motores.offer(motor);
+                }
+            }
+            // junta na ordem dos desvios, então o resultado não depende de ter rodado em paralelo
+            for (Rota desvio : desvios) {
+                if (desvio != null && vistas.add(desvio)) {
+                    candidatas.add(desvio);
+                }
+            }
+            rota = candidatas.poll();
+            if (rota == null) {
+                break;
+            }
+        }
+        registrar(consulta, inicio);
+        return caminhos;
+    }
+
+    // o caminho da árvore até o destino, com o custo somado a partir da origem como nos outros caminhos
+    private Rota primeiraRota(Consulta consulta, int origem) {
+        int tamanho = 0;
+        for (int v = origem; consulta.anterior[v] >= 0; v = BuscaCaminhoMinimo.outraPonta(grafo, consulta.anterior[v], v)) {
+            tamanho++;
+        }
+        int[] vertices = new int[tamanho + 1];
+        int[] arestas = new int[tamanho];
+        vertices[0] = origem;
+        for (int i = 0; i < tamanho; i++) {
+            arestas[i] = consulta.anterior[vertices[i]];
+            vertices[i + 1] = BuscaCaminhoMinimo.outraPonta(grafo, arestas[i], vertices[i]);
+        }
+        return new Rota(vertices, arestas, custo(arestas), 0);
+    }
+
+    private double custo(int[] arestas) {
+        double custo = 0;
+        for (int a : arestas) {
+            custo += grafo.pesos.get(a);
+        }
+        return custo;
+    }
+
+    private Motor pegarMotor() {
+        Motor motor = motores.poll();
+        return motor != null ? motor : new Motor();
+    }
+
+    private void registrar(Consulta consulta, long inicio) {
+        if (inicio != Metricas.DESLIGADO) {
+            Metricas.registrarBusca("yen", inicio, (int) Math.min(consulta.fechados.sum(), Integer.MAX_VALUE),
+                    consulta.arestasExaminadas.sum(), consulta.insercoes.sum(), consulta.diminuicoes.sum());
+        }
+    }
+
+    // um caminho já montado; duas rotas são iguais se passam pelas mesmas arestas na mesma ordem
+    private static final class Rota {
+
+        final int[] vertices;
+        final int[] arestas;
+        final double custo;
+        // posição do vértice em que ela saiu do caminho que a gerou
+        final int desvio;
+
+        Rota(int[] vertices, int[] arestas, double custo, int desvio) {
+            this.vertices = vertices;
+            this.arestas = arestas;
+            this.custo = custo;
+            this.desvio = desvio;
+        }
+
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof Rota && Arrays.equals(arestas, ((Rota) outro).arestas);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arestas);
+        }
+    }
+
+    // o que é calculado uma vez por consulta e só lido pelas buscas de desvio
+    private final class Consulta {
+
+        final int destino;
+        // distância de cada vértice até o destino e a aresta que leva na direção dele (árvore do destino)
+        final double[] distancia;
+        final int[] anterior;
+        final LongAdder fechados = new LongAdder();
+        final LongAdder arestasExaminadas = new LongAdder();
+        final LongAdder insercoes = new LongAdder();
+        final LongAdder diminuicoes = new LongAdder();
+
+        Consulta(int destino) {
+            int n = grafo.getNumeroVertices();
+            this.destino = destino;
+            this.distancia = new double[n];
+            this.anterior = new int[n];
+        }
+    }
+
+    // divide os desvios de um caminho ao meio até sobrar um por tarefa; cada tarefa pega um motor livre
+    @SuppressWarnings("serial")
+    private final class Desvios extends RecursiveAction {
+
+        private final Consulta consulta;
+        private final List<Rota> aceitas;
+        private final Rota rota;
+        private final Rota[] saida;
+        private final int inicio;
+        private final int fim;
+
+        Desvios(Consulta consulta, List<Rota> aceitas, Rota rota, Rota[] saida, int inicio, int fim) {
+            this.consulta = consulta;
+            this.aceitas = aceitas;
+            this.rota = rota;
+            this.saida = saida;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > 1) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new Desvios(consulta, aceitas, rota, saida, inicio, meio),
+                        new Desvios(consulta, aceitas, rota, saida, meio, fim));
+                return;
+            }
+            Motor motor = pegarMotor();
+            try {
+                saida[inicio] = motor.desviar(consulta, aceitas, rota, rota.desvio + inicio);
+            } finally {
+                motores.offer(motor);
+            }
+        }
+    }
+
+    // estado de uma busca, do tamanho do grafo; só os vértices tocados são limpos entre uma busca e outra
+    private final class Motor {
+
+        private final double[] distancia;
+        private final double[] prioridade;
+        private final int[] anterior;
+        private final HeapIndexado fila;
+        private final int[] tocados;
+        private int totalTocados;
+        // vértice ou aresta com o carimbo da busca atual está proibido nela
+        private final int[] carimboVertice;
+        private final int[] carimboAresta;
+        private int carimbo;
+
+        Motor() {
+            int n = grafo.getNumeroVertices();
+            distancia = new double[n];
+            prioridade = new double[n];
+            anterior = new int[n];
+            tocados = new int[n];
+            carimboVertice = new int[n];
+            carimboAresta = new int[grafo.getNumeroArestas()];
+            Arrays.fill(distancia, Double.POSITIVE_INFINITY);
+            Arrays.fill(anterior, -1);
+            fila = new HeapIndexado(prioridade);
+        }
+
+        // Dijkstra a partir do destino por todo o grafo, copiado pra consulta
+        void arvoreAteDestino(Consulta consulta) {
+            novoCarimbo();
+            buscar(consulta, consulta.destino, -1, null);
+            System.arraycopy(distancia, 0, consulta.distancia, 0, distancia.length);
+            System.arraycopy(anterior, 0, consulta.anterior, 0, anterior.length);
+        }
+
+        // o desvio da rota no vértice da posição i: a raiz (rota até i) fica igual, os vértices dela
+        // ficam proibidos, e também a próxima aresta de todo caminho já aceito que começa com a mesma raiz
+        Rota desviar(Consulta consulta, List<Rota> aceitas, Rota rota, int i) {
+            novoCarimbo();
+            for (int j = 0; j < i; j++) {
+                carimboVertice[rota.vertices[j]] = carimbo;
+            }
+            for (Rota aceita : aceitas) {
+                if (aceita.arestas.length > i && Arrays.equals(aceita.arestas, 0, i, rota.arestas, 0, i)) {
+                    carimboAresta[aceita.arestas[i]] = carimbo;
+                }
+            }
+            int espora = rota.vertices[i];
+            if (!buscar(consulta, espora, consulta.destino, consulta.distancia)) {
+                return null;
+            }
+            int tamanho = 0;
+            for (int v = consulta.destino; v != espora; v = BuscaCaminhoMinimo.outraPonta(grafo, anterior[v], v)) {
+                tamanho++;
+            }
+            int[] vertices = Arrays.copyOf(rota.vertices, i + 1 + tamanho);
+            int[] arestas = Arrays.copyOf(rota.arestas, i + tamanho);
+            int v = consulta.destino;
+            for (int p = i + tamanho; p > i; p--) {
+                vertices[p] = v;
+                arestas[p - 1] = anterior[v];
+                v = BuscaCaminhoMinimo.outraPonta(grafo, anterior[v], v);
+            }
+            return new Rota(vertices, arestas, custo(arestas), i);
+        }
+
+        // A* da origem até o destino (ou Dijkstra pelo grafo todo com destino -1 e sem estimativa),
+        // pulando o que tem o carimbo atual; como a estimativa pode errar por arredondamento,
+        // um vértice já fechado volta pra fila se aparecer um caminho melhor até ele
+        private boolean buscar(Consulta consulta, int origem, int destino, double[] estimativa) {
+            limpar();
+            tocar(origem);
+            distancia[origem] = 0;
+            prioridade[origem] = estimativa == null ? 0 : estimativa[origem];
+            fila.inserir(origem);
+
+            IntBuffer inicioSaida = grafo.inicioSaida;
+            IntBuffer inicioEntrada = grafo.inicioEntrada;
+            IntBuffer origens = grafo.origens;
+            IntBuffer destinos = grafo.destinos;
+            FloatBuffer pesos = grafo.pesos;
+            IntBuffer arestasEntrada = grafo.arestasEntrada;
+
+            long fechados = 0;
+            long examinadas = 0;
+            boolean achou = false;
+            while (!fila.vazio()) {
+                int u = fila.removerMinimo();
+                fechados++;
+                if (u == destino) {
+                    achou = true;
+                    break;
+                }
+                examinadas += inicioSaida.get(u + 1) - inicioSaida.get(u) + inicioEntrada.get(u + 1) - inicioEntrada.get(u);
+                double du = distancia[u];
+                for (int a = inicioSaida.get(u); a < inicioSaida.get(u + 1); a++) {
+                    relaxar(destinos.get(a), du + pesos.get(a), a, estimativa);
+                }
+                for (int p = inicioEntrada.get(u); p < inicioEntrada.get(u + 1); p++) {
+                    int a = arestasEntrada.get(p);
+                    relaxar(origens.get(a), du + pesos.get(a), a, estimativa);
+                }
+            }
+            consulta.fechados.add(fechados);
+            consulta.arestasExaminadas.add(examinadas);
+            consulta.insercoes.add(fila.getInsercoes());
+            consulta.diminuicoes.add(fila.getDiminuicoes());
+            return achou;
+        }
+
+        private void relaxar(int v, double nova, int aresta, double[] estimativa) {
+            if (nova >= distancia[v] || carimboAresta[aresta] == carimbo || carimboVertice[v] == carimbo) {
+                return;
+            }
+            // quem não chega no destino nem no grafo inteiro não chega com arestas a menos
+            if (estimativa != null && estimativa[v] == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            if (distancia[v] == Double.POSITIVE_INFINITY) {
+                tocar(v);
+            }
+            distancia[v] = nova;
+            anterior[v] = aresta;
+            prioridade[v] = estimativa == null ? nova : nova + estimativa[v];
+            if (fila.contem(v)) {
+                fila.diminuir(v);
+            } else {
+                fila.inserir(v);
+            }
+        }
+
+        private void novoCarimbo() {
+            if (++carimbo == 0) {
+                Arrays.fill(carimboVertice, 0);
+                Arrays.fill(carimboAresta, 0);
+                carimbo = 1;
+            }
+        }
+
+        private void tocar(int v) {
+            tocados[totalTocados++] = v;
+        }
+
+        private void limpar() {
+            for (int i = 0; i < totalTocados; i++) {
+                int v = tocados[i];
+                distancia[v] = Double.POSITIVE_INFINITY;
+                anterior[v] = -1;
+            }
+            totalTocados = 0;
+            fila.limpar();
+        }
+    }
+}
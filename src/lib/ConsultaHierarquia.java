@@ -0,0 +1,238 @@
+package lib;
+
+import java.util.Arrays;
+
+// consultas de caminho mínimo sobre a hierarquia de contração
+// roda um Dijkstra da origem e outro do destino, os dois só subindo de nível (ou andando dentro
+// do núcleo), e o caminho mínimo passa pelo vértice onde a soma das duas distâncias é a menor;
+// cada lado para quando o topo da fila já não melhora essa soma
+// como o BuscaCaminhoMinimo, os vetores são criados uma vez só e cada consulta limpa só o que tocou
+// não é thread-safe: cada thread deve usar a sua própria consulta
+public class ConsultaHierarquia<T> {
+
+    private final HierarquiaContracao<T> hierarquia;
+    private final GrafoCompacto<T> grafo;
+    private final double[] distanciaIda;
+    private final double[] distanciaVolta;
+    // aresta da hierarquia usada pra chegar em cada vértice, ou -1
+    private final int[] anteriorIda;
+    private final int[] anteriorVolta;
+    private final HeapIndexado filaIda;
+    private final HeapIndexado filaVolta;
+    private final int[] tocados;
+    private int totalTocados;
+    private int fechados;
+    private long arestasExaminadas;
+
+    public ConsultaHierarquia(HierarquiaContracao<T> hierarquia) {
+        int n = hierarquia.getGrafo().getNumeroVertices();
+        this.hierarquia = hierarquia;
+        this.grafo = hierarquia.getGrafo();
+        this.distanciaIda = new double[n];
+        this.distanciaVolta = new double[n];
+        this.anteriorIda = new int[n];
+        this.anteriorVolta = new int[n];
+        Arrays.fill(this.distanciaIda, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.distanciaVolta, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.anteriorIda, -1);
+        Arrays.fill(this.anteriorVolta, -1);
+        this.filaIda = new HeapIndexado(this.distanciaIda);
+        this.filaVolta = new HeapIndexado(this.distanciaVolta);
+        this.tocados = new int[n];
+    }
+
+    public HierarquiaContracao<T> getHierarquia() {
+        return hierarquia;
+    }
+
+    // caminho mínimo entre dois valores, ou null se algum não existir ou não houver caminho
+    public Caminho<T> caminho(T origem, T destino) {
+        int o = grafo.indiceDe(origem);
+        int d = grafo.indiceDe(destino);
+        if (o < 0 || d < 0) {
+            return null;
+        }
+        return caminho(o, d);
+    }
+
+    // caminho mínimo com os atalhos já desmontados nos vértices do grafo original
+    public Caminho<T> caminho(int origem, int destino) {
+        long inicio = Metricas.inicio();
+        int encontro = executar(origem, destino);
+        registrar(inicio);
+        if (encontro < 0) {
+            return null;
+        }
+        ListaInteiros vertices = new ListaInteiros();
+        vertices.adicionar(encontro);
+        // do encontro descendo até a origem (sai invertido) e depois do encontro até o destino
+        for (int v = encontro; anteriorIda[v] >= 0; ) {
+            int aresta = anteriorIda[v];
+            v = outraPonta(aresta, v);
+            desmontar(aresta, vertices);
+        }
+        vertices.inverter();
+        for (int v = encontro; anteriorVolta[v] >= 0; ) {
+            int aresta = anteriorVolta[v];
+            v = outraPonta(aresta, v);
+            desmontar(aresta, vertices);
+        }
+        return new Caminho<>(grafo, vertices.paraVetor(), (float) (distanciaIda[encontro] + distanciaVolta[encontro]));
+    }
+
+    // só a distância (Float.POSITIVE_INFINITY se não houver caminho)
+    public float distancia(int origem, int destino) {
+        long inicio = Metricas.inicio();
+        int encontro = executar(origem, destino);
+        registrar(inicio);
+        return encontro < 0 ? Float.POSITIVE_INFINITY : (float) (distanciaIda[encontro] + distanciaVolta[encontro]);
+    }
+
+    // quantos vértices a última consulta fechou, somando os dois lados
+    public int getVerticesFechados() {
+        return fechados;
+    }
+
+    // devolve o vértice de encontro do caminho mínimo, ou -1 se não houver caminho
+    private int executar(int origem, int destino) {
+        limpar();
+        tocar(origem);
+        distanciaIda[origem] = 0;
+        filaIda.inserir(origem);
+        if (distanciaVolta[destino] == Double.POSITIVE_INFINITY && distanciaIda[destino] == Double.POSITIVE_INFINITY) {
+            tocar(destino);
+        }
+        distanciaVolta[destino] = 0;
+        filaVolta.inserir(destino);
+
+        double melhor = origem == destino ? 0 : Double.POSITIVE_INFINITY;
+        int encontro = origem == destino ? origem : -1;
+        boolean ida = true;
+        while (true) {
+            boolean podeIda = !filaIda.vazio() && distanciaIda[filaIda.minimo()] < melhor;
+            boolean podeVolta = !filaVolta.vazio() && distanciaVolta[filaVolta.minimo()] < melhor;
+            if (!podeIda && !podeVolta) {
+                return encontro;
+            }
+            // alterna os lados enquanto os dois ainda podem melhorar
+            ida = podeIda && (!podeVolta || !ida);
+            double[] distancia = ida ? distanciaIda : distanciaVolta;
+            double[] outra = ida ? distanciaVolta : distanciaIda;
+            int[] anterior = ida ? anteriorIda : anteriorVolta;
+            HeapIndexado fila = ida ? filaIda : filaVolta;
+
+            int u = fila.removerMinimo();
+            fechados++;
+            arestasExaminadas += hierarquia.inicio.get(u + 1) - hierarquia.inicio.get(u);
+            double du = distancia[u];
+            if (du + outra[u] < melhor) {
+                melhor = du + outra[u];
+                encontro = u;
+            }
+            for (int a = hierarquia.inicio.get(u); a < hierarquia.inicio.get(u + 1); a++) {
+                int v = hierarquia.destinos.get(a);
+                double nova = du + hierarquia.pesos.get(a);
+                if (nova >= distancia[v]) {
+                    continue;
+                }
+                if (distanciaIda[v] == Double.POSITIVE_INFINITY && distanciaVolta[v] == Double.POSITIVE_INFINITY) {
+                    tocar(v);
+                }
+                distancia[v] = nova;
+                anterior[v] = a;
+                if (fila.contem(v)) {
+                    fila.diminuir(v);
+                } else {
+                    fila.inserir(v);
+                }
+            }
+        }
+    }
+
+    // manda os números da última consulta pras Metricas, se elas estiverem ligadas
+    private void registrar(long inicio) {
+        if (inicio != Metricas.DESLIGADO) {
+            Metricas.registrarBusca("hierarquia", inicio, fechados, arestasExaminadas,
+                    filaIda.getInsercoes() + filaVolta.getInsercoes(), filaIda.getDiminuicoes() + filaVolta.getDiminuicoes());
+        }
+    }
+
+    // troca a aresta da hierarquia pelos vértices do grafo original, acrescentando na lista
+    // os vértices depois da ponta que já está no fim dela (sem recursão)
+    private void desmontar(int aresta, ListaInteiros vertices) {
+        int de = vertices.ultimo();
+        int[] pilha = new int[8];
+        int topo = 0;
+        pilha[topo++] = aresta;
+        while (topo > 0) {
+            int a = pilha[--topo];
+            int para = outraPonta(a, de);
+            int meio = hierarquia.meios.get(a);
+            if (meio < 0) {
+                vertices.adicionar(para);
+                de = para;
+                continue;
+            }
+            // de -> meio -> para: empilha a segunda metade primeiro
+            if (topo + 2 > pilha.length) {
+                pilha = Arrays.copyOf(pilha, pilha.length * 2);
+            }
+            pilha[topo++] = hierarquia.arestaEntre(meio, para);
+            pilha[topo++] = hierarquia.arestaEntre(meio, de);
+        }
+    }
+
+    private int outraPonta(int aresta, int vertice) {
+        int dono = hierarquia.donos.get(aresta);
+        return dono == vertice ? hierarquia.destinos.get(aresta) : dono;
+    }
+
+    private void tocar(int v) {
+        tocados[totalTocados++] = v;
+    }
+
+    private void limpar() {
+        for (int i = 0; i < totalTocados; i++) {
+            int v = tocados[i];
+            distanciaIda[v] = Double.POSITIVE_INFINITY;
+            distanciaVolta[v] = Double.POSITIVE_INFINITY;
+            anteriorIda[v] = -1;
+            anteriorVolta[v] = -1;
+        }
+        totalTocados = 0;
+        filaIda.limpar();
+        filaVolta.limpar();
+        fechados = 0;
+        arestasExaminadas = 0;
+    }
+
+    // lista de int que cresce sozinha, pra montar o caminho desmontado
+    private static final class ListaInteiros {
+
+        private int[] valores = new int[16];
+        private int tamanho;
+
+        void adicionar(int valor) {
+            if (tamanho == valores.length) {
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            }
+            valores[tamanho++] = valor;
+        }
+
+        int ultimo() {
+            return valores[tamanho - 1];
+        }
+
+        void inverter() {
+            for (int i = 0, j = tamanho - 1; i < j; i++, j--) {
+                int troca = valores[i];
+                valores[i] = valores[j];
+                valores[j] = troca;
+            }
+        }
+
+        int[] paraVetor() {
+            return Arrays.copyOf(valores, tamanho);
+        }
+    }
+}
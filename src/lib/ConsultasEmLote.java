@@ -0,0 +1,297 @@
+package lib;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// responde um lote de consultas ao mesmo tempo sobre um grafo compacto (que nunca muda depois de
+// criado, então pode ser lido por várias threads sem trava)
+// cada consulta do lote vira uma tarefa numa thread virtual (Java 21 em diante; antes disso num pool
+// fixo com uma thread por núcleo) e as respostas voltam na mesma ordem dos pedidos
+// os motores de busca não são thread-safe, então ficam numa fila: cada tarefa pega um motor livre,
+// usa e devolve, e no máximo um motor por tarefa rodando ao mesmo tempo é criado; assim as buscas
+// não disputam nada nem alocam além do resultado
+// a árvore geradora mínima só é calculada (uma vez) se algum pedido precisar dela, e os caminhos nela
+// saem direto da ArvoreConsultas, que não muda e é dividida por todas as tarefas; o Grafo passa a
+// árvore que ele já guarda, em vez de calcular outra
+public class ConsultasEmLote<T> {
+
+    // quantos pedidos seguidos cada tarefa responde, pra não pegar e devolver um motor por consulta
+    private static final int PEDIDOS_POR_TAREFA = 16;
+
+    private static volatile ExecutorService executor;
+
+    private final GrafoCompacto<T> grafo;
+    private final HierarquiaContracao<T> hierarquia;
+    private final ConcurrentLinkedQueue<Motores<T>> livres = new ConcurrentLinkedQueue<>();
+    // de onde vem a árvore geradora mínima (null = calcula aqui)
+    private final Supplier<ArvoreConsultas<T>> fornecedorArvore;
+    private volatile ArvoreConsultas<T> arvore;
+
+    public ConsultasEmLote(GrafoCompacto<T> grafo) {
+        this(grafo, null);
+    }
+
+    // com a hierarquia de contração do grafo, os caminhos mínimos são respondidos por ela
+    public ConsultasEmLote(GrafoCompacto<T> grafo, HierarquiaContracao<T> hierarquia) {
+        this(grafo, hierarquia, null);
+    }
+
+    // com a árvore geradora mínima já calculada (por exemplo a lida do ArquivoBinario), que não é
+    // calculada de novo; agm e hierarquia podem ser null
+    public ConsultasEmLote(GrafoCompacto<T> grafo, GrafoCompacto<T> agm, HierarquiaContracao<T> hierarquia) {
+        this(grafo, hierarquia, agm == null ? null : () -> new ArvoreConsultas<>(agm));
+        if (agm != null && agm.getNumeroVertices() != grafo.getNumeroVertices()) {
+            throw new IllegalArgumentException("A árvore geradora mínima não tem os mesmos vértices do grafo");
+        }
+    }
+
+    // fornecedorArvore dá as consultas na árvore geradora mínima deste grafo, quando precisar delas
+    ConsultasEmLote(GrafoCompacto<T> grafo, HierarquiaContracao<T> hierarquia, Supplier<ArvoreConsultas<T>> fornecedorArvore) {
+        if (hierarquia != null && hierarquia.getGrafo() != grafo) {
+            throw new IllegalArgumentException("A hierarquia de contração não é deste grafo");
+        }
+        this.grafo = grafo;
+        this.hierarquia = hierarquia;
+        this.fornecedorArvore = fornecedorArvore;
+    }
+
+    public GrafoCompacto<T> getGrafo() {
+        return grafo;
+    }
+
+    HierarquiaContracao<T> getHierarquia() {
+        return hierarquia;
+    }
+
+    // árvore geradora mínima do grafo, calculada na primeira vez que for pedida
+    public GrafoCompacto<T> getArvoreGeradoraMinima() {
+        return consultasArvore().getArvore();
+    }
+
+    private ArvoreConsultas<T> consultasArvore() {
+        ArvoreConsultas<T> atual = arvore;
+        if (atual == null) {
+            synchronized (this) {
+                atual = arvore;
+                if (atual == null) {
+                    atual = fornecedorArvore != null
+                            ? fornecedorArvore.get()
+                            : new ArvoreConsultas<>(grafo.arvoreGeradoraMinimaParalela());
+                    arvore = atual;
+                }
+            }
+        }
+        return atual;
+    }
+
+    // caminho mínimo de cada origem até o destino da mesma posição (null onde não houver caminho)
+    public List<Caminho<T>> caminhos(List<T> origens, List<T> destinos) {
+        if (origens.size() != destinos.size()) {
+            throw new IllegalArgumentException("As listas de origens e destinos têm tamanhos diferentes");
+        }
+        List<Pedido<T>> pedidos = new ArrayList<>(origens.size());
+        for (int i = 0; i < origens.size(); i++) {
+            pedidos.add(Pedido.caminho(origens.get(i), destinos.get(i)));
+        }
+        List<Caminho<T>> caminhos = new ArrayList<>(pedidos.size());
+        for (Resposta<T> resposta : executar(pedidos)) {
+            caminhos.add(resposta.getCaminho());
+        }
+        return caminhos;
+    }
+
+    // responde todos os pedidos em paralelo e devolve as respostas na ordem dos pedidos
+    public List<Resposta<T>> executar(List<Pedido<T>> pedidos) {
+        @SuppressWarnings("unchecked")
+        Resposta<T>[] respostas = (Resposta<T>[]) new Resposta<?>[pedidos.size()];
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int inicio = 0; inicio < respostas.length; inicio += PEDIDOS_POR_TAREFA) {
+            int primeiro = inicio;
+            int fim = Math.min(inicio + PEDIDOS_POR_TAREFA, respostas.length);
+            tarefas.add(executor().submit(() -> responder(pedidos, respostas, primeiro, fim)));
+        }
+        try {
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelar(tarefas);
+            throw new CancellationException("Lote de consultas interrompido");
+        } catch (ExecutionException e) {
+            cancelar(tarefas);
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            if (causa instanceof Error) {
+                throw (Error) causa;
+            }
+            throw new IllegalStateException(causa);
+        }
+        return Arrays.asList(respostas);
+    }
+
+    // responde um pedido só, na thread de quem chamou (com um motor livre da fila, como as tarefas)
+    public Resposta<T> responder(Pedido<T> pedido) {
+        Motores<T> motores = livres.poll();
+        if (motores == null) {
+            motores = new Motores<>();
+        }
+        try {
+            return responder(pedido, motores);
+        } finally {
+            livres.offer(motores);
+        }
+    }
+
+    private void responder(List<Pedido<T>> pedidos, Resposta<T>[] respostas, int inicio, int fim) {
+        Motores<T> motores = livres.poll();
+        if (motores == null) {
+            motores = new Motores<>();
+        }
+        try {
+            for (int i = inicio; i < fim; i++) {
+                respostas[i] = responder(pedidos.get(i), motores);
+            }
+        } finally {
+            livres.offer(motores);
+        }
+    }
+
+    private Resposta<T> responder(Pedido<T> pedido, Motores<T> motores) {
+        switch (pedido.tipo) {
+            case CAMINHO:
+                if (hierarquia != null) {
+                    if (motores.hierarquia == null) {
+                        motores.hierarquia = new ConsultaHierarquia<>(hierarquia);
+                    }
+                    return new Resposta<>(pedido, motores.hierarquia.caminho(pedido.origem, pedido.destino), null);
+                }
+                if (motores.busca == null) {
+                    motores.busca = new BuscaCaminhoMinimo<>(grafo);
+                }
+                return new Resposta<>(pedido, motores.busca.caminho(pedido.origem, pedido.destino), null);
+            case CAMINHO_AGM:
+                return new Resposta<>(pedido, consultasArvore().caminho(pedido.origem, pedido.destino), null);
+            default:
+                return new Resposta<>(pedido, null, getArvoreGeradoraMinima());
+        }
+    }
+
+    private static void cancelar(List<Future<?>> tarefas) {
+        for (Future<?> tarefa : tarefas) {
+            tarefa.cancel(false);
+        }
+    }
+
+    // executor compartilhado por todos os lotes: threads virtuais se a JVM tiver, senão um pool fixo
+    // (procurado por reflexão pra biblioteca continuar compilando e rodando no Java 17)
+    private static ExecutorService executor() {
+        ExecutorService atual = executor;
+        if (atual == null) {
+            synchronized (ConsultasEmLote.class) {
+                atual = executor;
+                if (atual == null) {
+                    atual = criarExecutor();
+                    executor = atual;
+                }
+            }
+        }
+        return atual;
+    }
+
+    private static ExecutorService criarExecutor() {
+        try {
+            Method virtuais = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtuais.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Java sem threads virtuais
+        }
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), tarefa -> {
+            Thread thread = new Thread(tarefa, "consultas-em-lote");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // motores de busca de uma tarefa; cada um só é criado quando um pedido precisa dele
+    private static final class Motores<T> {
+        BuscaCaminhoMinimo<T> busca;
+        ConsultaHierarquia<T> hierarquia;
+    }
+
+    // um pedido do lote: caminho mínimo no grafo, caminho mínimo só pelas arestas da árvore geradora
+    // mínima, ou a própria árvore geradora mínima
+    public static final class Pedido<T> {
+
+        public enum Tipo {
+            CAMINHO,
+            CAMINHO_AGM,
+            AGM
+        }
+
+        private final Tipo tipo;
+        private final T origem;
+        private final T destino;
+
+        private Pedido(Tipo tipo, T origem, T destino) {
+            this.tipo = tipo;
+            this.origem = origem;
+            this.destino = destino;
+        }
+
+        public static <T> Pedido<T> caminho(T origem, T destino) {
+            return new Pedido<>(Tipo.CAMINHO, origem, destino);
+        }
+
+        public static <T> Pedido<T> caminhoAgm(T origem, T destino) {
+            return new Pedido<>(Tipo.CAMINHO_AGM, origem, destino);
+        }
+
+        public static <T> Pedido<T> agm() {
+            return new Pedido<>(Tipo.AGM, null, null);
+        }
+
+        public Tipo getTipo() {
+            return tipo;
+        }
+
+        public T getOrigem() {
+            return origem;
+        }
+
+        public T getDestino() {
+            return destino;
+        }
+    }
+
+    // resposta de um pedido: o caminho (null se não houver caminho ou algum vértice não existir)
+    // ou, nos pedidos AGM, a árvore geradora mínima
+    public static final class Resposta<T> {
+
+        private final Pedido<T> pedido;
+        private final Caminho<T> caminho;
+        private final GrafoCompacto<T> agm;
+
+        private Resposta(Pedido<T> pedido, Caminho<T> caminho, GrafoCompacto<T> agm) {
+            this.pedido = pedido;
+            this.caminho = caminho;
+            this.agm = agm;
+        }
+
+        public Pedido<T> getPedido() {
+            return pedido;
+        }
+
+        public Caminho<T> getCaminho() {
+            return caminho;
+        }
+
+        public GrafoCompacto<T> getArvoreGeradoraMinima() {
+            return agm;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package lib;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// construção da hierarquia de contração, com as buscas de testemunha rodando em paralelo
+// os vértices são contraídos em rodadas: entram na rodada os vértices com prioridade menor que a de
+// todos os vizinhos ainda não contraídos, então dois vértices da mesma rodada nunca são vizinhos
+// contrair um vértice v é tirar ele do grafo e, pra cada par de vizinhos u e w, criar o atalho u - w
+// (passando por v) se não houver outro caminho entre eles tão curto quanto u - v - w (a testemunha)
+// as buscas de testemunha não passam pelos vértices da rodada, então o resultado não depende de qual
+// thread termina primeiro
+// a prioridade de um vértice é quantos atalhos a contração dele criaria, menos as arestas que somem,
+// mais quantos vizinhos dele já foram contraídos (pra contração ir se espalhando pelo grafo)
+// quando o que sobra do grafo fica denso demais (grau médio acima de LIMITE_GRAU_NUCLEO), contrair
+// mais só criaria atalhos entre quase todos os pares; esses vértices viram o núcleo, que fica sem
+// contrair, com todas as ligações entre eles, e a consulta faz um Dijkstra comum dentro dele
+final class ContracaoParalela {
+
+    // quantos vértices cada tarefa processa direto, sem dividir mais (cada um custa várias buscas)
+    private static final int LIMITE_DIVISAO = 64;
+    // máximo de vértices fechados por busca de testemunha; se não achar testemunha até aí, cria o atalho
+    // (atalho a mais não deixa a resposta errada, só a consulta um pouco mais lenta)
+    private static final int LIMITE_TESTEMUNHA = 200;
+    // na simulação que calcula a prioridade basta uma busca mais curta, ela só decide a ordem
+    private static final int LIMITE_SIMULACAO = 32;
+    private static final int LIMITE_GRAU_NUCLEO = 16;
+
+    private final int n;
+    // grafo de trabalho, sem sentido nas arestas: vizinhos ainda não contraídos de cada vértice,
+    // o peso da aresta e o vértice do meio se ela for atalho (-1 se for aresta do grafo original)
+    // quando um vértice é contraído, a lista dele congela e vira a lista de arestas pra cima dele
+    private final int[][] vizinhos;
+    private final double[][] pesos;
+    private final int[][] meios;
+    private final int[] grau;
+    private final boolean[] contraido;
+    private final boolean[] naRodada;
+    private final int[] vizinhosContraidos;
+    private final int[] prioridade;
+    // buffers de busca de testemunha livres: cada tarefa pega um (ou cria) e devolve no fim; a fila é
+    // desta construção, então nada fica preso nas threads do pool quando ela termina
+    private final Queue<Testemunha> testemunhas = new ConcurrentLinkedQueue<>();
+    // nível a partir do qual os vértices são do núcleo (n se o grafo foi contraído inteiro)
+    private int inicioNucleo;
+
+    private ContracaoParalela(GrafoCompacto<?> grafo) {
+        this.n = grafo.getNumeroVertices();
+        this.vizinhos = new int[n][];
+        this.pesos = new double[n][];
+        this.meios = new int[n][];
+        this.grau = new int[n];
+        this.contraido = new boolean[n];
+        this.naRodada = new boolean[n];
+        this.vizinhosContraidos = new int[n];
+        this.prioridade = new int[n];
+        montarVizinhos(grafo);
+    }
+
+    static <T> HierarquiaContracao<T> calcular(GrafoCompacto<T> grafo, ForkJoinPool pool) {
+        ContracaoParalela contracao = new ContracaoParalela(grafo);
+        int[] nivel = contracao.contrair(pool);
+
+        // as listas congeladas de cada vértice viram o CSR das arestas pra cima
+        int n = contracao.n;
+        int[] inicio = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            inicio[v + 1] = inicio[v] + contracao.grau[v];
+        }
+        int[] destinos = new int[inicio[n]];
+        double[] pesos = new double[inicio[n]];
+        int[] meios = new int[inicio[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(contracao.vizinhos[v], 0, destinos, inicio[v], contracao.grau[v]);
+            System.arraycopy(contracao.pesos[v], 0, pesos, inicio[v], contracao.grau[v]);
+            System.arraycopy(contracao.meios[v], 0, meios, inicio[v], contracao.grau[v]);
+        }
+        return new HierarquiaContracao<>(grafo, nivel, contracao.inicioNucleo, inicio, destinos, pesos, meios);
+    }
+
+    // monta as listas de vizinhos sem sentido, com uma aresta só (a mais leve) por par de vértices
+    private void montarVizinhos(GrafoCompacto<?> grafo) {
+        int m = grafo.getNumeroArestas();
+        int[] contagem = new int[n];
+        for (int a = 0; a < m; a++) {
+            if (grafo.origens.get(a) != grafo.destinos.get(a)) {
+                contagem[grafo.origens.get(a)]++;
+                contagem[grafo.destinos.get(a)]++;
+            }
+        }
+        long[][] pares = new long[n][];
+        for (int v = 0; v < n; v++) {
+            pares[v] = new long[contagem[v]];
+            contagem[v] = 0;
+        }
+        // vizinho na parte alta e id da aresta na parte baixa, pra ordenar pelo vizinho
+        for (int a = 0; a < m; a++) {
+            int u = grafo.origens.get(a);
+            int w = grafo.destinos.get(a);
+            if (u != w) {
+                pares[u][contagem[u]++] = ((long) w << 32) | a;
+                pares[w][contagem[w]++] = ((long) u << 32) | a;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            long[] lista = pares[v];
+            Arrays.sort(lista);
+            vizinhos[v] = new int[lista.length];
+            pesos[v] = new double[lista.length];
+            meios[v] = new int[lista.length];
+            int total = 0;
+            for (long par : lista) {
+                int w = (int) (par >>> 32);
+                float peso = grafo.pesos.get((int) par);
+                if (total > 0 && vizinhos[v][total - 1] == w) {
+                    pesos[v][total - 1] = Math.min(pesos[v][total - 1], peso);
+                } else {
+                    vizinhos[v][total] = w;
+                    pesos[v][total] = peso;
+                    meios[v][total] = -1;
+                    total++;
+                }
+            }
+            grau[v] = total;
+            pares[v] = null;
+        }
+    }
+
+    // contrai todos os vértices e devolve o nível (ordem de contração) de cada um
+    private int[] contrair(ForkJoinPool pool) {
+        int[] nivel = new int[n];
+        int[] restantes = new int[n];
+        for (int v = 0; v < n; v++) {
+            restantes[v] = v;
+        }
+        int totalRestantes = n;
+        pool.invoke(new Tarefa(this, restantes, null, 0, n));
+
+        int[] rodada = new int[n];
+        Atalhos[] atalhos = new Atalhos[n];
+        int[] afetados = new int[n];
+        boolean[] marcado = new boolean[n];
+        int proximoNivel = 0;
+        while (totalRestantes > 0) {
+            long somaGraus = 0;
+            for (int i = 0; i < totalRestantes; i++) {
+                somaGraus += grau[restantes[i]];
+            }
+            if (somaGraus > (long) LIMITE_GRAU_NUCLEO * totalRestantes) {
+                break;
+            }
+            int totalRodada = 0;
+            for (int i = 0; i < totalRestantes; i++) {
+                int v = restantes[i];
+                if (minimoLocal(v)) {
+                    rodada[totalRodada++] = v;
+                    naRodada[v] = true;
+                }
+            }
+
+            pool.invoke(new Tarefa(this, rodada, atalhos, 0, totalRodada));
+
+            int totalAfetados = 0;
+            for (int i = 0; i < totalRodada; i++) {
+                int v = rodada[i];
+                contraido[v] = true;
+                nivel[v] = proximoNivel++;
+                for (int j = 0; j < grau[v]; j++) {
+                    int u = vizinhos[v][j];
+                    remover(u, v);
+                    vizinhosContraidos[u]++;
+                    if (!marcado[u]) {
+                        marcado[u] = true;
+                        afetados[totalAfetados++] = u;
+                    }
+                }
+            }
+            for (int i = 0; i < totalRodada; i++) {
+                int v = rodada[i];
+                Atalhos novos = atalhos[i];
+                for (int j = 0; j < novos.tamanho; j++) {
+                    ligar(novos.u[j], novos.w[j], novos.peso[j], v);
+                }
+                atalhos[i] = null;
+                naRodada[v] = false;
+            }
+
+            // só a prioridade dos vizinhos dos contraídos muda
+            for (int i = 0; i < totalAfetados; i++) {
+                marcado[afetados[i]] = false;
+            }
+            pool.invoke(new Tarefa(this, afetados, null, 0, totalAfetados));
+
+            int mantidos = 0;
+            for (int i = 0; i < totalRestantes; i++) {
+                if (!contraido[restantes[i]]) {
+                    restantes[mantidos++] = restantes[i];
+                }
+            }
+            totalRestantes = mantidos;
+        }
+        inicioNucleo = proximoNivel;
+        for (int i = 0; i < totalRestantes; i++) {
+            nivel[restantes[i]] = proximoNivel++;
+        }
+        testemunhas.clear();
+        return nivel;
+    }
+
+    // v entra na rodada se tiver a menor prioridade entre os vizinhos (empate desfeito pelo id embaralhado)
+    private boolean minimoLocal(int v) {
+        long chave = chavePrioridade(v);
+        for (int j = 0; j < grau[v]; j++) {
+            if (chavePrioridade(vizinhos[v][j]) < chave) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long chavePrioridade(int v) {
+        // embaralha o id pra desempate não seguir a numeração (em grades ele andaria em fila)
+        // multiplicar por um número ímpar não repete valores, então duas chaves nunca empatam
+        int embaralhado = v * 0x9E3779B9;
+        return ((long) prioridade[v] << 32) | (embaralhado & 0xFFFFFFFFL);
+    }
+
+    // tira o vértice v da lista de u, trocando pelo último
+    private void remover(int u, int v) {
+        for (int j = 0; j < grau[u]; j++) {
+            if (vizinhos[u][j] == v) {
+                int ultimo = --grau[u];
+                vizinhos[u][j] = vizinhos[u][ultimo];
+                pesos[u][j] = pesos[u][ultimo];
+                meios[u][j] = meios[u][ultimo];
+                return;
+            }
+        }
+    }
+
+    // liga u e w com o atalho (ou diminui o peso da ligação que já existe)
+    private void ligar(int u, int w, double peso, int meio) {
+        incluir(u, w, peso, meio);
+        incluir(w, u, peso, meio);
+    }
+
+    private void incluir(int u, int w, double peso, int meio) {
+        for (int j = 0; j < grau[u]; j++) {
+            if (vizinhos[u][j] == w) {
+                if (peso < pesos[u][j]) {
+                    pesos[u][j] = peso;
+                    meios[u][j] = meio;
+                }
+                return;
+            }
+        }
+        if (grau[u] == vizinhos[u].length) {
+            int tamanho = Math.max(4, grau[u] * 2);
+            vizinhos[u] = Arrays.copyOf(vizinhos[u], tamanho);
+            pesos[u] = Arrays.copyOf(pesos[u], tamanho);
+            meios[u] = Arrays.copyOf(meios[u], tamanho);
+        }
+        vizinhos[u][grau[u]] = w;
+        pesos[u][grau[u]] = peso;
+        meios[u][grau[u]] = meio;
+        grau[u]++;
+    }
+
+    // roda as buscas de testemunha da contração de v e devolve quantos atalhos seriam criados
+    // se saida não for null, os atalhos são guardados nela
+    private int atalhos(int v, Testemunha testemunha, Atalhos saida, int limiteFechados) {
+        int total = 0;
+        int[] lista = vizinhos[v];
+        double[] peso = pesos[v];
+        for (int i = 0; i < grau[v]; i++) {
+            // o maior caminho u - v - w que a busca de testemunha precisa bater
+            double limite = 0;
+            for (int j = i + 1; j < grau[v]; j++) {
+                limite = Math.max(limite, peso[i] + peso[j]);
+            }
+            if (i + 1 == grau[v]) {
+                break;
+            }
+            testemunha.buscar(this, lista[i], v, limite, limiteFechados, lista, i + 1, grau[v]);
+            for (int j = i + 1; j < grau[v]; j++) {
+                double via = peso[i] + peso[j];
+                if (testemunha.distancia[lista[j]] > via) {
+                    total++;
+                    if (saida != null) {
+                        saida.adicionar(lista[i], lista[j], via);
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    // Dijkstra limitado no grafo de trabalho, que não passa pelo vértice sendo contraído
+    // nem pelos outros vértices da rodada; para quando fechar todos os alvos, quando passar
+    // do limite de distância ou quando fechar limiteFechados vértices
+    private static final class Testemunha {
+
+        final double[] distancia;
+        private final HeapIndexado fila;
+        private final int[] tocados;
+        private int totalTocados;
+        // os alvos da busca atual são os vértices com alvo[v] == rodadaAlvo
+        private final int[] alvo;
+        private int rodadaAlvo;
+
+        Testemunha(int n) {
+            this.distancia = new double[n];
+            this.tocados = new int[n];
+            this.alvo = new int[n];
+            Arrays.fill(this.distancia, Double.POSITIVE_INFINITY);
+            this.fila = new HeapIndexado(this.distancia);
+        }
+
+        // os alvos são alvos[inicioAlvos] até alvos[fimAlvos - 1]
+        void buscar(ContracaoParalela contracao, int origem, int ignorado, double limite, int limiteFechados,
+                    int[] alvos, int inicioAlvos, int fimAlvos) {
+            for (int i = 0; i < totalTocados; i++) {
+                distancia[tocados[i]] = Double.POSITIVE_INFINITY;
+            }
+            totalTocados = 0;
+            fila.limpar();
+            rodadaAlvo++;
+            for (int i = inicioAlvos; i < fimAlvos; i++) {
+                alvo[alvos[i]] = rodadaAlvo;
+            }
+            int faltam = fimAlvos - inicioAlvos;
+
+            tocados[totalTocados++] = origem;
+            distancia[origem] = 0;
+            fila.inserir(origem);
+            int fechados = 0;
+            while (!fila.vazio()) {
+                int u = fila.removerMinimo();
+                if (distancia[u] > limite || ++fechados > limiteFechados) {
+                    return;
+                }
+                if (alvo[u] == rodadaAlvo && --faltam == 0) {
+                    return;
+                }
+                int[] lista = contracao.vizinhos[u];
+                double[] peso = contracao.pesos[u];
+                for (int j = 0; j < contracao.grau[u]; j++) {
+                    int w = lista[j];
+                    double nova = distancia[u] + peso[j];
+                    if (w == ignorado || contracao.naRodada[w] || nova >= distancia[w]) {
+                        continue;
+                    }
+                    if (distancia[w] == Double.POSITIVE_INFINITY) {
+                        tocados[totalTocados++] = w;
+                    }
+                    distancia[w] = nova;
+                    if (fila.contem(w)) {
+                        fila.diminuir(w);
+                    } else {
+                        fila.inserir(w);
+                    }
+                }
+            }
+        }
+    }
+
+    // atalhos criados pela contração de um vértice
+    private static final class Atalhos {
+
+        int[] u = new int[4];
+        int[] w = new int[4];
+        double[] peso = new double[4];
+        int tamanho;
+
+        void adicionar(int origem, int destino, double valor) {
+            if (tamanho == u.length) {
+                u = Arrays.copyOf(u, tamanho * 2);
+                w = Arrays.copyOf(w, tamanho * 2);
+                peso = Arrays.copyOf(peso, tamanho * 2);
+            }
+            u[tamanho] = origem;
+            w[tamanho] = destino;
+            peso[tamanho] = valor;
+            tamanho++;
+        }
+    }
+
+    // processa um intervalo de vértices: sem vetor de atalhos recalcula a prioridade deles,
+    // com o vetor calcula os atalhos da contração de cada um
+    private static final class Tarefa extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ContracaoParalela contracao;
+        private final int[] vertices;
+        private final Atalhos[] atalhos;
+        private final int inicio;
+        private final int fim;
+
+        Tarefa(ContracaoParalela contracao, int[] vertices, Atalhos[] atalhos, int inicio, int fim) {
+            this.contracao = contracao;
+            this.vertices = vertices;
+            this.atalhos = atalhos;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > LIMITE_DIVISAO) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new Tarefa(contracao, vertices, atalhos, inicio, meio),
+                        new Tarefa(contracao, vertices, atalhos, meio, fim));
+                return;
+            }
+            Testemunha testemunha = contracao.testemunhas.poll();
+            if (testemunha == null) {
+                testemunha = new Testemunha(contracao.n);
+            }
+            try {
+                for (int i = inicio; i < fim; i++) {
+                    int v = vertices[i];
+                    if (atalhos == null) {
+                        int criados = contracao.atalhos(v, testemunha, null, LIMITE_SIMULACAO);
+                        contracao.prioridade[v] = criados - contracao.grau[v] + contracao.vizinhosContraidos[v];
+                    } else {
+                        atalhos[i] = new Atalhos();
+                        contracao.atalhos(v, testemunha, atalhos[i], LIMITE_TESTEMUNHA);
+                    }
+                }
+            } finally {
+                contracao.testemunhas.offer(testemunha);
+            }
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package lib;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// caminhos mínimos de uma origem até todos os vértices pelo delta-stepping (Meyer e Sanders), usando
+// todos os núcleos
+// os vértices ficam em baldes pela distância provisória, cada balde cobrindo uma faixa de largura delta;
+// o menor balde não vazio é esvaziado em fases: todos os vértices dele relaxam as arestas leves
+// (peso <= delta) em paralelo, o que pode trazer vértices de volta pro mesmo balde, e quando ele fica
+// vazio de vez as arestas pesadas de todos os que passaram por ele são relaxadas, também em paralelo
+// delta pequeno vira Dijkstra (muitos baldes com pouco trabalho cada), delta grande vira Bellman-Ford
+// (pouca fase, mas vértice relaxado várias vezes); o padrão é o maior peso dividido pelo grau médio
+// as distâncias ficam num AtomicLongArray com os bits do double (pra double >= 0 a ordem dos bits é a
+// mesma dos valores) e só diminuem, por compareAndSet; somadas em double igual às buscas, então o
+// resultado final é o mesmo do Dijkstra sequencial, só a ordem em que cada vértice chega nele muda
+// as arestas são tratadas como vias de mão dupla, igual ao Grafo.calcularCaminhoMinimo
+// com peso negativo o delta-stepping não vale, então roda o Dijkstra sequencial
+public final class DeltaStepping {
+
+    // abaixo desse número de vértices um pedaço da fase é relaxado direto, sem dividir mais
+    private static final int LIMITE_DIVISAO = 256;
+    // vértices melhorados que cada pedaço junta antes de reservar espaço na lista compartilhada
+    private static final int TAMANHO_BUFFER = 256;
+    // no máximo esse número de baldes (o delta é aumentado se precisar)
+    private static final int LIMITE_BALDES = 1 << 20;
+
+    private DeltaStepping() {
+    }
+
+    public static <T> ArvoreCaminhos<T> calcular(GrafoCompacto<T> grafo, T origem) {
+        int o = grafo.indiceDe(origem);
+        return o < 0 ? null : calcular(grafo, o, deltaPadrao(grafo), ForkJoinPool.commonPool());
+    }
+
+    public static <T> ArvoreCaminhos<T> calcular(GrafoCompacto<T> grafo, int origem, double delta) {
+        return calcular(grafo, origem, delta, ForkJoinPool.commonPool());
+    }
+
+    // delta <= 0 usa o deltaPadrao do grafo
+    public static <T> ArvoreCaminhos<T> calcular(GrafoCompacto<T> grafo, int origem, double delta, ForkJoinPool pool) {
+        float maiorPeso = 0;
+        for (int a = 0; a < grafo.getNumeroArestas(); a++) {
+            float peso = grafo.pesos.get(a);
+            if (peso < 0) {
+                return new BuscaCaminhoMinimo<>(grafo).arvore(origem);
+            }
+            maiorPeso = Math.max(maiorPeso, peso);
+        }
+        if (!(delta > 0)) {
+            delta = deltaPadrao(grafo);
+        }
+        delta = Math.max(delta, maiorPeso / (double) (LIMITE_BALDES - 3));
+        return new Execucao(grafo, delta, maiorPeso, pool).executar(origem);
+    }
+
+    // maior peso dividido pelo grau médio (contando as duas pontas, já que as arestas são de mão dupla)
+    public static double deltaPadrao(GrafoCompacto<?> grafo) {
+        int n = grafo.getNumeroVertices();
+        int m = grafo.getNumeroArestas();
+        float maiorPeso = 0;
+        for (int a = 0; a < m; a++) {
+            maiorPeso = Math.max(maiorPeso, grafo.pesos.get(a));
+        }
+        if (maiorPeso <= 0) {
+            return 1;
+        }
+        double grauMedio = n == 0 ? 1 : Math.max(1.0, 2.0 * m / n);
+        return maiorPeso / grauMedio;
+    }
+
+    // estado de uma execução; os vetores são do tamanho do grafo e ficam só durante a execução
+    private static final class Execucao {
+
+        private final GrafoCompacto<?> grafo;
+        private final double delta;
+        private final ForkJoinPool pool;
+        private final int n;
+        private final AtomicLongArray distancia;
+        // fase em que o vértice foi melhorado pela última vez, pra cada um entrar uma vez só na lista
+        private final AtomicIntegerArray melhoradoNaFase;
+        // vértices melhorados na fase atual, na ordem em que chegaram
+        private final int[] melhorados;
+        private final AtomicInteger totalMelhorados = new AtomicInteger();
+        private int fase;
+
+        // baldes circulares: o balde absoluto b fica na posição b % baldes.length, que basta porque
+        // todas as distâncias provisórias estão entre o balde atual e ele + maiorPeso / delta + 1
+        // (um balde a mais de folga pro arredondamento da divisão)
+        private final int[][] baldes;
+        private final int[] tamanhoBalde;
+        // marcas pra não repetir vértice na fronteira de uma fase nem no conjunto do balde
+        private final int[] naFronteira;
+        private final int[] noBalde;
+
+        private long relaxados;
+        private long arestas;
+        private long insercoes;
+
+        Execucao(GrafoCompacto<?> grafo, double delta, float maiorPeso, ForkJoinPool pool) {
+            this.grafo = grafo;
+            this.delta = delta;
+            this.pool = pool;
+            this.n = grafo.getNumeroVertices();
+            this.distancia = new AtomicLongArray(n);
+            this.melhoradoNaFase = new AtomicIntegerArray(n);
+            this.melhorados = new int[n];
+            int totalBaldes = (int) Math.min(LIMITE_BALDES, (long) Math.floor(maiorPeso / delta) + 3);
+            this.baldes = new int[totalBaldes][];
+            this.tamanhoBalde = new int[totalBaldes];
+            this.naFronteira = new int[n];
+            this.noBalde = new int[n];
+            long infinito = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+            for (int v = 0; v < n; v++) {
+                distancia.set(v, infinito);
+            }
+        }
+
+        <T> ArvoreCaminhos<T> executar(int origem) {
+            long inicio = Metricas.inicio();
+            distancia.set(origem, Double.doubleToRawLongBits(0));
+            adicionar(origem, 0);
+
+            int[] fronteira = new int[Math.max(n, 1)];
+            int[] doBalde = new int[Math.max(n, 1)];
+            long atual = 0;
+            int marca = 0;
+            while (true) {
+                // próximo balde não vazio; depois de uma volta inteira sem achar, acabou
+                int vazios = 0;
+                while (tamanhoBalde[posicao(atual)] == 0 && vazios < baldes.length) {
+                    atual++;
+                    vazios++;
+                }
+                if (vazios == baldes.length) {
+                    break;
+                }
+
+                marca++;
+                int totalDoBalde = 0;
+                while (tamanhoBalde[posicao(atual)] > 0) {
+                    // a fronteira são os vértices do balde que ainda pertencem a ele (os que melhoraram
+                    // pra um balde anterior já foram tratados lá), sem repetir
+                    int p = posicao(atual);
+                    int[] conteudo = baldes[p];
+                    int total = tamanhoBalde[p];
+                    tamanhoBalde[p] = 0;
+                    int tamanhoFronteira = 0;
+                    fase++;
+                    for (int i = 0; i < total; i++) {
+                        int v = conteudo[i];
+                        if (naFronteira[v] != fase && balde(distancia(v)) == atual) {
+                            naFronteira[v] = fase;
+                            fronteira[tamanhoFronteira++] = v;
+                            if (noBalde[v] != marca) {
+                                noBalde[v] = marca;
+                                doBalde[totalDoBalde++] = v;
+                            }
+                        }
+                    }
+                    relaxar(fronteira, tamanhoFronteira, true);
+                }
+                // o balde ficou vazio de vez: as distâncias dele são finais, agora as arestas pesadas
+                fase++;
+                relaxar(doBalde, totalDoBalde, false);
+                atual++;
+            }
+
+            ArvoreCaminhos<T> arvore = montarArvore(origem);
+            Metricas.registrarBusca("delta-stepping", inicio, (int) Math.min(relaxados, Integer.MAX_VALUE), arestas, insercoes, 0);
+            return arvore;
+        }
+
+        private int posicao(long balde) {
+            return (int) (balde % baldes.length);
+        }
+
+        private long balde(double d) {
+            return (long) (d / delta);
+        }
+
+        private double distancia(int v) {
+            return Double.longBitsToDouble(distancia.get(v));
+        }
+
+        private void adicionar(int v, long b) {
+            int p = posicao(b);
+            int[] balde = baldes[p];
+            if (balde == null) {
+                balde = new int[16];
+                baldes[p] = balde;
+            } else if (tamanhoBalde[p] == balde.length) {
+                balde = Arrays.copyOf(balde, balde.length * 2);
+                baldes[p] = balde;
+            }
+            balde[tamanhoBalde[p]++] = v;
+            insercoes++;
+        }
+
+        // relaxa as arestas leves (ou as pesadas) dos vértices em paralelo e põe os melhorados nos baldes
+        private void relaxar(int[] vertices, int total, boolean leves) {
+            if (total == 0) {
+                return;
+            }
+            relaxados += leves ? total : 0;
+            totalMelhorados.set(0);
+            Relaxacao tarefa = new Relaxacao(this, vertices, 0, total, leves);
+            if (total <= LIMITE_DIVISAO) {
+                tarefa.compute();
+            } else {
+                pool.invoke(tarefa);
+            }
+            arestas += tarefa.arestas;
+            int melhoradosNaFase = totalMelhorados.get();
+            for (int i = 0; i < melhoradosNaFase; i++) {
+                int v = melhorados[i];
+                adicionar(v, balde(distancia(v)));
+            }
+        }
+
+        // tenta baixar a distância de v pra nova; se conseguir, devolve true se v ainda não estava na
+        // lista de melhorados desta fase (e aí quem chamou deve pôr ele lá)
+        boolean melhorar(int v, double nova) {
+            long bits = Double.doubleToRawLongBits(nova);
+            while (true) {
+                long atual = distancia.get(v);
+                if (bits >= atual) {
+                    return false;
+                }
+                if (distancia.compareAndSet(v, atual, bits)) {
+                    return melhoradoNaFase.get(v) != fase && melhoradoNaFase.getAndSet(v, fase) != fase;
+                }
+            }
+        }
+
+        void guardar(int[] buffer, int total) {
+            int inicio = totalMelhorados.getAndAdd(total);
+            System.arraycopy(buffer, 0, melhorados, inicio, total);
+        }
+
+        // a aresta anterior de cada vértice é escolhida depois, entre as arestas justas (as que
+        // chegam nele com a distância final): primeiro em paralelo, pelas que vêm de um vértice mais
+        // perto; os que só têm aresta justa vinda de um vértice à mesma distância (peso zero ou
+        // arredondamento) são ligados a um vizinho que já tenha anterior, em rodadas, o que nunca forma
+        // ciclo e sempre termina porque a árvore do Dijkstra só usa arestas justas
+        private <T> ArvoreCaminhos<T> montarArvore(int origem) {
+            double[] finais = new double[n];
+            for (int v = 0; v < n; v++) {
+                finais[v] = distancia(v);
+            }
+            int[] anterior = new int[n];
+            Arrays.fill(anterior, -1);
+            if (n > 0) {
+                pool.invoke(new Anteriores(grafo, finais, anterior, origem, 0, n));
+            }
+
+            int[] pendentes = new int[n];
+            int totalPendentes = 0;
+            for (int v = 0; v < n; v++) {
+                if (v != origem && anterior[v] < 0 && finais[v] != Double.POSITIVE_INFINITY) {
+                    pendentes[totalPendentes++] = v;
+                }
+            }
+            while (totalPendentes > 0) {
+                int restantes = 0;
+                for (int i = 0; i < totalPendentes; i++) {
+                    int v = pendentes[i];
+                    anterior[v] = arestaJusta(grafo, finais, anterior, origem, v, false);
+                    if (anterior[v] < 0) {
+                        pendentes[restantes++] = v;
+                    }
+                }
+                if (restantes == totalPendentes) {
+                    throw new IllegalStateException("Vértice sem aresta justa no delta-stepping");
+                }
+                totalPendentes = restantes;
+            }
+
+            float[] distancias = new float[n];
+            for (int v = 0; v < n; v++) {
+                distancias[v] = (float) finais[v];
+            }
+            @SuppressWarnings("unchecked")
+            GrafoCompacto<T> tipado = (GrafoCompacto<T>) grafo;
+            return new ArvoreCaminhos<>(tipado, origem, distancias, anterior);
+        }
+    }
+
+    // aresta justa que chega em v: com estrita = true, vinda de um vértice mais perto da origem; senão,
+    // vinda de um vértice à mesma distância que já tem anterior (ou é a origem); -1 se não houver
+    private static int arestaJusta(GrafoCompacto<?> grafo, double[] finais, int[] anterior, int origem, int v, boolean estrita) {
+        double dv = finais[v];
+        for (int a = grafo.inicioSaida.get(v); a < grafo.inicioSaida.get(v + 1); a++) {
+            if (justa(finais, anterior, origem, grafo.destinos.get(a), grafo.pesos.get(a), dv, estrita)) {
+                return a;
+            }
+        }
+        for (int p = grafo.inicioEntrada.get(v); p < grafo.inicioEntrada.get(v + 1); p++) {
+            int a = grafo.arestasEntrada.get(p);
+            if (justa(finais, anterior, origem, grafo.origens.get(a), grafo.pesos.get(a), dv, estrita)) {
+                return a;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean justa(double[] finais, int[] anterior, int origem, int u, float peso, double dv, boolean estrita) {
+        double du = finais[u];
+        if (du + peso != dv) {
+            return false;
+        }
+        return estrita ? du < dv : du == dv && (u == origem || anterior[u] >= 0);
+    }
+
+    // relaxa um pedaço da fronteira, dividindo ao meio enquanto for grande
+    private static final class Relaxacao extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Execucao execucao;
+        private final int[] vertices;
+        private final int inicio;
+        private final int fim;
+        private final boolean leves;
+        // arestas olhadas por este pedaço e pelos que ele dividiu
+        long arestas;
+
+        Relaxacao(Execucao execucao, int[] vertices, int inicio, int fim, boolean leves) {
+            this.execucao = execucao;
+            this.vertices = vertices;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.leves = leves;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > LIMITE_DIVISAO) {
+                int meio = (inicio + fim) >>> 1;
+                Relaxacao esquerda = new Relaxacao(execucao, vertices, inicio, meio, leves);
+                Relaxacao direita = new Relaxacao(execucao, vertices, meio, fim, leves);
+                invokeAll(esquerda, direita);
+                arestas = esquerda.arestas + direita.arestas;
+                return;
+            }
+            GrafoCompacto<?> grafo = execucao.grafo;
+            IntBuffer inicioSaida = grafo.inicioSaida;
+            IntBuffer inicioEntrada = grafo.inicioEntrada;
+            IntBuffer origens = grafo.origens;
+            IntBuffer destinos = grafo.destinos;
+            FloatBuffer pesos = grafo.pesos;
+            IntBuffer arestasEntrada = grafo.arestasEntrada;
+            double delta = execucao.delta;
+
+            int[] buffer = new int[TAMANHO_BUFFER];
+            int cheio = 0;
+            for (int i = inicio; i < fim; i++) {
+                int u = vertices[i];
+                // se u melhorar de novo durante a fase, ele volta pra fronteira e relaxa outra vez
+                double du = execucao.distancia(u);
+                arestas += inicioSaida.get(u + 1) - inicioSaida.get(u) + inicioEntrada.get(u + 1) - inicioEntrada.get(u);
+                for (int a = inicioSaida.get(u); a < inicioSaida.get(u + 1); a++) {
+                    float peso = pesos.get(a);
+                    if ((peso <= delta) == leves && execucao.melhorar(destinos.get(a), du + peso)) {
+                        buffer[cheio++] = destinos.get(a);
+                        if (cheio == buffer.length) {
+                            execucao.guardar(buffer, cheio);
+                            cheio = 0;
+                        }
+                    }
+                }
+                for (int p = inicioEntrada.get(u); p < inicioEntrada.get(u + 1); p++) {
+                    int a = arestasEntrada.get(p);
+                    float peso = pesos.get(a);
+                    if ((peso <= delta) == leves && execucao.melhorar(origens.get(a), du + peso)) {
+                        buffer[cheio++] = origens.get(a);
+                        if (cheio == buffer.length) {
+                            execucao.guardar(buffer, cheio);
+                            cheio = 0;
+                        }
+                    }
+                }
+            }
+            execucao.guardar(buffer, cheio);
+        }
+    }
+
+    // escolhe em paralelo a aresta anterior (estrita) de cada vértice de um intervalo
+    private static final class Anteriores extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final GrafoCompacto<?> grafo;
+        private final double[] finais;
+        private final int[] anterior;
+        private final int origem;
+        private final int inicio;
+        private final int fim;
+
+        Anteriores(GrafoCompacto<?> grafo, double[] finais, int[] anterior, int origem, int inicio, int fim) {
+            this.grafo = grafo;
+            this.finais = finais;
+            this.anterior = anterior;
+            this.origem = origem;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > LIMITE_DIVISAO * 16) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new Anteriores(grafo, finais, anterior, origem, inicio, meio),
+                        new Anteriores(grafo, finais, anterior, origem, meio, fim));
+                return;
+            }
+            for (int v = inicio; v < fim; v++) {
+                if (v != origem && finais[v] != Double.POSITIVE_INFINITY) {
+                    anterior[v] = arestaJusta(grafo, finais, anterior, origem, v, true);
+                }
+            }
+        }
+    }
+}
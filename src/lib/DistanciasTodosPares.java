@@ -0,0 +1,334 @@
+package lib;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// distância mínima entre todos os pares de vértices (a tabela completa de cidade pra cidade)
+// dois métodos:
+// - DIJKSTRA: um Dijkstra a partir de cada vértice, as origens divididas entre as threads do pool,
+//   reaproveitando as BuscaCaminhoMinimo numa fila de motores livres que só vive durante a chamada
+//   (nada fica preso nas threads do pool depois); bom pra grafos esparsos
+// - FLOYD_WARSHALL: Floyd-Warshall em blocos de BLOCO x BLOCO, pra caber no cache, com os blocos
+//   independentes de cada fase em paralelo; bom pra grafos densos, mas precisa da matriz inteira
+//   em double na memória
+// as arestas são tratadas como vias de mão dupla, igual ao Grafo.calcularCaminhoMinimo, e os dois
+// métodos somam em double, então dão as mesmas distâncias das buscas de caminho mínimo
+// os métodos gravar* escrevem a matriz em lotes de linhas enquanto o próximo lote é calculado, então
+// com o DIJKSTRA a memória usada não depende do tamanho da matriz
+public final class DistanciasTodosPares {
+
+    public enum Metodo {
+        // escolhe pelo tamanho e pela densidade do grafo
+        AUTOMATICO,
+        DIJKSTRA,
+        FLOYD_WARSHALL
+    }
+
+    // "GRFD" lido como int little-endian
+    static final int MAGICO = 0x44465247;
+    static final int VERSAO = 1;
+
+    // lado dos blocos do Floyd-Warshall: três blocos de double cabem folgados no cache L2
+    private static final int BLOCO = 64;
+    // quantos valores cada lote gravado tem (mais ou menos), pra limitar a memória dos buffers
+    private static final int TAMANHO_LOTE = 1 << 22;
+    // o Floyd-Warshall guarda n² doubles, então no AUTOMATICO só é escolhido até esse tamanho
+    private static final int LIMITE_FLOYD = 8192;
+
+    private DistanciasTodosPares() {
+    }
+
+    public static <T> MatrizDistancias<T> calcular(GrafoCompacto<T> grafo) {
+        return calcular(grafo, Metodo.AUTOMATICO, ForkJoinPool.commonPool());
+    }
+
+    public static <T> MatrizDistancias<T> calcular(GrafoCompacto<T> grafo, Metodo metodo) {
+        return calcular(grafo, metodo, ForkJoinPool.commonPool());
+    }
+
+    // a matriz inteira na memória; pra grafos grandes demais pra isso use gravarMatriz ou gravarBinario
+    public static <T> MatrizDistancias<T> calcular(GrafoCompacto<T> grafo, Metodo metodo, ForkJoinPool pool) {
+        int n = grafo.getNumeroVertices();
+        float[] distancias = new float[tamanhoMatriz(n)];
+        if (escolher(grafo, metodo) == Metodo.FLOYD_WARSHALL) {
+            double[] matriz = floydWarshall(grafo, pool);
+            for (int i = 0; i < matriz.length; i++) {
+                distancias[i] = (float) matriz[i];
+            }
+        } else {
+            Queue<BuscaCaminhoMinimo<T>> buscas = new ConcurrentLinkedQueue<>();
+            pool.invoke(new Linhas<>(grafo, buscas, distancias, 0, 0, n));
+        }
+        return new MatrizDistancias<>(grafo, distancias);
+    }
+
+    public static void gravarMatriz(Path arquivo, GrafoCompacto<String> grafo) throws IOException {
+        gravarMatriz(arquivo, grafo, Metodo.AUTOMATICO);
+    }
+
+    // grava as distâncias no mesmo formato de matriz do EscritorGrafo.gravarMatriz, com 0.0 na diagonal
+    // e Infinity entre vértices sem caminho
+    public static void gravarMatriz(Path arquivo, GrafoCompacto<String> grafo, Metodo metodo) throws IOException {
+        int n = grafo.getNumeroVertices();
+        try (BufferedWriter saida = EscritorGrafo.abrir(arquivo)) {
+            EscritorGrafo.gravarCidades(saida, grafo, Integer.toString(n));
+            gravarLinhas(grafo, metodo, ForkJoinPool.commonPool(), (valores, quantidade) -> {
+                for (int i = 0; i < quantidade; i++) {
+                    for (int j = 0; j < n; j++) {
+                        if (j > 0) {
+                            saida.write(',');
+                        }
+                        saida.write(Float.toString(valores[i * n + j]));
+                    }
+                    saida.newLine();
+                }
+            });
+        }
+    }
+
+    public static void gravarBinario(Path arquivo, GrafoCompacto<String> grafo) throws IOException {
+        gravarBinario(arquivo, grafo, Metodo.AUTOMATICO);
+    }
+
+    // formato binário (little-endian): "GRFD", versão, n, a tabela de nomes igual à do ArquivoBinario
+    // e depois as n² distâncias em float, linha por linha
+    public static void gravarBinario(Path arquivo, GrafoCompacto<String> grafo, Metodo metodo) throws IOException {
+        int n = grafo.getNumeroVertices();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ArquivoBinario.Escritor escritor = new ArquivoBinario.Escritor(canal);
+            escritor.inteiro(MAGICO);
+            escritor.inteiro(VERSAO);
+            escritor.inteiro(n);
+            escritor.nomes(grafo);
+            gravarLinhas(grafo, metodo, ForkJoinPool.commonPool(), (valores, quantidade) -> escritor.reais(valores, 0, quantidade * n));
+            escritor.terminar();
+        }
+    }
+
+    // recebe um lote de linhas já calculadas, começando na posição 0 do vetor
+    private interface Destino {
+        void gravar(float[] valores, int quantidade) throws IOException;
+    }
+
+    // calcula e entrega as linhas em ordem; com o DIJKSTRA o próximo lote é calculado no pool
+    // enquanto o atual é gravado, alternando entre dois buffers
+    private static <T> void gravarLinhas(GrafoCompacto<T> grafo, Metodo metodo, ForkJoinPool pool, Destino destino) throws IOException {
+        int n = grafo.getNumeroVertices();
+        if (n == 0) {
+            return;
+        }
+        int porLote = Math.max(1, TAMANHO_LOTE / n);
+        float[] atual = new float[Math.min(porLote, n) * n];
+        if (escolher(grafo, metodo) == Metodo.FLOYD_WARSHALL) {
+            double[] matriz = floydWarshall(grafo, pool);
+            for (int primeira = 0; primeira < n; primeira += porLote) {
+                int quantidade = Math.min(porLote, n - primeira);
+                for (int i = 0; i < quantidade * n; i++) {
+                    atual[i] = (float) matriz[primeira * n + i];
+                }
+                destino.gravar(atual, quantidade);
+            }
+            return;
+        }
+
+        Queue<BuscaCaminhoMinimo<T>> buscas = new ConcurrentLinkedQueue<>();
+        float[] proximo = n > porLote ? new float[atual.length] : null;
+        ForkJoinTask<Void> tarefa = pool.submit(new Linhas<>(grafo, buscas, atual, 0, 0, Math.min(porLote, n)));
+        try {
+            for (int primeira = 0; primeira < n; primeira += porLote) {
+                tarefa.join();
+                int seguinte = primeira + porLote;
+                tarefa = null;
+                if (seguinte < n) {
+                    tarefa = pool.submit(new Linhas<>(grafo, buscas, proximo, seguinte, seguinte, Math.min(seguinte + porLote, n)));
+                }
+                destino.gravar(atual, Math.min(porLote, n - primeira));
+                float[] troca = atual;
+                atual = proximo;
+                proximo = troca;
+            }
+        } finally {
+            // se a gravação falhou, não deixa o pool calculando um lote que ninguém vai usar
+            if (tarefa != null) {
+                tarefa.cancel(false);
+            }
+        }
+    }
+
+    private static Metodo escolher(GrafoCompacto<?> grafo, Metodo metodo) {
+        if (metodo != Metodo.AUTOMATICO) {
+            return metodo;
+        }
+        // n Dijkstras custam por volta de n·m·log n e o Floyd-Warshall n³ (com uma constante bem menor)
+        long n = grafo.getNumeroVertices();
+        double log = Math.max(1, 31 - Integer.numberOfLeadingZeros((int) Math.max(n, 1)));
+        boolean denso = n * n <= 4.0 * grafo.getNumeroArestas() * log;
+        return denso && n <= LIMITE_FLOYD ? Metodo.FLOYD_WARSHALL : Metodo.DIJKSTRA;
+    }
+
+    private static int tamanhoMatriz(int n) {
+        long tamanho = (long) n * n;
+        if (tamanho > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Matriz de distâncias grande demais para a memória (" + n + " vértices); grave direto em arquivo");
+        }
+        return (int) tamanho;
+    }
+
+    // matriz n x n em double, linha por linha; começa com o menor peso entre cada par nos dois sentidos
+    private static double[] floydWarshall(GrafoCompacto<?> grafo, ForkJoinPool pool) {
+        int n = grafo.getNumeroVertices();
+        double[] d = new double[tamanhoMatriz(n)];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        for (int v = 0; v < n; v++) {
+            d[v * n + v] = 0;
+        }
+        for (int a = 0; a < grafo.getNumeroArestas(); a++) {
+            int u = grafo.getOrigem(a);
+            int v = grafo.getDestino(a);
+            double peso = grafo.getPeso(a);
+            if (peso < d[u * n + v]) {
+                d[u * n + v] = peso;
+                d[v * n + u] = peso;
+            }
+        }
+
+        int blocos = (n + BLOCO - 1) / BLOCO;
+        for (int k = 0; k < blocos; k++) {
+            // fase 1: o bloco da diagonal só depende dele mesmo
+            relaxarBloco(d, n, k, k, k);
+            // fase 2: os blocos da linha e da coluna k, que só dependem de si e da diagonal
+            pool.invoke(new Blocos(d, n, k, blocos, false, 0, 2 * blocos));
+            // fase 3: todo o resto, que depende só dos blocos da linha e da coluna k
+            pool.invoke(new Blocos(d, n, k, blocos, true, 0, blocos * blocos));
+        }
+        return d;
+    }
+
+    // relaxa o bloco (bi, bj) passando pelos vértices intermediários do bloco bk
+    private static void relaxarBloco(double[] d, int n, int bi, int bj, int bk) {
+        int fimI = Math.min(n, (bi + 1) * BLOCO);
+        int fimJ = Math.min(n, (bj + 1) * BLOCO);
+        int fimK = Math.min(n, (bk + 1) * BLOCO);
+        int inicioJ = bj * BLOCO;
+        for (int k = bk * BLOCO; k < fimK; k++) {
+            int linhaK = k * n;
+            for (int i = bi * BLOCO; i < fimI; i++) {
+                int linhaI = i * n;
+                double dik = d[linhaI + k];
+                if (dik == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int j = inicioJ; j < fimJ; j++) {
+                    double nova = dik + d[linhaK + j];
+                    if (nova < d[linhaI + j]) {
+                        d[linhaI + j] = nova;
+                    }
+                }
+            }
+        }
+    }
+
+    // calcula as linhas de primeira até fim - 1 com um Dijkstra por origem, gravando a linha i em
+    // saida a partir de (i - inicio) * n; cada origem pega um motor livre da fila (ou cria) e devolve no fim
+    private static final class Linhas<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final GrafoCompacto<T> grafo;
+        private final Queue<BuscaCaminhoMinimo<T>> buscas;
+        private final float[] saida;
+        private final int inicio;
+        private final int primeira;
+        private final int fim;
+
+        Linhas(GrafoCompacto<T> grafo, Queue<BuscaCaminhoMinimo<T>> buscas, float[] saida, int inicio, int primeira, int fim) {
+            this.grafo = grafo;
+            this.buscas = buscas;
+            this.saida = saida;
+            this.inicio = inicio;
+            this.primeira = primeira;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            // cada origem já é uma busca inteira, então divide até sobrar uma só
+            if (fim - primeira > 1) {
+                int meio = (primeira + fim) >>> 1;
+                invokeAll(new Linhas<>(grafo, buscas, saida, inicio, primeira, meio),
+                        new Linhas<>(grafo, buscas, saida, inicio, meio, fim));
+                return;
+            }
+            if (primeira == fim) {
+                return;
+            }
+            BuscaCaminhoMinimo<T> busca = buscas.poll();
+            if (busca == null) {
+                busca = new BuscaCaminhoMinimo<>(grafo);
+            }
+            try {
+                busca.distancias(primeira, saida, (primeira - inicio) * grafo.getNumeroVertices());
+            } finally {
+                buscas.offer(busca);
+            }
+        }
+    }
+
+    // processa os blocos de uma fase do Floyd-Warshall, numerados de primeiro até fim - 1:
+    // na fase 2 os números abaixo de blocos são a linha k e os outros a coluna k; na fase 3 o número
+    // é linha * blocos + coluna; os blocos que não são da fase são pulados
+    private static final class Blocos extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] d;
+        private final int n;
+        private final int k;
+        private final int blocos;
+        private final boolean resto;
+        private final int primeiro;
+        private final int fim;
+
+        Blocos(double[] d, int n, int k, int blocos, boolean resto, int primeiro, int fim) {
+            this.d = d;
+            this.n = n;
+            this.k = k;
+            this.blocos = blocos;
+            this.resto = resto;
+            this.primeiro = primeiro;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - primeiro > 1) {
+                int meio = (primeiro + fim) >>> 1;
+                invokeAll(new Blocos(d, n, k, blocos, resto, primeiro, meio),
+                        new Blocos(d, n, k, blocos, resto, meio, fim));
+                return;
+            }
+            if (resto) {
+                int bi = primeiro / blocos;
+                int bj = primeiro % blocos;
+                if (bi != k && bj != k) {
+                    relaxarBloco(d, n, bi, bj, k);
+                }
+            } else if (primeiro < blocos) {
+                if (primeiro != k) {
+                    relaxarBloco(d, n, k, primeiro, k);
+                }
+            } else if (primeiro - blocos != k) {
+                relaxarBloco(d, n, primeiro - blocos, k, k);
+            }
+        }
+    }
+}
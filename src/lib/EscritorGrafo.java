@@ -0,0 +1,118 @@
+package lib;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// grava o grafo nos formatos de texto lidos pelo LeitorGrafo (ver FormatoTexto)
+public final class EscritorGrafo {
+
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    private EscritorGrafo() {
+    }
+
+    // grava no formato que der o arquivo menor: a matriz custa uns 4 bytes por célula (V²),
+    // a lista de arestas custa os dois nomes e o peso por aresta
+    // se algum nome tiver vírgula vai sempre a matriz, que é o único formato que aceita
+    public static FormatoTexto gravar(Path arquivo, GrafoCompacto<String> grafo) throws IOException {
+        FormatoTexto formato = escolherFormato(grafo);
+        gravar(arquivo, grafo, formato);
+        return formato;
+    }
+
+    public static void gravar(Path arquivo, GrafoCompacto<String> grafo, FormatoTexto formato) throws IOException {
+        if (formato == FormatoTexto.LISTA_ARESTAS) {
+            gravarListaArestas(arquivo, grafo);
+        } else {
+            gravarMatriz(arquivo, grafo);
+        }
+    }
+
+    static FormatoTexto escolherFormato(GrafoCompacto<String> grafo) {
+        long n = grafo.getNumeroVertices();
+        long tamanhoNomes = 0;
+        for (String valor : grafo.getValores()) {
+            if (valor.indexOf(',') >= 0) {
+                return FormatoTexto.MATRIZ;
+            }
+            tamanhoNomes += valor.length();
+        }
+        long mediaNome = n == 0 ? 0 : tamanhoNomes / n;
+        long tamanhoMatriz = n * n * 4;
+        long tamanhoLista = grafo.getNumeroArestas() * (2 * mediaNome + 10);
+        return tamanhoLista < tamanhoMatriz ? FormatoTexto.LISTA_ARESTAS : FormatoTexto.MATRIZ;
+    }
+
+    // grava a matriz de adjacência, uma linha por vez (se tiver arestas repetidas vale a última)
+    // no grafo não direcionado cada aresta aparece nos dois sentidos, então a matriz sai simétrica
+    // (e o LeitorGrafo lê ela de volta como não direcionada)
+    public static void gravarMatriz(Path arquivo, GrafoCompacto<String> grafo) throws IOException {
+        int n = grafo.getNumeroVertices();
+        try (BufferedWriter saida = abrir(arquivo)) {
+            gravarCidades(saida, grafo, Integer.toString(n));
+            float[] linha = new float[n];
+            for (int i = 0; i < n; i++) {
+                for (int a = grafo.inicioSaida(i); a < grafo.fimSaida(i); a++) {
+                    linha[grafo.getDestino(a)] = grafo.getPeso(a);
+                }
+                if (grafo.ehNaoDirecionado()) {
+                    for (int p = grafo.inicioEntrada(i); p < grafo.fimEntrada(i); p++) {
+                        int a = grafo.arestaEntrada(p);
+                        linha[grafo.getOrigem(a)] = grafo.getPeso(a);
+                    }
+                }
+                for (int j = 0; j < n; j++) {
+                    if (j > 0) {
+                        saida.write(',');
+                    }
+                    saida.write(linha[j] == 0 ? "0.0" : Float.toString(linha[j]));
+                }
+                saida.newLine();
+                for (int a = grafo.inicioSaida(i); a < grafo.fimSaida(i); a++) {
+                    linha[grafo.getDestino(a)] = 0;
+                }
+                for (int p = grafo.inicioEntrada(i); p < grafo.fimEntrada(i); p++) {
+                    linha[grafo.getOrigem(grafo.arestaEntrada(p))] = 0;
+                }
+            }
+        }
+    }
+
+    // grava a lista de arestas; os nomes das cidades não podem ter vírgula
+    // o grafo não direcionado leva o "nd" no cabeçalho e cada aresta uma vez só
+    public static void gravarListaArestas(Path arquivo, GrafoCompacto<String> grafo) throws IOException {
+        for (String valor : grafo.getValores()) {
+            if (valor.indexOf(',') >= 0) {
+                throw new IOException("A cidade \"" + valor + "\" tem vírgula e não pode ser gravada em lista de arestas");
+            }
+        }
+        try (BufferedWriter saida = abrir(arquivo)) {
+            String cabecalho = grafo.getNumeroVertices() + " " + grafo.getNumeroArestas();
+            gravarCidades(saida, grafo, grafo.ehNaoDirecionado() ? cabecalho + " " + FormatoTexto.NAO_DIRECIONADO : cabecalho);
+            for (int a = 0; a < grafo.getNumeroArestas(); a++) {
+                saida.write(grafo.getValor(grafo.getOrigem(a)));
+                saida.write(',');
+                saida.write(grafo.getValor(grafo.getDestino(a)));
+                saida.write(',');
+                saida.write(Float.toString(grafo.getPeso(a)));
+                saida.newLine();
+            }
+        }
+    }
+
+    static BufferedWriter abrir(Path arquivo) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+    }
+
+    static void gravarCidades(BufferedWriter saida, GrafoCompacto<String> grafo, String primeiraLinha) throws IOException {
+        saida.write(primeiraLinha);
+        saida.newLine();
+        for (String valor : grafo.getValores()) {
+            saida.write(valor);
+            saida.newLine();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package lib;
+
+// formatos de arquivo de texto do grafo; os dois começam com o número de cidades e uma cidade por linha
+public enum FormatoTexto {
+
+    // uma linha da matriz de adjacência por cidade, com os pesos separados por vírgula (0 = sem aresta)
+    MATRIZ,
+
+    // a primeira linha traz também o número de arestas ("n m"), e depois das cidades vem uma aresta
+    // por linha no formato origem,destino,peso; o tamanho do arquivo cresce com as arestas e não com V²
+    // com "n m nd" o grafo é não direcionado: cada aresta é uma via de mão dupla
+    LISTA_ARESTAS;
+
+    // indicador de grafo não direcionado no cabeçalho da lista de arestas
+    static final String NAO_DIRECIONADO = "nd";
+}
@@ -1,274 +1,781 @@
 package lib;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
+//um escritor e vários leitores ao mesmo tempo: quem altera o grafo (adicionaVertice, adicionarAresta,
+//definirLocalizacao) passa pela trava do próprio grafo, e todas as leituras (obterVertice, getVertices,
+//getArestas, caminhos, AGM, ordenação...) usam a última versão publicada, que nunca muda, sem trava
+//nenhuma enquanto o grafo não muda
+//cada alteração custa O(1) e só marca a versão publicada como velha: fora de um lote, a primeira
+//leitura depois de uma sequência de alterações gera a versão nova (O(V + E), uma vez só pra sequência
+//inteira) e publica; num lote (iniciarLote() e publicar()) as leituras continuam vendo a versão
+//anterior inteira até o publicar
+//no modo não direcionado (new Grafo<>(true)) cada par de cidades tem no máximo uma aresta: adicionar
+//a mesma via de novo, em qualquer sentido, só fica com o menor peso, então a matriz simétrica dos
+//arquivos vira metade das arestas (as buscas já tratam toda aresta como mão dupla, nos dois modos)
 public class Grafo<T> {
 
+    //a partir desse número de arestas o recálculo da árvore geradora mínima roda em paralelo
+    private static final int LIMITE_AGM_PARALELA = 1 << 18;
+
     //lista de vértices do grafo, cada um pode ser de qualquer tipo T
     private List<Vertice<T>> vertices = new ArrayList<>();
     //lista de arestas do grafo, que conectam os vértices
     private List<Aresta<T>> arestas = new ArrayList<>();
+    //índice do valor para o vértice, pra achar um vértice sem percorrer a lista
+    private Map<T, Vertice<T>> indice = new HashMap<>();
+    //cada aresta é uma via de mão dupla, guardada uma vez só
+    private final boolean naoDirecionado;
+    //no modo não direcionado, a posição na lista de arestas da aresta de cada par de vértices (ver par),
+    //pra não repetir a via
+    private final Map<Long, Integer> arestaEntre = new HashMap<>();
+    //localização de cada vértice pelo id (NaN enquanto não for definida); fica aqui e não no Vertice,
+    //que é dividido com as versões publicadas, pra cada versão ter as localizações do momento dela
+    private double[] coordenadaX = new double[0];
+    private double[] coordenadaY = new double[0];
+    //quantas vezes uma via repetida baixou o peso de uma aresta que já existia
+    //(a árvore guardada só sabe se atualizar com arestas novas, então nesse caso ela é recalculada)
+    private volatile int totalReducoes;
+    //contador de alterações, aumenta a cada vértice ou aresta adicionado
+    //serve pra saber se a cópia compacta guardada ainda vale
+    private volatile long versao;
+    //cópia compacta da versão atual (só mexida com a trava) e a versão publicada pras consultas
+    private Versao<T> atual;
+    private volatile Versao<T> publicada;
+    //no meio de um lote as alterações não são publicadas
+    private volatile boolean emLote;
+    //motores de caminho mínimo reaproveitados entre as consultas; cada consulta pega um livre
+    //(ou cria, se não tiver) e devolve no fim, então consultas ao mesmo tempo não dividem motor
+    private final Queue<BuscaCaminhoMinimo<T>> buscas = new ConcurrentLinkedQueue<>();
+    private final Queue<ConsultaHierarquia<T>> consultasHierarquia = new ConcurrentLinkedQueue<>();
+    //árvore geradora mínima guardada, junto com a versão do grafo em que ela vale
+    //as arestas adicionadas depois ainda não entraram nela
+    private volatile ArvoreGuardada<T> arvore;
+    //consultas de caminho na árvore guardada, preparadas na primeira vez que alguém pede
+    private volatile ArvoreConsultas<T> consultasArvore;
+    //motores dos k caminhos mais curtos (Yen), refeitos quando a versão publicada muda
+    private volatile CaminhosAlternativos<T> alternativos;
+    //consultas em lote da versão publicada (ver consultasEmLote)
+    private volatile ConsultasEmLote<T> consultasLote;
+    //hierarquia de contração (só existe se alguém pediu pra construir)
+    private volatile HierarquiaContracao<T> hierarquia;
+    //só uma thread por vez atualiza a árvore guardada (separada da trava do escritor)
+    private final Object travaArvore = new Object();
 
     public Grafo() {
+        this(false);
+    }
+
+    //com naoDirecionado = true, cada via entre duas cidades é guardada uma vez só, com o menor peso
+    public Grafo(boolean naoDirecionado) {
         this.vertices = new ArrayList<>();
+        this.naoDirecionado = naoDirecionado;
+        versaoAtual();
     }
-    //retorna a lista de vértices
+
+    public boolean ehNaoDirecionado() {
+        return this.naoDirecionado;
+    }
+    //retorna a lista de vértices da versão publicada
 
     public List<Vertice<T>> getVertices() {
-        return this.vertices;
+        return versaoPublicada().vertices;
     }
     
-    //retorna a lista de arestas
+    //retorna a lista de arestas da versão publicada
 
     public List<Aresta<T>> getArestas() {
-        return this.arestas;
+        return versaoPublicada().arestas;
     }
 
      //método para adicionar um novo vértice ao grafo
     //ele cria um novo vértice com o valor dado e o adiciona à lista de vértices
-    public Vertice<T> adicionaVertice(T valor) {
+    //o id do vértice é a posição dele na lista
+    public synchronized Vertice<T> adicionaVertice(T valor) {
+        return criarVertice(valor);
+    }
+
+    private Vertice<T> criarVertice(T valor) {
         Vertice<T> novo = new Vertice<>(valor);
+        novo.setId(this.vertices.size());
         this.vertices.add(novo);
+        if (novo.getId() == this.coordenadaX.length) {
+            int tamanho = Math.max(16, 2 * this.coordenadaX.length);
+            this.coordenadaX = Arrays.copyOf(this.coordenadaX, tamanho);
+            this.coordenadaY = Arrays.copyOf(this.coordenadaY, tamanho);
+            Arrays.fill(this.coordenadaX, novo.getId(), tamanho, Double.NaN);
+            Arrays.fill(this.coordenadaY, novo.getId(), tamanho, Double.NaN);
+        }
+        //se já tinha um vértice com esse valor, o primeiro continua sendo o encontrado
+        this.indice.putIfAbsent(valor, novo);
+        this.versao++;
         return novo;
     }
 
-    //método para encontrar um vértice na lista pelo valor
-    //ele percorre a lista de vértices e retorna aquele que tiver o valor igual ao parâmetro  q foi passado
+    //método para encontrar um vértice pelo valor
+    //ele consulta o índice da versão publicada e retorna o vértice que tiver o valor igual ao parâmetro q foi passado
     public Vertice<T> obterVertice(T valor) {
-        for (Vertice<T> vertice : this.getVertices()) {
-            if (vertice.getValor().equals(valor))
-                return vertice;
-        }
-        return null;
+        Versao<T> versao = versaoPublicada();
+        int id = versao.grafo.indiceDe(valor);
+        return id < 0 ? null : versao.vertices.get(id);
     }
 
      //método para adicionar uma nova aresta entre dois vértices
     //ele também cria os vértices de origem e destino se não existirem ainda no grafo
-    public void adicionarAresta(T origem, T destino, float peso) {
-        Vertice<T> verticeOrigem = obterVertice(origem);
+    //no modo não direcionado, se os dois já tiverem uma aresta (em qualquer sentido) ela só fica com
+    //o menor dos dois pesos
+    public synchronized void adicionarAresta(T origem, T destino, float peso) {
+        Vertice<T> verticeOrigem = this.indice.get(origem);
         if (verticeOrigem == null) {
-            verticeOrigem = adicionaVertice(origem);
+            verticeOrigem = criarVertice(origem);
         }
-        Vertice<T> verticeDestino = obterVertice(destino);
+        Vertice<T> verticeDestino = this.indice.get(destino);
         if (verticeDestino == null) {
-            verticeDestino = adicionaVertice(destino);
+            verticeDestino = criarVertice(destino);
+        }
+        ligar(verticeOrigem, verticeDestino, peso);
+    }
+
+    //mesma coisa, mas com vértices que já são deste grafo (não precisa procurar pelo valor)
+    public synchronized void adicionarAresta(Vertice<T> origem, Vertice<T> destino, float peso) {
+        if (!pertence(origem) || !pertence(destino)) {
+            throw new IllegalArgumentException("Os vértices da aresta não pertencem a este grafo");
         }
-        Aresta<T> novaAresta = new Aresta<>(verticeOrigem, verticeDestino, peso);
-        this.arestas.add(novaAresta);
+        ligar(origem, destino, peso);
+    }
+
+    //cria a aresta entre dois vértices que já são do grafo (no modo não direcionado, só se o par
+    //ainda não tiver aresta; se tiver, fica o menor peso)
+    private void ligar(Vertice<T> verticeOrigem, Vertice<T> verticeDestino, float peso) {
+        if (this.naoDirecionado) {
+            Integer posicao = this.arestaEntre.get(par(verticeOrigem, verticeDestino));
+            if (posicao != null) {
+                Aresta<T> existente = this.arestas.get(posicao);
+                if (peso < existente.getPeso()) {
+                    //troca por uma aresta nova em vez de mudar o peso, porque a antiga pode estar nas
+                    //versões já publicadas
+                    this.arestas.set(posicao, new Aresta<>(existente.getOrigem(), existente.getDestino(), peso));
+                    this.totalReducoes++;
+                    this.versao++;
+                }
+                return;
+            }
+        }
+        anexar(verticeOrigem, verticeDestino, peso);
+    }
+
+    //cria a aresta sem procurar repetida
+    private void anexar(Vertice<T> verticeOrigem, Vertice<T> verticeDestino, float peso) {
+        if (this.naoDirecionado) {
+            this.arestaEntre.putIfAbsent(par(verticeOrigem, verticeDestino), this.arestas.size());
+        }
+        this.arestas.add(new Aresta<>(verticeOrigem, verticeDestino, peso));
+        this.versao++;
+    }
+
+    //chave do par de vértices, a mesma nos dois sentidos: menor id na parte alta, maior na baixa
+    private static long par(Vertice<?> u, Vertice<?> v) {
+        int a = Math.min(u.getId(), v.getId());
+        int b = Math.max(u.getId(), v.getId());
+        return ((long) a << 32) | b;
+    }
+
+    //monta um grafo comum a partir de um grafo compacto, com os vértices nas mesmas posições
+    //a cópia compacta passada já fica guardada como a cópia do grafo novo
+    //o grafo novo é não direcionado se o compacto for, com as mesmas arestas (mesmo se tiver repetidas)
+    public static <T> Grafo<T> deCompacto(GrafoCompacto<T> compacto) {
+        Grafo<T> grafo = new Grafo<>(compacto.ehNaoDirecionado());
+        for (T valor : compacto.getValores()) {
+            grafo.criarVertice(valor);
+        }
+        if (compacto.temLocalizacoes()) {
+            for (int v = 0; v < compacto.getNumeroVertices(); v++) {
+                grafo.coordenadaX[v] = compacto.getX(v);
+                grafo.coordenadaY[v] = compacto.getY(v);
+            }
+        }
+        for (int a = 0; a < compacto.getNumeroArestas(); a++) {
+            grafo.anexar(grafo.vertices.get(compacto.getOrigem(a)), grafo.vertices.get(compacto.getDestino(a)), compacto.getPeso(a));
+        }
+        grafo.atual = grafo.novaVersao(compacto);
+        grafo.publicada = grafo.atual;
+        return grafo;
+    }
+
+    //mesma coisa, já deixando guardada a árvore geradora mínima que foi salva junto com o grafo
+    public static <T> Grafo<T> deCompacto(GrafoCompacto<T> compacto, GrafoCompacto<T> agm) {
+        Grafo<T> grafo = deCompacto(compacto);
+        if (agm != null) {
+            if (agm.getNumeroVertices() != compacto.getNumeroVertices()) {
+                throw new IllegalArgumentException("A árvore geradora mínima não tem os mesmos vértices do grafo");
+            }
+            grafo.arvore = new ArvoreGuardada<>(agm, compacto, compacto.getNumeroArestas(), 0);
+        }
+        return grafo;
+    }
+
+    //define a localização (x, y) da cidade, usada pela estimativa do caminhoMinimoAEstrela
+    //(as versões publicadas guardam a localização na cópia compacta, ver GrafoCompacto.getX)
+    public synchronized void definirLocalizacao(T valor, double x, double y) {
+        Vertice<T> vertice = this.indice.get(valor);
+        if (vertice == null) {
+            throw new IllegalArgumentException("Vértice não encontrado no grafo: " + valor);
+        }
+        this.coordenadaX[vertice.getId()] = x;
+        this.coordenadaY[vertice.getId()] = y;
+        this.versao++;
+    }
+
+    //mesma coisa, já deixando guardada também a hierarquia de contração salva junto com o grafo
+    public static <T> Grafo<T> deCompacto(GrafoCompacto<T> compacto, GrafoCompacto<T> agm, HierarquiaContracao<T> hierarquia) {
+        Grafo<T> grafo = deCompacto(compacto, agm);
+        if (hierarquia != null) {
+            if (hierarquia.getGrafo() != compacto) {
+                throw new IllegalArgumentException("A hierarquia de contração não é deste grafo");
+            }
+            grafo.hierarquia = hierarquia;
+        }
+        return grafo;
+    }
+
+    //retorna o número de alterações feitas no grafo até agora
+    public long getVersao() {
+        return this.versao;
+    }
+
+    //retorna as arestas que saem do vértice, na versão publicada
+    public List<Aresta<T>> getArestasSaida(Vertice<T> vertice) {
+        Versao<T> versao = versaoPublicada();
+        if (!versao.contem(vertice)) {
+            return Collections.emptyList();
+        }
+        int id = vertice.getId();
+        return versao.saidas.subList(versao.grafo.inicioSaida.get(id), versao.grafo.inicioSaida.get(id + 1));
+    }
+
+    //retorna as arestas que chegam no vértice, na versão publicada
+    public List<Aresta<T>> getArestasEntrada(Vertice<T> vertice) {
+        Versao<T> versao = versaoPublicada();
+        if (!versao.contem(vertice)) {
+            return Collections.emptyList();
+        }
+        int id = vertice.getId();
+        return versao.entradas.subList(versao.grafo.inicioEntrada.get(id), versao.grafo.inicioEntrada.get(id + 1));
+    }
+
+    //começa um lote de alterações: até o publicar(), as consultas continuam na versão de agora
+    public synchronized void iniciarLote() {
+        versaoAtual();
+        this.emLote = true;
+    }
+
+    //termina o lote (se tiver um) e publica a versão atual pras consultas de uma vez só
+    public synchronized GrafoCompacto<T> publicar() {
+        this.emLote = false;
+        return versaoAtual().grafo;
+    }
+
+    //gera uma cópia compacta e somente leitura do grafo, boa pra consultas repetidas
+    //as arestas mantêm a ordem em que foram adicionadas dentro de cada vértice de origem
+    //a cópia fica guardada e só é refeita depois que o grafo muda
+    //(mudanças feitas direto nos objetos Vertice ou Aresta não são percebidas)
+    //é sempre a versão atual, mesmo no meio de um lote; as consultas usam a versão publicada
+    public synchronized GrafoCompacto<T> congelar() {
+        return versaoAtual().grafo;
+    }
+
+    //cópia da versão atual, refeita se o grafo mudou; fora de um lote ela já fica publicada
+    //(chamado com a trava)
+    private Versao<T> versaoAtual() {
+        if (this.atual == null || this.atual.numero != this.versao) {
+            this.atual = novaVersao(gerarCompacto());
+        }
+        if (!this.emLote) {
+            this.publicada = this.atual;
+        }
+        return this.atual;
+    }
+
+    //versão que as leituras usam: a publicada, sem trava; só se o grafo mudou fora de um lote desde a
+    //última publicação a leitura pega a trava e publica a versão nova, e as seguintes já acham ela pronta
+    private Versao<T> versaoPublicada() {
+        Versao<T> versao = this.publicada;
+        if (versao.numero != this.versao && !this.emLote) {
+            versao = publicarPendente();
+        }
+        return versao;
+    }
+
+    private synchronized Versao<T> publicarPendente() {
+        if (!this.emLote) {
+            versaoAtual();
+        }
+        return this.publicada;
+    }
+
+    //junta a cópia compacta com cópias das listas do escritor, que continuam crescendo depois
+    //as arestas de cada vértice ficam em vetores na mesma divisão da cópia compacta (inicioSaida e
+    //inicioEntrada), na ordem em que foram adicionadas
+    @SuppressWarnings("unchecked")
+    private Versao<T> novaVersao(GrafoCompacto<T> compacto) {
+        int m = this.arestas.size();
+        Aresta<T>[] saidas = (Aresta<T>[]) new Aresta<?>[m];
+        Aresta<T>[] entradas = (Aresta<T>[]) new Aresta<?>[m];
+        int[] proximaSaida = GrafoCompacto.copiar(compacto.inicioSaida, compacto.getNumeroVertices());
+        int[] proximaEntrada = GrafoCompacto.copiar(compacto.inicioEntrada, compacto.getNumeroVertices());
+        for (Aresta<T> aresta : this.arestas) {
+            saidas[proximaSaida[aresta.getOrigem().getId()]++] = aresta;
+            entradas[proximaEntrada[aresta.getDestino().getId()]++] = aresta;
+        }
+        return new Versao<>(compacto, this.versao, this.totalReducoes,
+                Collections.unmodifiableList(new ArrayList<>(this.vertices)),
+                Collections.unmodifiableList(new ArrayList<>(this.arestas)),
+                Collections.unmodifiableList(Arrays.asList(saidas)),
+                Collections.unmodifiableList(Arrays.asList(entradas)));
+    }
+
+    //a cópia compacta que as consultas estão usando agora (ver iniciarLote)
+    public GrafoCompacto<T> getVersaoPublicada() {
+        return versaoPublicada().grafo;
+    }
+
+    private GrafoCompacto<T> gerarCompacto() {
+        int m = this.arestas.size();
+        int[] origem = new int[m];
+        int[] destino = new int[m];
+        float[] peso = new float[m];
+        for (int i = 0; i < m; i++) {
+            Aresta<T> aresta = this.arestas.get(i);
+            origem[i] = aresta.getOrigem().getId();
+            destino[i] = aresta.getDestino().getId();
+            peso[i] = aresta.getPeso();
+        }
+        int n = this.vertices.size();
+        List<T> valores = new ArrayList<>(n);
+        boolean todosLocalizados = n > 0;
+        for (Vertice<T> vertice : this.vertices) {
+            valores.add(vertice.getValor());
+            todosLocalizados &= Double.isFinite(this.coordenadaX[vertice.getId()]) && Double.isFinite(this.coordenadaY[vertice.getId()]);
+        }
+        GrafoCompacto<T> gerado = GrafoCompacto.criar(valores, origem, destino, peso, m, this.naoDirecionado);
+        //a localização só entra na cópia se todos os vértices tiverem uma
+        if (todosLocalizados) {
+            gerado = gerado.comLocalizacoes(Arrays.copyOf(this.coordenadaX, n), Arrays.copyOf(this.coordenadaY, n));
+        }
+        return gerado;
+    }
+
+    //confere se o vértice é deste grafo (o id aponta pra ele mesmo na lista)
+    private boolean pertence(Vertice<T> vertice) {
+        int id = vertice.getId();
+        return id >= 0 && id < this.vertices.size() && this.vertices.get(id) == vertice;
     }
 
     //método que calcula a árvore geradora mínima
     //ele busca a menor conexão entre todo os vértices, conectando tudo com o menor custo possível
+    //a árvore fica guardada: se o grafo não mudou ela é reaproveitada, e se só entraram
+    //algumas arestas novas ela é atualizada aresta por aresta em vez de rodar o Kruskal de novo
     public Grafo<T> calcularArvoreGeradoraMinima() {
-        Grafo<T> arvoreGeradoraMinima = new Grafo<>();
+        return deCompacto(arvoreGeradoraMinimaAtual(false));
+    }
 
-        Map<Vertice<T>, Vertice<T>> parent = new HashMap<>();
-        Map<Vertice<T>, Integer> rank = new HashMap<>();
+    //mesma árvore, mas quando precisa recalcular usa o Borůvka paralelo em todos os núcleos
+    public Grafo<T> calcularArvoreGeradoraMinimaParalela() {
+        return deCompacto(arvoreGeradoraMinimaAtual(true));
+    }
+
+    //a árvore geradora mínima guardada, na forma compacta (sem montar um Grafo novo)
+    public GrafoCompacto<T> calcularArvoreGeradoraMinimaCompacta() {
+        return arvoreGeradoraMinimaAtual(false);
+    }
 
-        for (Vertice<T> vertice : vertices) {
-            arvoreGeradoraMinima.adicionaVertice(vertice.getValor());
-            parent.put(vertice, vertice);
-            rank.put(vertice, 0);
+    //consultas de caminho, distância e gargalo na árvore geradora mínima em O(log V) cada
+    //(ver ArvoreConsultas); a preparação é feita uma vez por árvore e fica guardada
+    public ArvoreConsultas<T> consultasArvoreGeradoraMinima() {
+        return consultasArvore(versaoPublicada());
+    }
+
+    //as consultas na árvore de uma versão, reaproveitando a árvore e as consultas guardadas
+    private ArvoreConsultas<T> consultasArvore(Versao<T> versao) {
+        GrafoCompacto<T> agm = arvoreGeradoraMinima(versao, false);
+        ArvoreConsultas<T> consultas = this.consultasArvore;
+        if (consultas == null || consultas.getArvore() != agm) {
+            consultas = new ArvoreConsultas<>(agm);
+            this.consultasArvore = consultas;
         }
+        return consultas;
+    }
 
-        //ordena as arestas por peso em ordem crescente
-        List<Aresta<T>> arestasOrdenadas = new ArrayList<>(arestas);
-        arestasOrdenadas.sort(Comparator.comparingDouble(Aresta::getPeso));
+    //o caminho entre duas cidades usando só as arestas da árvore geradora mínima
+    //devolve null se alguma não existir ou se não houver caminho
+    public Caminho<T> caminhoMinimoAGM(T origem, T destino) {
+        return consultasArvoreGeradoraMinima().caminho(origem, destino);
+    }
 
-        //percorre as arestas ordenadas para construir a árvore geradora mínima
-        for (Aresta<T> aresta : arestasOrdenadas) {
-            Vertice<T> u = findSet(parent, aresta.getOrigem());
-            Vertice<T> v = findSet(parent, aresta.getDestino());
+    //a árvore da versão publicada: se a guardada já é dela, devolve sem trava; senão atualiza
+    //(ou recalcula) com a trava, pra só uma thread fazer o trabalho
+    private GrafoCompacto<T> arvoreGeradoraMinimaAtual(boolean paralela) {
+        return arvoreGeradoraMinima(versaoPublicada(), paralela);
+    }
 
-            if (!u.equals(v)) {
-                arvoreGeradoraMinima.adicionarAresta(aresta.getOrigem().getValor(), aresta.getDestino().getValor(), aresta.getPeso());
-                union(parent, rank, u, v);
+    private GrafoCompacto<T> arvoreGeradoraMinima(Versao<T> versao, boolean paralela) {
+        ArvoreGuardada<T> guardada = this.arvore;
+        if (guardada != null && guardada.grafo == versao.grafo) {
+            return guardada.agm;
+        }
+        synchronized (this.travaArvore) {
+            guardada = this.arvore;
+            if (guardada != null && guardada.grafo == versao.grafo) {
+                return guardada.agm;
+            }
+            GrafoCompacto<T> atual = versao.grafo;
+            GrafoCompacto<T> agm;
+            //um peso que baixou numa aresta já existente (via repetida no modo não direcionado) também
+            //pede o recálculo, e a lista só bate com a versão se nenhum baixou depois dela
+            boolean semReducoes = guardada != null && guardada.totalReducoes == versao.totalReducoes && this.totalReducoes == versao.totalReducoes;
+            if (!semReducoes || guardada.totalArestas > versao.totalArestas || !valeAtualizar(versao.totalArestas - guardada.totalArestas, atual)) {
+                //em grafos grandes o recálculo completo vale a pena ser paralelo
+                boolean usarParalela = paralela || atual.getNumeroArestas() >= LIMITE_AGM_PARALELA;
+                agm = usarParalela ? atual.arvoreGeradoraMinimaParalela() : atual.arvoreGeradoraMinima();
+            } else {
+                agm = guardada.agm;
+                //se entraram vértices novos a árvore passa a ter eles também, ainda sem arestas
+                if (agm.getNumeroVertices() != atual.getNumeroVertices()) {
+                    agm = GrafoCompacto.criar(atual.getValores(), GrafoCompacto.copiar(agm.origens, agm.getNumeroArestas()),
+                            GrafoCompacto.copiar(agm.destinos, agm.getNumeroArestas()), GrafoCompacto.copiar(agm.pesos, agm.getNumeroArestas()),
+                            agm.getNumeroArestas(), this.naoDirecionado);
+                }
+                //a lista de arestas só cresce, então as que faltam na árvore são as do fim dela
+                for (Aresta<T> aresta : versao.arestas.subList(guardada.totalArestas, versao.totalArestas)) {
+                    agm = incluirNaArvore(agm, aresta.getOrigem().getId(), aresta.getDestino().getId(), aresta.getPeso());
+                }
             }
+            this.arvore = new ArvoreGuardada<>(agm, atual, versao.totalArestas, versao.totalReducoes);
+            return agm;
         }
+    }
 
-        return arvoreGeradoraMinima;
+    //cada aresta nova custa uma busca na árvore (proporcional ao número de vértices),
+    //enquanto o Kruskal custa ordenar todas as arestas; usa o que for mais barato
+    private static boolean valeAtualizar(long novas, GrafoCompacto<?> grafo) {
+        long n = grafo.getNumeroVertices();
+        long m = grafo.getNumeroArestas();
+        long custoKruskal = m * (64 - Long.numberOfLeadingZeros(m + 1));
+        return novas * n <= custoKruskal;
     }
-    
-// método auxiliar para encontrar o conjunto ao qual um vértice pertence
-    private Vertice<T> findSet(Map<Vertice<T>, Vertice<T>> parent, Vertice<T> vertice) {
-        if (!vertice.equals(parent.get(vertice))) {
-            parent.put(vertice, findSet(parent, parent.get(vertice)));
+
+    //propriedade do ciclo: a aresta nova (u, v) fecha um ciclo com o caminho entre u e v na árvore,
+    //e se ela for mais leve que a aresta mais pesada desse caminho, troca uma pela outra
+    //se u e v estão em pedaços diferentes da floresta, a aresta nova só liga os dois
+    private GrafoCompacto<T> incluirNaArvore(GrafoCompacto<T> arvore, int u, int v, float peso) {
+        if (u == v) {
+            return arvore;
         }
-        return parent.get(vertice);
-    }
-// método auxiliar para unir dois conjuntos diferentes
-    private void union(Map<Vertice<T>, Vertice<T>> parent, Map<Vertice<T>, Integer> rank, Vertice<T> u, Vertice<T> v) {
-        Vertice<T> rootU = findSet(parent, u);
-        Vertice<T> rootV = findSet(parent, v);
+        int n = arvore.getNumeroVertices();
+        int m = arvore.getNumeroArestas();
 
-        if (rank.get(rootU) > rank.get(rootV)) {
-            parent.put(rootV, rootU);
-        } else if (rank.get(rootU) < rank.get(rootV)) {
-            parent.put(rootU, rootV);
-        } else {
-            parent.put(rootV, rootU);
-            rank.put(rootU, rank.get(rootU) + 1);
+        //busca em profundidade sem recursão a partir de u, guardando por qual aresta chegou em cada vértice
+        int[] arestaPai = new int[n];
+        Arrays.fill(arestaPai, -1);
+        boolean[] visitado = new boolean[n];
+        int[] pilha = new int[n];
+        int topo = 0;
+        pilha[topo++] = u;
+        visitado[u] = true;
+        while (topo > 0 && !visitado[v]) {
+            int atual = pilha[--topo];
+            for (int a = arvore.inicioSaida(atual); a < arvore.fimSaida(atual); a++) {
+                topo = visitar(arvore, a, atual, visitado, arestaPai, pilha, topo);
+            }
+            for (int p = arvore.inicioEntrada(atual); p < arvore.fimEntrada(atual); p++) {
+                topo = visitar(arvore, arvore.arestaEntrada(p), atual, visitado, arestaPai, pilha, topo);
+            }
         }
-    }
 
-    private List<Aresta<T>> pegarDestinos(Vertice<T> v) {
-        List<Aresta<T>> destinos = new ArrayList<>();
-        try {
-            for (Aresta<T> aresta : this.arestas) {
-                if (aresta.getOrigem().equals(v) || aresta.getDestino().equals(v)) {
-                    destinos.add(aresta);
+        int substituida = -1;
+        if (visitado[v]) {
+            //volta de v até u procurando a aresta mais pesada do caminho
+            int maisPesada = -1;
+            for (int atual = v; atual != u; atual = BuscaCaminhoMinimo.outraPonta(arvore, arestaPai[atual], atual)) {
+                if (maisPesada < 0 || arvore.getPeso(arestaPai[atual]) > arvore.getPeso(maisPesada)) {
+                    maisPesada = arestaPai[atual];
                 }
             }
-        } catch (Exception e) {
-            System.err.println("Ocorreu um erro ao pegar destinos: " + e.getMessage());
-            e.printStackTrace();
+            if (peso >= arvore.getPeso(maisPesada)) {
+                return arvore;
+            }
+            substituida = maisPesada;
         }
-        return destinos;
+
+        int total = substituida < 0 ? m + 1 : m;
+        int[] origem = GrafoCompacto.copiar(arvore.origens, total);
+        int[] destino = GrafoCompacto.copiar(arvore.destinos, total);
+        float[] pesos = GrafoCompacto.copiar(arvore.pesos, total);
+        int posicao = substituida < 0 ? m : substituida;
+        origem[posicao] = u;
+        destino[posicao] = v;
+        pesos[posicao] = peso;
+        return GrafoCompacto.criar(arvore.getValores(), origem, destino, pesos, total, arvore.ehNaoDirecionado());
+    }
+
+    private static int visitar(GrafoCompacto<?> arvore, int aresta, int atual, boolean[] visitado, int[] arestaPai, int[] pilha, int topo) {
+        int vizinho = BuscaCaminhoMinimo.outraPonta(arvore, aresta, atual);
+        if (!visitado[vizinho]) {
+            visitado[vizinho] = true;
+            arestaPai[vizinho] = aresta;
+            pilha[topo++] = vizinho;
+        }
+        return topo;
     }
 
     // método para calcular o caminho mínimo entre dois vértices
-    // ele encontra o caminho mais curto do vértice origem até o vértice destino
-    public void calcularCaminhoMinimo(T origem, T destino) {
-        Vertice<T> verticeOrigem = obterVertice(origem);
-        Vertice<T> verticeDestino = obterVertice(destino);
-        if (verticeOrigem == null || verticeDestino == null) {
-            System.out.println("Vértices não encontrados no grafo");
-            return;
+    // devolve o caminho e a distância total, ou null se algum vértice não existir ou não houver caminho
+    // as arestas são tratadas como vias de mão dupla
+    // se a hierarquia de contração da versão atual já foi construída, a consulta usa ela
+    public Caminho<T> caminhoMinimo(T origem, T destino) {
+        GrafoCompacto<T> atual = versaoPublicada().grafo;
+        HierarquiaContracao<T> hierarquiaAtual = this.hierarquia;
+        if (hierarquiaAtual != null && hierarquiaAtual.getGrafo() == atual) {
+            ConsultaHierarquia<T> consulta = this.consultasHierarquia.poll();
+            if (consulta == null || consulta.getHierarquia() != hierarquiaAtual) {
+                consulta = new ConsultaHierarquia<>(hierarquiaAtual);
+            }
+            try {
+                return consulta.caminho(origem, destino);
+            } finally {
+                this.consultasHierarquia.offer(consulta);
+            }
         }
+        return consultar(atual, busca -> busca.caminho(origem, destino));
+    }
 
-        Map<Vertice<T>, Float> distancias = new HashMap<>();
-        Map<Vertice<T>, Vertice<T>> anteriores = new HashMap<>();
-        PriorityQueue<Vertice<T>> fila = new PriorityQueue<>(Comparator.comparing(distancias::get));
+    // pré-processamento opcional pra quando o grafo quase não muda e recebe muitas consultas:
+    // constrói (em paralelo) a hierarquia de contração, e daí em diante o caminhoMinimo usa ela
+    // até o grafo mudar; a hierarquia fica guardada e pode ser gravada no ArquivoBinario
+    public HierarquiaContracao<T> construirHierarquiaContracao() {
+        GrafoCompacto<T> atual = versaoPublicada().grafo;
+        HierarquiaContracao<T> construida = this.hierarquia;
+        if (construida == null || construida.getGrafo() != atual) {
+            construida = HierarquiaContracao.construir(atual);
+            this.hierarquia = construida;
+        }
+        return construida;
+    }
 
-        for (Vertice<T> vertice : vertices) {
-            distancias.put(vertice, Float.MAX_VALUE);
-            anteriores.put(vertice, null);
+    // a hierarquia de contração da versão publicada do grafo, ou null se ela não foi construída
+    public HierarquiaContracao<T> getHierarquiaContracao() {
+        HierarquiaContracao<T> construida = this.hierarquia;
+        if (construida == null || construida.getGrafo() != versaoPublicada().grafo) {
+            return null;
         }
-        distancias.put(verticeOrigem, 0f);
-        fila.add(verticeOrigem);
+        return construida;
+    }
 
-        while (!fila.isEmpty()) {
-            Vertice<T> atual = fila.poll();
+    // mesmo resultado do caminhoMinimo, buscando ao mesmo tempo a partir da origem e do destino
+    public Caminho<T> caminhoMinimoBidirecional(T origem, T destino) {
+        return consultar(versaoPublicada().grafo, busca -> busca.caminhoBidirecional(origem, destino));
+    }
 
-            for (Aresta aresta : pegarDestinos(atual)) {
-                Vertice<T> vizinho = aresta.getDestino();
-                float novaDistancia = distancias.get(atual) + aresta.getPeso();
+    // mesmo resultado do caminhoMinimo pelo A*, guiado pela localização das cidades
+    // (ver definirLocalizacao); só usa a estimativa se todas as cidades tiverem localização
+    public Caminho<T> caminhoMinimoAEstrela(T origem, T destino) {
+        return consultar(versaoPublicada().grafo, busca -> busca.caminhoAEstrela(origem, destino));
+    }
 
-                if (distancias.get(vizinho) > novaDistancia) {
-                    distancias.put(vizinho, novaDistancia);
-                    anteriores.put(vizinho, atual);
-                    fila.add(vizinho);
-                }
+    // calcula os caminhos mínimos da origem até todos os outros vértices de uma vez
+    public ArvoreCaminhos<T> arvoreCaminhosMinimos(T origem) {
+        return consultar(versaoPublicada().grafo, busca -> busca.arvore(origem));
+    }
 
-                vizinho = aresta.getOrigem();
-                novaDistancia = distancias.get(atual) + aresta.getPeso();
-                if (distancias.get(vizinho) > novaDistancia) {
-                    distancias.put(vizinho, novaDistancia);
-                    anteriores.put(vizinho, atual);
-                    fila.add(vizinho);
-                }
-            }
+    // cidades a no máximo raio de distância da origem (sem contar ela), da mais perto pra mais longe,
+    // ou null se a origem não existir; a busca para no raio, então custa só o tamanho da vizinhança
+    public List<Vizinho<T>> verticesNoRaio(T origem, float raio) {
+        return consultar(versaoPublicada().grafo, busca -> busca.verticesNoRaio(origem, raio));
+    }
+
+    // as k cidades mais perto da origem (sem contar ela), da mais perto pra mais longe, ou null se a
+    // origem não existir; a busca para quando fecha a k-ésima
+    public List<Vizinho<T>> verticesMaisProximos(T origem, int k) {
+        return consultar(versaoPublicada().grafo, busca -> busca.verticesMaisProximos(origem, k));
+    }
+
+    // os k caminhos mais curtos sem repetir cidade entre a origem e o destino, do mais curto pro mais
+    // longo (menos que k se não houver tantos), ou null se alguma não existir; o primeiro é o mesmo
+    // caminho do caminhoMinimo, e os outros são as alternativas de rota (ver CaminhosAlternativos)
+    public List<Caminho<T>> caminhosMinimos(T origem, T destino, int k) {
+        return caminhosAlternativos().calcular(origem, destino, k);
+    }
+
+    // mesmo resultado, com as buscas de desvio de cada caminho rodando em paralelo no pool comum
+    public List<Caminho<T>> caminhosMinimosParalelo(T origem, T destino, int k) {
+        return caminhosAlternativos().calcular(origem, destino, k, ForkJoinPool.commonPool());
+    }
+
+    private CaminhosAlternativos<T> caminhosAlternativos() {
+        GrafoCompacto<T> atual = versaoPublicada().grafo;
+        CaminhosAlternativos<T> caminhos = this.alternativos;
+        if (caminhos == null || caminhos.getGrafo() != atual) {
+            caminhos = new CaminhosAlternativos<>(atual);
+            this.alternativos = caminhos;
         }
+        return caminhos;
+    }
 
-        if (distancias.get(verticeDestino) == Float.MAX_VALUE) {
-            System.out.println("Não há caminho entre " + origem + " e " + destino + ".");
-            return;
+    // mesmas distâncias do arvoreCaminhosMinimos, calculadas pelo delta-stepping em todos os núcleos
+    // (vale a pena em grafos grandes; ver DeltaStepping pra escolher o delta ou o pool)
+    public ArvoreCaminhos<T> arvoreCaminhosMinimosParalela(T origem) {
+        return DeltaStepping.calcular(versaoPublicada().grafo, origem);
+    }
+
+    // pra responder muitas consultas de uma vez em paralelo: as consultas rodam sobre a cópia compacta
+    // da versão publicada (que não muda), então o grafo pode continuar sendo alterado depois
+    // se a hierarquia de contração estiver construída e em dia, os caminhos usam ela
+    // o objeto fica guardado pra versão publicada (junto com os motores dele) e a árvore geradora mínima
+    // das consultas de AGM é a mesma guardada aqui no grafo
+    public ConsultasEmLote<T> consultasEmLote() {
+        Versao<T> versao = versaoPublicada();
+        HierarquiaContracao<T> construida = this.hierarquia;
+        if (construida != null && construida.getGrafo() != versao.grafo) {
+            construida = null;
         }
+        ConsultasEmLote<T> consultas = this.consultasLote;
+        if (consultas == null || consultas.getGrafo() != versao.grafo || consultas.getHierarquia() != construida) {
+            consultas = new ConsultasEmLote<>(versao.grafo, construida, () -> consultasArvore(versao));
+            this.consultasLote = consultas;
+        }
+        return consultas;
+    }
 
-        List<Vertice<T>> caminho = new ArrayList<>();
-        for (Vertice<T> at = verticeDestino; at != null; at = anteriores.get(at)) {
-            caminho.add(at);
+    // tabela com a distância mínima entre todas as cidades, calculada em paralelo
+    // (ver DistanciasTodosPares, que também grava a tabela direto em arquivo sem guardar ela toda)
+    public MatrizDistancias<T> calcularDistanciasTodosPares() {
+        return DistanciasTodosPares.calcular(versaoPublicada().grafo);
+    }
+
+    // roda a consulta num motor livre da versão dada e devolve o motor pra fila no fim
+    // (motores de versões antigas são jogados fora)
+    private <R> R consultar(GrafoCompacto<T> atual, Function<BuscaCaminhoMinimo<T>, R> consulta) {
+        BuscaCaminhoMinimo<T> busca = this.buscas.poll();
+        if (busca == null || busca.getGrafo() != atual) {
+            busca = new BuscaCaminhoMinimo<>(atual);
+        }
+        try {
+            return consulta.apply(busca);
+        } finally {
+            this.buscas.offer(busca);
         }
-        Collections.reverse(caminho);
+    }
 
-        System.out.println("Caminho mínimo de " + origem + " até " + destino + ":");
-        for (Vertice<T> vertice : caminho) {
-            System.out.print(vertice.getValor() + " ");
+    // método para calcular o caminho mínimo entre dois vértices
+    // ele encontra o caminho mais curto do vértice origem até o vértice destino e mostra na tela
+    public void calcularCaminhoMinimo(T origem, T destino) {
+        GrafoCompacto<T> atual = versaoPublicada().grafo;
+        if (atual.indiceDe(origem) < 0 || atual.indiceDe(destino) < 0) {
+            System.out.println("Vértices não encontrados no grafo");
+            return;
         }
-        System.out.println("\nDistância total: " + distancias.get(verticeDestino));
+        mostrarCaminho(origem, destino, caminhoMinimo(origem, destino));
     }
-//verifica se o grafo tem ciclos
-    public boolean temCiclo() {
-        boolean[] visitados = new boolean[this.vertices.size()];
-        boolean[] noCaminho = new boolean[this.vertices.size()];
-        for (Vertice<T> vertice : this.vertices) {
-            int index = this.vertices.indexOf(vertice);
-            if (!visitados[index]) {
-                if (temCicloRecursivo(vertice, visitados, noCaminho, index)) {
-                    return true;
-                }
-            }
+
+    // mesma coisa, mas só pelas arestas da árvore geradora mínima (sem busca, ver ArvoreConsultas)
+    public void calcularCaminhoMinimoAGM(T origem, T destino) {
+        GrafoCompacto<T> atual = versaoPublicada().grafo;
+        if (atual.indiceDe(origem) < 0 || atual.indiceDe(destino) < 0) {
+            System.out.println("Vértices não encontrados no grafo");
+            return;
         }
-        return false;
+        mostrarCaminho(origem, destino, caminhoMinimoAGM(origem, destino));
     }
 
-    private boolean temCicloRecursivo(Vertice<T> vertice, boolean[] visitados, boolean[] noCaminho, int index) {
-        visitados[index] = true;
-        noCaminho[index] = true;
-        for (Aresta<T> aresta : this.arestas) {
-            if (aresta.getOrigem().equals(vertice)) {
-                Vertice<T> verticeDestino = aresta.getDestino();
-                int vizinhoIndex = this.vertices.indexOf(verticeDestino);
-                if (!visitados[vizinhoIndex]) {
-                    if (temCicloRecursivo(verticeDestino, visitados, noCaminho, vizinhoIndex)) {
-                        return true;
-                    }
-                } else if (noCaminho[vizinhoIndex]) {
-                    return true;
-                }
-            }
+    private void mostrarCaminho(T origem, T destino, Caminho<T> caminho) {
+        if (caminho == null) {
+            System.out.println("Não há caminho entre " + origem + " e " + destino + ".");
+            return;
         }
-        noCaminho[index] = false;
-        return false;
+
+        System.out.println("Caminho mínimo de " + origem + " até " + destino + ":");
+        for (T vertice : caminho.getVertices()) {
+            System.out.print(vertice + " ");
+        }
+        System.out.println("\nDistância total: " + caminho.getDistancia());
+    }
+//verifica se o grafo tem ciclos (seguindo o sentido das arestas; no modo não direcionado, um caminho
+    //que volta pro começo sem repetir aresta)
+    public boolean temCiclo() {
+        return versaoPublicada().grafo.temCiclo();
     }
 
+    //ordena os vértices de forma que toda aresta vá de um vértice pra outro que vem depois dele
+    //retorna null se o grafo tiver ciclo (no modo não direcionado, se tiver qualquer aresta)
     public List<Vertice<T>> ordenacaoTopologica() {
-        if (this.temCiclo()) {
+        Versao<T> versao = versaoPublicada();
+        int[] ordem = versao.grafo.ordenacaoTopologica();
+        if (ordem == null) {
             return null;
         }
-        List<Vertice<T>> resultado = new ArrayList<>();
-        List<Vertice<T>> semArestaEntrada = this.verticesSemArestaEntrada();
-        boolean[] visitados = new boolean[this.vertices.size()];
-        for (Vertice<T> vertice : semArestaEntrada) {
-            int index = this.vertices.indexOf(vertice);
-            if (!visitados[index]) {
-                ordenacaoTopologicaRecursiva(vertice, visitados, resultado, index);
-            }
+        //as posições no grafo compacto são os ids dos vértices
+        List<Vertice<T>> resultado = new ArrayList<>(ordem.length);
+        for (int id : ordem) {
+            resultado.add(versao.vertices.get(id));
         }
-        Collections.reverse(resultado);
         return resultado;
     }
-//metodo auxiliar na ordenação topológica q percorre os vértices e os adiciona ao resultado em ordem de finalização
-    private void ordenacaoTopologicaRecursiva(Vertice<T> vertice, boolean[] visitados, List<Vertice<T>> resultado, int index) {
-        visitados[index] = true;
-        for (Aresta<T> aresta : this.arestas) {
-            if (aresta.getOrigem().equals(vertice)) {
-                Vertice<T> verticeDestino = aresta.getDestino();
-                int destinoIndex = this.vertices.indexOf(verticeDestino);
-                if (!visitados[destinoIndex]) {
-                    ordenacaoTopologicaRecursiva(verticeDestino, visitados, resultado, destinoIndex);
-                }
-            }
-        }
-        resultado.add(vertice);
+
+    //faz a ordenação topológica pelo algoritmo de Kahn numa passada só, sem recursão,
+    //e quando existe ciclo devolve também um ciclo encontrado
+    public OrdenacaoTopologica<T> analisarOrdenacaoTopologica() {
+        return versaoPublicada().grafo.analisarOrdenacaoTopologica();
     }
-//encontra os vértices que não têm arestas de entrada
-    //esses vértices são usados como ponto de partida pra ordenação topológica
-    private List<Vertice<T>> verticesSemArestaEntrada() {
-        List<Vertice<T>> vertices = new ArrayList<>();
-        for (Vertice<T> vertice : this.vertices) {
-            boolean semAresta = false;
-            for (Aresta<T> aresta : this.arestas) {
-                if (aresta.getDestino().equals(vertice)) {
-                    semAresta = true; //se encontrar uma aresta de entrada, marca como true e para a busca
-                    break;
-                }
-            }
-            if (!semAresta) {
-                vertices.add(vertice);//adiciona à lista de vértices sem arestas de entrada
-            }
+
+    //uma versão do grafo: a cópia compacta, o número da versão, quantos pesos já tinham baixado e
+    //cópias dos vértices, das arestas e das arestas de cada vértice (as listas do grafo continuam
+    //crescendo, essas cópias não)
+    private static final class Versao<T> {
+        final GrafoCompacto<T> grafo;
+        final long numero;
+        final int totalArestas;
+        final int totalReducoes;
+        final List<Vertice<T>> vertices;
+        final List<Aresta<T>> arestas;
+        //arestas agrupadas pelo vértice de origem (saidas) e de destino (entradas)
+        final List<Aresta<T>> saidas;
+        final List<Aresta<T>> entradas;
+
+        Versao(GrafoCompacto<T> grafo, long numero, int totalReducoes, List<Vertice<T>> vertices,
+               List<Aresta<T>> arestas, List<Aresta<T>> saidas, List<Aresta<T>> entradas) {
+            this.grafo = grafo;
+            this.numero = numero;
+            this.totalArestas = arestas.size();
+            this.totalReducoes = totalReducoes;
+            this.vertices = vertices;
+            this.arestas = arestas;
+            this.saidas = saidas;
+            this.entradas = entradas;
+        }
+
+        //confere se o vértice já existia nessa versão
+        boolean contem(Vertice<T> vertice) {
+            int id = vertice.getId();
+            return id >= 0 && id < this.vertices.size() && this.vertices.get(id) == vertice;
         }
-        return vertices;
     }
 
+    //árvore geradora mínima junto com a cópia do grafo de onde ela é, quantas arestas ela já considerou
+    //e quantos pesos já tinham baixado
+    private static final class ArvoreGuardada<T> {
+        final GrafoCompacto<T> agm;
+        final GrafoCompacto<T> grafo;
+        final int totalArestas;
+        final int totalReducoes;
+
+        ArvoreGuardada(GrafoCompacto<T> agm, GrafoCompacto<T> grafo, int totalArestas, int totalReducoes) {
+            this.agm = agm;
+            this.grafo = grafo;
+            this.totalArestas = totalArestas;
+            this.totalReducoes = totalReducoes;
+        }
+    }
 }
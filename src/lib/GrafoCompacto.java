@@ -0,0 +1,512 @@
+package lib;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// versão compacta e somente leitura do grafo, gerada pelo Grafo.congelar()
+// as arestas ficam em vetores primitivos no formato CSR (compressed sparse row):
+// as arestas que saem do vértice v ocupam as posições inicioSaida[v] até inicioSaida[v + 1] - 1
+// dos vetores destinos e pesos, e a posição da aresta nesses vetores é o id dela
+// os valores dos vértices ficam guardados à parte, na posição do id de cada vértice
+// as buscas sempre tratam as arestas como vias de mão dupla; o indicador de não direcionado diz que
+// cada via está guardada uma vez só (ver Grafo(boolean)), o que muda a gravação nos arquivos e o temCiclo
+// os vetores são vistas (IntBuffer, FloatBuffer...): no grafo montado na memória elas embrulham vetores
+// comuns, e no lido do ArquivoBinario elas apontam direto pro arquivo mapeado, sem cópia
+public class GrafoCompacto<T> {
+
+    final List<T> valores;
+    // posição de cada valor: no grafo montado na memória fica num HashMap; no lido do arquivo esse
+    // mapa é null e a busca é feita na tabela de espalhamento gravada junto (ver procurarNaTabela)
+    final Map<T, Integer> indice;
+    final IntBuffer tabelaIndice;
+
+    // arestas que saem de cada vértice, agrupadas pela origem
+    final IntBuffer inicioSaida;
+    final IntBuffer origens;
+    final IntBuffer destinos;
+    final FloatBuffer pesos;
+
+    // ids das arestas que chegam em cada vértice, agrupados pelo destino
+    final IntBuffer inicioEntrada;
+    final IntBuffer arestasEntrada;
+
+    // localização de cada vértice, ou null se o grafo não tiver localização em todos os vértices
+    final DoubleBuffer coordenadaX;
+    final DoubleBuffer coordenadaY;
+    // menor peso por unidade de distância em linha reta entre as arestas (0 se não tiver localização)
+    // com ele, fator * distância em linha reta nunca passa do caminho mínimo, e isso é a estimativa do A*
+    final double fatorEstimativa;
+    // cada aresta é uma via de mão dupla guardada uma vez só
+    final boolean naoDirecionado;
+
+    private GrafoCompacto(List<T> valores, int[] inicioSaida, int[] origens, int[] destinos, float[] pesos, boolean naoDirecionado) {
+        this.valores = valores;
+        this.indice = new HashMap<>(valores.size() * 2);
+        for (int i = 0; i < valores.size(); i++) {
+            this.indice.putIfAbsent(valores.get(i), i);
+        }
+        this.tabelaIndice = null;
+        this.inicioSaida = IntBuffer.wrap(inicioSaida);
+        this.origens = IntBuffer.wrap(origens);
+        this.destinos = IntBuffer.wrap(destinos);
+        this.pesos = FloatBuffer.wrap(pesos);
+
+        // monta a lista de entrada contando quantas arestas chegam em cada vértice
+        int n = valores.size();
+        int m = destinos.length;
+        int[] inicioEntrada = new int[n + 1];
+        for (int a = 0; a < m; a++) {
+            inicioEntrada[destinos[a] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inicioEntrada[v + 1] += inicioEntrada[v];
+        }
+        int[] arestasEntrada = new int[m];
+        int[] proxima = Arrays.copyOf(inicioEntrada, n);
+        for (int a = 0; a < m; a++) {
+            arestasEntrada[proxima[destinos[a]]++] = a;
+        }
+        this.inicioEntrada = IntBuffer.wrap(inicioEntrada);
+        this.arestasEntrada = IntBuffer.wrap(arestasEntrada);
+        this.coordenadaX = null;
+        this.coordenadaY = null;
+        this.fatorEstimativa = 0;
+        this.naoDirecionado = naoDirecionado;
+    }
+
+    // grafo com todos os vetores prontos (usado pela leitura do arquivo binário, com as vistas do arquivo)
+    private GrafoCompacto(List<T> valores, IntBuffer tabelaIndice, IntBuffer inicioSaida, IntBuffer origens, IntBuffer destinos,
+                          FloatBuffer pesos, IntBuffer inicioEntrada, IntBuffer arestasEntrada, boolean naoDirecionado) {
+        this.valores = valores;
+        this.indice = null;
+        this.tabelaIndice = tabelaIndice;
+        this.inicioSaida = inicioSaida;
+        this.origens = origens;
+        this.destinos = destinos;
+        this.pesos = pesos;
+        this.inicioEntrada = inicioEntrada;
+        this.arestasEntrada = arestasEntrada;
+        this.coordenadaX = null;
+        this.coordenadaY = null;
+        this.fatorEstimativa = 0;
+        this.naoDirecionado = naoDirecionado;
+    }
+
+    // mesmo grafo (divide os vetores com a base), agora com a localização dos vértices (ou sem, se x
+    // for null), o fator da estimativa do A* e o indicador de não direcionado dado
+    private GrafoCompacto(GrafoCompacto<T> base, DoubleBuffer x, DoubleBuffer y, double fatorEstimativa, boolean naoDirecionado) {
+        this.valores = base.valores;
+        this.indice = base.indice;
+        this.tabelaIndice = base.tabelaIndice;
+        this.inicioSaida = base.inicioSaida;
+        this.origens = base.origens;
+        this.destinos = base.destinos;
+        this.pesos = base.pesos;
+        this.inicioEntrada = base.inicioEntrada;
+        this.arestasEntrada = base.arestasEntrada;
+        this.coordenadaX = x;
+        this.coordenadaY = y;
+        this.fatorEstimativa = fatorEstimativa;
+        this.naoDirecionado = naoDirecionado;
+    }
+
+    // cria o grafo compacto a partir das m primeiras arestas dos vetores (origem, destino, peso)
+    // origem e destino são as posições dos vértices na lista de valores
+    // as arestas de cada origem mantêm a ordem em que aparecem nos vetores
+    public static <T> GrafoCompacto<T> criar(List<T> valores, int[] origem, int[] destino, float[] peso, int m) {
+        return criar(valores, origem, destino, peso, m, false);
+    }
+
+    // mesma coisa, dizendo se cada aresta é uma via de mão dupla guardada uma vez só
+    public static <T> GrafoCompacto<T> criar(List<T> valores, int[] origem, int[] destino, float[] peso, int m, boolean naoDirecionado) {
+        int n = valores.size();
+        int[] inicioSaida = new int[n + 1];
+        for (int a = 0; a < m; a++) {
+            if (origem[a] < 0 || origem[a] >= n || destino[a] < 0 || destino[a] >= n) {
+                throw new IllegalArgumentException("Aresta com vértice inexistente: " + origem[a] + " -> " + destino[a]);
+            }
+            inicioSaida[origem[a] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inicioSaida[v + 1] += inicioSaida[v];
+        }
+        int[] origens = new int[m];
+        int[] destinos = new int[m];
+        float[] pesos = new float[m];
+        int[] proxima = Arrays.copyOf(inicioSaida, n);
+        for (int a = 0; a < m; a++) {
+            int posicao = proxima[origem[a]]++;
+            origens[posicao] = origem[a];
+            destinos[posicao] = destino[a];
+            pesos[posicao] = peso[a];
+        }
+        return new GrafoCompacto<>(Collections.unmodifiableList(new ArrayList<>(valores)), inicioSaida, origens, destinos, pesos, naoDirecionado);
+    }
+
+    // cria o grafo compacto direto dos vetores já prontos, sem copiar nem montar nada (usado pela leitura
+    // do arquivo binário, com as vistas do arquivo mapeado): os valores, a tabela de espalhamento deles
+    // (ver montarTabelaIndice), o CSR de saída com a origem de cada aresta e o CSR de entrada
+    // só os tamanhos e as pontas dos vetores de início são conferidos; um vetor estragado no meio aparece
+    // como IndexOutOfBoundsException na consulta que passar por ele, nunca como leitura fora do arquivo
+    static <T> GrafoCompacto<T> deVetores(List<T> valores, IntBuffer tabelaIndice, IntBuffer inicioSaida, IntBuffer origens,
+                                          IntBuffer destinos, FloatBuffer pesos, IntBuffer inicioEntrada, IntBuffer arestasEntrada,
+                                          boolean naoDirecionado) {
+        int n = valores.size();
+        int m = destinos.limit();
+        int tabela = tabelaIndice.limit() / 2;
+        if (tabela <= n || Integer.bitCount(tabela) != 1 || tabelaIndice.limit() != 2 * tabela
+                || inicioSaida.limit() != n + 1 || inicioSaida.get(0) != 0 || inicioSaida.get(n) != m
+                || inicioEntrada.limit() != n + 1 || inicioEntrada.get(0) != 0 || inicioEntrada.get(n) != m
+                || origens.limit() != m || pesos.limit() != m || arestasEntrada.limit() != m) {
+            throw new IllegalArgumentException("Vetores CSR inconsistentes");
+        }
+        return new GrafoCompacto<>(valores, tabelaIndice, inicioSaida, origens, destinos, pesos, inicioEntrada, arestasEntrada, naoDirecionado);
+    }
+
+    // devolve uma cópia deste grafo com a localização (x[v], y[v]) de cada vértice
+    // os vetores passam a pertencer ao grafo e não devem ser alterados depois
+    public GrafoCompacto<T> comLocalizacoes(double[] x, double[] y) {
+        int n = getNumeroVertices();
+        if (x.length != n || y.length != n) {
+            throw new IllegalArgumentException("É preciso uma localização para cada vértice");
+        }
+        return comLocalizacoes(DoubleBuffer.wrap(x), DoubleBuffer.wrap(y));
+    }
+
+    // mesma coisa com as vistas (as do arquivo binário, por exemplo)
+    GrafoCompacto<T> comLocalizacoes(DoubleBuffer x, DoubleBuffer y) {
+        int n = getNumeroVertices();
+        if (x.limit() != n || y.limit() != n) {
+            throw new IllegalArgumentException("É preciso uma localização para cada vértice");
+        }
+        for (int v = 0; v < n; v++) {
+            if (!Double.isFinite(x.get(v)) || !Double.isFinite(y.get(v))) {
+                throw new IllegalArgumentException("Localização inválida no vértice " + this.valores.get(v));
+            }
+        }
+        GrafoCompacto<T> localizado = new GrafoCompacto<>(this, x, y, 0, this.naoDirecionado);
+        double menor = Double.POSITIVE_INFINITY;
+        for (int a = 0; a < getNumeroArestas(); a++) {
+            double comprimento = localizado.distanciaReta(this.origens.get(a), this.destinos.get(a));
+            if (comprimento > 0) {
+                menor = Math.min(menor, this.pesos.get(a) / comprimento);
+            }
+        }
+        // uma folga pequena pra arredondamento do float não deixar a estimativa passar da distância real
+        double fator = menor > 0 && menor != Double.POSITIVE_INFINITY ? menor * (1 - 1e-6) : 0;
+        return new GrafoCompacto<>(this, x, y, fator, this.naoDirecionado);
+    }
+
+    // com as localizações e o fator da estimativa já calculado (o gravado no arquivo binário)
+    GrafoCompacto<T> comLocalizacoes(DoubleBuffer x, DoubleBuffer y, double fatorEstimativa) {
+        int n = getNumeroVertices();
+        if (x.limit() != n || y.limit() != n || !(fatorEstimativa >= 0) || fatorEstimativa == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Localizações inconsistentes");
+        }
+        return new GrafoCompacto<>(this, x, y, fatorEstimativa, this.naoDirecionado);
+    }
+
+    // o mesmo grafo (dividindo os vetores), marcado como não direcionado
+    public GrafoCompacto<T> comoNaoDirecionado() {
+        return this.naoDirecionado ? this : new GrafoCompacto<>(this, this.coordenadaX, this.coordenadaY, this.fatorEstimativa, true);
+    }
+
+    public boolean ehNaoDirecionado() {
+        return this.naoDirecionado;
+    }
+
+    public boolean temLocalizacoes() {
+        return this.coordenadaX != null;
+    }
+
+    public double getX(int vertice) {
+        return this.coordenadaX.get(vertice);
+    }
+
+    public double getY(int vertice) {
+        return this.coordenadaY.get(vertice);
+    }
+
+    // distância em linha reta entre dois vértices (só vale se o grafo tiver localizações)
+    double distanciaReta(int u, int v) {
+        double dx = this.coordenadaX.get(u) - this.coordenadaX.get(v);
+        double dy = this.coordenadaY.get(u) - this.coordenadaY.get(v);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public int getNumeroVertices() {
+        return this.valores.size();
+    }
+
+    public int getNumeroArestas() {
+        return this.destinos.limit();
+    }
+
+    // retorna a lista (somente leitura) com os valores dos vértices
+    public List<T> getValores() {
+        return this.valores;
+    }
+
+    public T getValor(int vertice) {
+        return this.valores.get(vertice);
+    }
+
+    // retorna a posição do vértice com esse valor, ou -1 se ele não existir
+    public int indiceDe(T valor) {
+        if (this.indice == null) {
+            return procurarNaTabela(valor);
+        }
+        Integer posicao = this.indice.get(valor);
+        return posicao == null ? -1 : posicao;
+    }
+
+    // tabela de espalhamento com endereçamento aberto: tamanho potência de 2 (mais que o dobro do número
+    // de vértices, então sempre sobra posição vazia), cada posição com o hashCode do valor e a posição
+    // do vértice + 1 (0 = vazia); se dois vértices tiverem o mesmo valor, só o primeiro entra, igual ao HashMap
+    static int[] montarTabelaIndice(List<?> valores) {
+        int n = valores.size();
+        int tamanho = Integer.highestOneBit(Math.max(1, 2 * n)) << 1;
+        int[] tabela = new int[2 * tamanho];
+        for (int v = 0; v < n; v++) {
+            Object valor = valores.get(v);
+            int hash = Objects.hashCode(valor);
+            int posicao = espalhar(hash) & (tamanho - 1);
+            while (tabela[2 * posicao + 1] != 0 && !(tabela[2 * posicao] == hash && Objects.equals(valores.get(tabela[2 * posicao + 1] - 1), valor))) {
+                posicao = (posicao + 1) & (tamanho - 1);
+            }
+            if (tabela[2 * posicao + 1] == 0) {
+                tabela[2 * posicao] = hash;
+                tabela[2 * posicao + 1] = v + 1;
+            }
+        }
+        return tabela;
+    }
+
+    private int procurarNaTabela(T valor) {
+        int hash = Objects.hashCode(valor);
+        int tamanho = this.tabelaIndice.limit() / 2;
+        int posicao = espalhar(hash) & (tamanho - 1);
+        for (int tentativa = 0; tentativa < tamanho; tentativa++) {
+            int vertice = this.tabelaIndice.get(2 * posicao + 1) - 1;
+            if (vertice < 0) {
+                return -1;
+            }
+            if (this.tabelaIndice.get(2 * posicao) == hash && Objects.equals(this.valores.get(vertice), valor)) {
+                return vertice;
+            }
+            posicao = (posicao + 1) & (tamanho - 1);
+        }
+        return -1;
+    }
+
+    // mistura os bits altos do hash nos baixos, como o HashMap
+    private static int espalhar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public int getOrigem(int aresta) {
+        return this.origens.get(aresta);
+    }
+
+    public int getDestino(int aresta) {
+        return this.destinos.get(aresta);
+    }
+
+    public float getPeso(int aresta) {
+        return this.pesos.get(aresta);
+    }
+
+    // as arestas que saem do vértice são os ids de inicioSaida(v) até fimSaida(v) - 1
+    public int inicioSaida(int vertice) {
+        return this.inicioSaida.get(vertice);
+    }
+
+    public int fimSaida(int vertice) {
+        return this.inicioSaida.get(vertice + 1);
+    }
+
+    // as arestas que chegam no vértice são arestaEntrada(p), com p de inicioEntrada(v) até fimEntrada(v) - 1
+    public int inicioEntrada(int vertice) {
+        return this.inicioEntrada.get(vertice);
+    }
+
+    public int fimEntrada(int vertice) {
+        return this.inicioEntrada.get(vertice + 1);
+    }
+
+    public int arestaEntrada(int posicao) {
+        return this.arestasEntrada.get(posicao);
+    }
+
+    // a vista copiada num vetor novo do tamanho dado (o que passar do fim da vista fica 0), pra montar
+    // outro grafo a partir deste
+    static int[] copiar(IntBuffer vetor, int tamanho) {
+        int[] copia = new int[tamanho];
+        vetor.duplicate().get(copia, 0, Math.min(tamanho, vetor.limit()));
+        return copia;
+    }
+
+    static float[] copiar(FloatBuffer vetor, int tamanho) {
+        float[] copia = new float[tamanho];
+        vetor.duplicate().get(copia, 0, Math.min(tamanho, vetor.limit()));
+        return copia;
+    }
+
+    // calcula a árvore geradora mínima (Kruskal) e devolve ela também como grafo compacto
+    // as arestas são ordenadas por peso num vetor de long (peso na parte alta, id na parte baixa),
+    // então não tem Comparator nem objeto por aresta
+    public GrafoCompacto<T> arvoreGeradoraMinima() {
+        long comeco = Metricas.inicio();
+        int n = getNumeroVertices();
+        int m = getNumeroArestas();
+        long[] ordem = new long[m];
+        for (int a = 0; a < m; a++) {
+            ordem[a] = chave(this.pesos.get(a), a);
+        }
+        Arrays.sort(ordem);
+
+        UniaoBusca conjuntos = new UniaoBusca(n);
+
+        int[] origem = new int[Math.max(n - 1, 0)];
+        int[] destino = new int[origem.length];
+        float[] peso = new float[origem.length];
+        int total = 0;
+        int examinadas = 0;
+        for (; examinadas < m && total < n - 1; examinadas++) {
+            int a = (int) ordem[examinadas];
+            if (conjuntos.unir(this.origens.get(a), this.destinos.get(a))) {
+                origem[total] = this.origens.get(a);
+                destino[total] = this.destinos.get(a);
+                peso[total] = this.pesos.get(a);
+                total++;
+            }
+        }
+        Metricas.registrarAgm("kruskal", comeco, n, examinadas, conjuntos);
+        return criar(this.valores, origem, destino, peso, total, this.naoDirecionado);
+    }
+
+    // mesma árvore geradora mínima (mesmo peso total), calculada pelo Borůvka usando todos os núcleos
+    public GrafoCompacto<T> arvoreGeradoraMinimaParalela() {
+        return arvoreGeradoraMinimaParalela(ForkJoinPool.commonPool());
+    }
+
+    public GrafoCompacto<T> arvoreGeradoraMinimaParalela(ForkJoinPool pool) {
+        return BoruvkaParalelo.calcular(this, pool);
+    }
+
+    // transforma o float num int que ordena igual ao float (também para pesos negativos)
+    static int chaveOrdenavel(float peso) {
+        int bits = Float.floatToIntBits(peso);
+        return bits < 0 ? bits ^ 0x7FFFFFFF : bits;
+    }
+
+    // junta a chave do peso (parte alta) com um id (parte baixa), pra ordenar pares como um long só
+    static long chave(float peso, int id) {
+        return ((long) chaveOrdenavel(peso) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    // calcula a menor distância entre dois vértices, tratando as arestas como vias de mão dupla
+    // devolve Float.POSITIVE_INFINITY se não houver caminho
+    // pra várias consultas seguidas é melhor criar uma BuscaCaminhoMinimo e reaproveitar
+    public float caminhoMinimo(int origem, int destino) {
+        return new BuscaCaminhoMinimo<>(this).distancia(origem, destino);
+    }
+
+    // se o grafo tem ciclo: no direcionado, seguindo o sentido das arestas (ver analisarOrdenacaoTopologica);
+    // no não direcionado ir e voltar pela mesma via não é ciclo, então é pelo union-find: tem ciclo
+    // se alguma aresta liga dois vértices que já estavam ligados
+    public boolean temCiclo() {
+        if (!this.naoDirecionado) {
+            return analisarOrdenacaoTopologica().temCiclo();
+        }
+        UniaoBusca conjuntos = new UniaoBusca(getNumeroVertices());
+        for (int a = 0; a < getNumeroArestas(); a++) {
+            if (!conjuntos.unir(this.origens.get(a), this.destinos.get(a))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ordenação topológica pelo algoritmo de Kahn: vai tirando os vértices sem arestas de entrada
+    // devolve os ids dos vértices em ordem, ou null se o grafo tiver ciclo
+    public int[] ordenacaoTopologica() {
+        return analisarOrdenacaoTopologica().ordem;
+    }
+
+    // faz a ordenação topológica e, se não der, encontra um ciclo, tudo numa passada só em O(V + E)
+    // não usa recursão, então serve pra cadeias de dependência de qualquer tamanho
+    // no não direcionado cada via vale nos dois sentidos, então qualquer aresta impede a ordenação
+    // (o ciclo devolvido é ir e voltar pela primeira via)
+    public OrdenacaoTopologica<T> analisarOrdenacaoTopologica() {
+        int n = getNumeroVertices();
+        if (this.naoDirecionado && getNumeroArestas() > 0) {
+            int[] ciclo = this.origens.get(0) == this.destinos.get(0)
+                    ? new int[] {this.origens.get(0)}
+                    : new int[] {this.origens.get(0), this.destinos.get(0)};
+            return new OrdenacaoTopologica<>(this, null, ciclo);
+        }
+        int[] grauEntrada = new int[n];
+        for (int v = 0; v < n; v++) {
+            grauEntrada[v] = this.inicioEntrada.get(v + 1) - this.inicioEntrada.get(v);
+        }
+        // o próprio vetor de resultado serve de fila
+        int[] ordem = new int[n];
+        int fim = 0;
+        for (int v = 0; v < n; v++) {
+            if (grauEntrada[v] == 0) {
+                ordem[fim++] = v;
+            }
+        }
+        for (int inicio = 0; inicio < fim; inicio++) {
+            int u = ordem[inicio];
+            for (int a = this.inicioSaida.get(u); a < this.inicioSaida.get(u + 1); a++) {
+                if (--grauEntrada[this.destinos.get(a)] == 0) {
+                    ordem[fim++] = this.destinos.get(a);
+                }
+            }
+        }
+        if (fim == n) {
+            return new OrdenacaoTopologica<>(this, ordem, null);
+        }
+        return new OrdenacaoTopologica<>(this, null, encontrarCiclo(grauEntrada));
+    }
+
+    // os vértices que sobraram no Kahn (grau de entrada > 0) têm sempre uma aresta chegando de outro
+    // que também sobrou, então andando pra trás por essas arestas uma hora se repete um vértice
+    private int[] encontrarCiclo(int[] grauEntrada) {
+        int n = getNumeroVertices();
+        int inicio = 0;
+        while (grauEntrada[inicio] == 0) {
+            inicio++;
+        }
+        // posição de cada vértice no passeio, ou -1 se ainda não passou por ele
+        int[] passo = new int[n];
+        Arrays.fill(passo, -1);
+        int[] passeio = new int[n + 1];
+        int tamanho = 0;
+        int atual = inicio;
+        while (passo[atual] < 0) {
+            passo[atual] = tamanho;
+            passeio[tamanho++] = atual;
+            int anterior = -1;
+            for (int p = this.inicioEntrada.get(atual); p < this.inicioEntrada.get(atual + 1) && anterior < 0; p++) {
+                int origem = this.origens.get(this.arestasEntrada.get(p));
+                if (grauEntrada[origem] > 0) {
+                    anterior = origem;
+                }
+            }
+            atual = anterior;
+        }
+        // o passeio foi feito contra o sentido das arestas, então o ciclo sai invertido
+        int primeiro = passo[atual];
+        int[] ciclo = new int[tamanho - primeiro];
+        for (int i = 0; i < ciclo.length; i++) {
+            ciclo[i] = passeio[tamanho - 1 - i];
+        }
+        return ciclo;
+    }
+}
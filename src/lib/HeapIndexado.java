@@ -0,0 +1,129 @@
+package lib;
+
+import java.util.Arrays;
+
+// fila de prioridade de vértices em um heap 4-ário guardado em vetor de int
+// a prioridade de cada vértice é lida do vetor de chaves passado no construtor,
+// e o heap guarda a posição de cada vértice, então dá pra diminuir a chave sem duplicar entradas
+class HeapIndexado {
+
+    private static final int ARIDADE = 4;
+
+    private final double[] chave;
+    private final int[] heap;
+    // posição do vértice no heap, ou -1 se ele não estiver na fila
+    private final int[] posicao;
+    private int tamanho;
+    // operações desde o último limpar, pras Metricas
+    private long insercoes;
+    private long diminuicoes;
+
+    HeapIndexado(double[] chave) {
+        this.chave = chave;
+        this.heap = new int[chave.length];
+        this.posicao = new int[chave.length];
+        Arrays.fill(this.posicao, -1);
+    }
+
+    boolean vazio() {
+        return this.tamanho == 0;
+    }
+
+    int tamanho() {
+        return this.tamanho;
+    }
+
+    boolean contem(int vertice) {
+        return this.posicao[vertice] >= 0;
+    }
+
+    // vértice com a menor chave, sem tirar da fila
+    int minimo() {
+        return this.heap[0];
+    }
+
+    void inserir(int vertice) {
+        this.insercoes++;
+        this.heap[this.tamanho] = vertice;
+        this.posicao[vertice] = this.tamanho;
+        subir(this.tamanho++);
+    }
+
+    // deve ser chamado depois que a chave do vértice diminuiu
+    void diminuir(int vertice) {
+        this.diminuicoes++;
+        subir(this.posicao[vertice]);
+    }
+
+    int removerMinimo() {
+        int minimo = this.heap[0];
+        this.posicao[minimo] = -1;
+        if (--this.tamanho > 0) {
+            int ultimo = this.heap[this.tamanho];
+            this.heap[0] = ultimo;
+            this.posicao[ultimo] = 0;
+            descer(0);
+        }
+        return minimo;
+    }
+
+    // esvazia a fila mexendo só nas posições que estavam ocupadas
+    void limpar() {
+        for (int i = 0; i < this.tamanho; i++) {
+            this.posicao[this.heap[i]] = -1;
+        }
+        this.tamanho = 0;
+        this.insercoes = 0;
+        this.diminuicoes = 0;
+    }
+
+    long getInsercoes() {
+        return this.insercoes;
+    }
+
+    long getDiminuicoes() {
+        return this.diminuicoes;
+    }
+
+    private void subir(int i) {
+        int vertice = this.heap[i];
+        double valor = this.chave[vertice];
+        while (i > 0) {
+            int pai = (i - 1) / ARIDADE;
+            if (this.chave[this.heap[pai]] <= valor) {
+                break;
+            }
+            this.heap[i] = this.heap[pai];
+            this.posicao[this.heap[i]] = i;
+            i = pai;
+        }
+        this.heap[i] = vertice;
+        this.posicao[vertice] = i;
+    }
+
+    private void descer(int i) {
+        int vertice = this.heap[i];
+        double valor = this.chave[vertice];
+        while (true) {
+            int primeiro = i * ARIDADE + 1;
+            if (primeiro >= this.tamanho) {
+                break;
+            }
+            int menor = primeiro;
+            int ultimo = Math.min(primeiro + ARIDADE, this.tamanho);
+            for (int filho = primeiro + 1; filho < ultimo; filho++) {
+                if (this.chave[this.heap[filho]] < this.chave[this.heap[menor]]) {
+                    menor = filho;
+                }
+            }
+            if (this.chave[this.heap[menor]] >= valor) {
+                break;
+            }
+            this.heap[i] = this.heap[menor];
+            this.posicao[this.heap[i]] = i;
+            i = menor;
+        }
+        this.heap[i] = vertice;
+        this.posicao[vertice] = i;
+    }
+}
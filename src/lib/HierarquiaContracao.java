@@ -0,0 +1,132 @@
+package lib;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// hierarquia de contração do grafo compacto, pra responder muitas consultas de caminho mínimo
+// num grafo que quase não muda (ver ContracaoParalela para a construção)
+// cada vértice tem um nível (a ordem em que foi contraído) e uma lista de arestas que vão pra vértices
+// de nível maior: as arestas originais e os atalhos criados na contração, cada atalho lembrando
+// o vértice do meio pra dar pra desmontar ele no caminho original
+// a consulta (ConsultaHierarquia) só sobe de nível a partir da origem e do destino, então fecha
+// poucas centenas de vértices mesmo em grafos de milhões
+// os vértices do núcleo (a parte densa que não vale contrair) ficam com os níveis mais altos e com
+// as ligações entre eles nos dois sentidos, então dentro do núcleo a consulta é um Dijkstra comum
+// as arestas são tratadas como vias de mão dupla, igual ao Grafo.calcularCaminhoMinimo
+// como no GrafoCompacto, os vetores são vistas: de vetores comuns quando a hierarquia é construída,
+// e do arquivo mapeado quando ela é lida do ArquivoBinario
+public class HierarquiaContracao<T> {
+
+    private final GrafoCompacto<T> grafo;
+    final IntBuffer nivel;
+    // primeiro nível do núcleo (igual ao número de vértices se não tiver núcleo)
+    final int inicioNucleo;
+    // arestas pra cima no formato CSR: as de v ficam de inicio[v] até inicio[v + 1] - 1
+    final IntBuffer inicio;
+    final IntBuffer destinos;
+    final DoubleBuffer pesos;
+    // vértice do meio de cada atalho, ou -1 se for uma aresta do grafo original
+    final IntBuffer meios;
+    // vértice de nível menor de cada aresta (a outra ponta é o destino dela), usado pra desmontar os atalhos
+    final IntBuffer donos;
+
+    HierarquiaContracao(GrafoCompacto<T> grafo, int[] nivel, int inicioNucleo, int[] inicio, int[] destinos, double[] pesos, int[] meios) {
+        int[] donos = new int[destinos.length];
+        for (int v = 0; v < nivel.length; v++) {
+            Arrays.fill(donos, inicio[v], inicio[v + 1], v);
+        }
+        this.grafo = grafo;
+        this.nivel = IntBuffer.wrap(nivel);
+        this.inicioNucleo = inicioNucleo;
+        this.inicio = IntBuffer.wrap(inicio);
+        this.destinos = IntBuffer.wrap(destinos);
+        this.pesos = DoubleBuffer.wrap(pesos);
+        this.meios = IntBuffer.wrap(meios);
+        this.donos = IntBuffer.wrap(donos);
+    }
+
+    private HierarquiaContracao(GrafoCompacto<T> grafo, IntBuffer nivel, int inicioNucleo, IntBuffer inicio, IntBuffer destinos,
+                                DoubleBuffer pesos, IntBuffer meios, IntBuffer donos) {
+        this.grafo = grafo;
+        this.nivel = nivel;
+        this.inicioNucleo = inicioNucleo;
+        this.inicio = inicio;
+        this.destinos = destinos;
+        this.pesos = pesos;
+        this.meios = meios;
+        this.donos = donos;
+    }
+
+    // monta a hierarquia a partir das vistas de um arquivo, conferindo se elas fazem sentido
+    static <T> HierarquiaContracao<T> deVetores(GrafoCompacto<T> grafo, IntBuffer nivel, int inicioNucleo, IntBuffer inicio,
+                                                IntBuffer destinos, DoubleBuffer pesos, IntBuffer meios, IntBuffer donos) {
+        int n = grafo.getNumeroVertices();
+        int m = destinos.limit();
+        if (nivel.limit() != n || inicioNucleo < 0 || inicioNucleo > n || inicio.limit() != n + 1 || inicio.get(0) != 0 || inicio.get(n) != m
+                || pesos.limit() != m || meios.limit() != m || donos.limit() != m) {
+            throw new IllegalArgumentException("Vetores da hierarquia inconsistentes");
+        }
+        for (int v = 0; v < n; v++) {
+            if (inicio.get(v) > inicio.get(v + 1)) {
+                throw new IllegalArgumentException("Vetores da hierarquia inconsistentes");
+            }
+            for (int a = inicio.get(v); a < inicio.get(v + 1); a++) {
+                int w = destinos.get(a);
+                int meio = meios.get(a);
+                // só dentro do núcleo uma aresta pode descer de nível
+                if (donos.get(a) != v || w < 0 || w >= n || (nivel.get(w) <= nivel.get(v) && nivel.get(v) < inicioNucleo)) {
+                    throw new IllegalArgumentException("Aresta da hierarquia que não sobe de nível: " + v + " -> " + w);
+                }
+                if (meio >= n || (meio >= 0 && (nivel.get(meio) >= nivel.get(v) || nivel.get(meio) >= nivel.get(w)))) {
+                    throw new IllegalArgumentException("Atalho da hierarquia com vértice do meio inválido: " + meio);
+                }
+            }
+        }
+        return new HierarquiaContracao<>(grafo, nivel, inicioNucleo, inicio, destinos, pesos, meios, donos);
+    }
+
+    // constrói a hierarquia usando todos os núcleos
+    public static <T> HierarquiaContracao<T> construir(GrafoCompacto<T> grafo) {
+        return construir(grafo, ForkJoinPool.commonPool());
+    }
+
+    public static <T> HierarquiaContracao<T> construir(GrafoCompacto<T> grafo, ForkJoinPool pool) {
+        return ContracaoParalela.calcular(grafo, pool);
+    }
+
+    public GrafoCompacto<T> getGrafo() {
+        return grafo;
+    }
+
+    // total de arestas da hierarquia (originais e atalhos)
+    public int getNumeroArestas() {
+        return destinos.limit();
+    }
+
+    // quantos vértices ficaram no núcleo sem contrair
+    public int getTamanhoNucleo() {
+        return nivel.limit() - inicioNucleo;
+    }
+
+    public int getNumeroAtalhos() {
+        int total = 0;
+        for (int a = 0; a < meios.limit(); a++) {
+            if (meios.get(a) >= 0) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // a aresta da hierarquia entre o vértice de nível menor e o outro, ou -1 se não existir
+    int arestaEntre(int menor, int outro) {
+        for (int a = inicio.get(menor); a < inicio.get(menor + 1); a++) {
+            if (destinos.get(a) == outro) {
+                return a;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,81 @@
+package lib;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// histograma de valores não negativos (tempos em nanossegundos, tamanhos...) em faixas de potência de 2:
+// a faixa k guarda os valores de 2^(k-1) até 2^k - 1 (a faixa 0 guarda o zero)
+// pode ser alimentado por várias threads ao mesmo tempo sem trava; os percentis são aproximados
+// pelo topo da faixa, então erram no máximo por um fator 2
+public class Histograma {
+
+    private static final int FAIXAS = 64;
+
+    private final String nome;
+    private final LongAdder[] faixas = new LongAdder[FAIXAS];
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    Histograma(String nome) {
+        this.nome = nome;
+        for (int k = 0; k < FAIXAS; k++) {
+            faixas[k] = new LongAdder();
+        }
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    void registrar(long valor) {
+        long v = Math.max(valor, 0);
+        faixas[64 - Long.numberOfLeadingZeros(v)].increment();
+        total.increment();
+        soma.add(v);
+        maximo.accumulate(v);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getSoma() {
+        return soma.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long quantos = getTotal();
+        return quantos == 0 ? 0 : (double) getSoma() / quantos;
+    }
+
+    // valor abaixo do qual ficam a fração p (entre 0 e 1) dos registros, pelo topo da faixa
+    public long percentil(double p) {
+        long quantos = getTotal();
+        if (quantos == 0) {
+            return 0;
+        }
+        long alvo = (long) Math.ceil(p * quantos);
+        long acumulado = 0;
+        for (int k = 0; k < FAIXAS; k++) {
+            acumulado += faixas[k].sum();
+            if (acumulado >= alvo) {
+                return Math.min(k == 0 ? 0 : (1L << k) - 1, getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    void zerar() {
+        for (LongAdder faixa : faixas) {
+            faixa.reset();
+        }
+        total.reset();
+        soma.reset();
+        maximo.reset();
+    }
+}
@@ -0,0 +1,453 @@
+package lib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// lê grafos dos arquivos de texto, no formato de matriz de adjacência ou de lista de arestas (ver FormatoTexto)
+// o arquivo é lido em blocos e os números são convertidos direto dos bytes, sem criar String por célula,
+// e só as posições diferentes de zero da matriz viram arestas, então a matriz inteira nunca fica na memória
+// a matriz simétrica (cada estrada aparecendo em i,j e em j,i com o mesmo peso) vira um grafo não
+// direcionado, com uma aresta por estrada; a lista de arestas vira não direcionada se o cabeçalho
+// tiver "nd" depois do número de arestas
+public final class LeitorGrafo {
+
+    private static final int TAMANHO_BLOCO = 1 << 20;
+    // a partir desse tamanho de arquivo vale a pena dividir as linhas da matriz entre threads
+    private static final long LIMITE_PARALELO = 64L << 20;
+
+    // 10^0 até 10^10, todas exatas em float
+    private static final float[] POTENCIAS_DE_DEZ = new float[11];
+    // mantissas abaixo disso são exatas em float
+    private static final long LIMITE_MANTISSA = 1L << 24;
+
+    static {
+        POTENCIAS_DE_DEZ[0] = 1;
+        for (int i = 1; i < POTENCIAS_DE_DEZ.length; i++) {
+            POTENCIAS_DE_DEZ[i] = POTENCIAS_DE_DEZ[i - 1] * 10;
+        }
+    }
+
+    private LeitorGrafo() {
+    }
+
+    // lê o arquivo descobrindo sozinho o formato dele
+    public static Grafo<String> ler(Path arquivo) throws IOException {
+        if (detectarFormato(arquivo) == FormatoTexto.LISTA_ARESTAS) {
+            return lerListaArestas(arquivo);
+        }
+        return lerMatriz(arquivo);
+    }
+
+    // olha só o cabeçalho e o primeiro valor depois das cidades: se a primeira linha traz o número
+    // de arestas, ou se o primeiro valor não é um número (é o nome da cidade de origem), é lista de arestas
+    public static FormatoTexto detectarFormato(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            LeitorBytes leitor = new LeitorBytes(canal, ByteBuffer.allocate(1 << 16));
+            Cabecalho cabecalho = lerCabecalho(leitor, false);
+            if (cabecalho.arestas >= 0) {
+                return FormatoTexto.LISTA_ARESTAS;
+            }
+            String primeiro = leitor.lerCampo();
+            if (primeiro == null) {
+                return FormatoTexto.MATRIZ;
+            }
+            try {
+                Float.parseFloat(primeiro);
+                return FormatoTexto.MATRIZ;
+            } catch (NumberFormatException e) {
+                return FormatoTexto.LISTA_ARESTAS;
+            }
+        }
+    }
+
+    // lê a lista de arestas, uma aresta "origem,destino,peso" por linha depois das cidades
+    // linhas em branco são ignoradas e cidades que não estavam no cabeçalho são criadas
+    // com "nd" no cabeçalho, arestas repetidas entre as mesmas cidades ficam só com o menor peso
+    public static Grafo<String> lerListaArestas(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            LeitorBytes leitor = new LeitorBytes(canal, ByteBuffer.allocateDirect(TAMANHO_BLOCO));
+            Cabecalho cabecalho = lerCabecalho(leitor, true);
+            Grafo<String> grafo = criarGrafo(cabecalho, cabecalho.naoDirecionado);
+            int linha = 0;
+            String origem;
+            while ((origem = leitor.lerCampo()) != null) {
+                linha++;
+                if (origem.isEmpty() && leitor.separador != ',') {
+                    continue;
+                }
+                if (leitor.separador != ',') {
+                    throw new NumberFormatException("Aresta " + linha + " não está no formato origem,destino,peso");
+                }
+                String destino = leitor.lerCampo();
+                if (destino == null || leitor.separador != ',') {
+                    throw new NumberFormatException("Aresta " + linha + " não está no formato origem,destino,peso");
+                }
+                float peso = leitor.lerNumero();
+                if (leitor.separador == ',') {
+                    leitor.pularLinha();
+                }
+                grafo.adicionarAresta(origem, destino, peso);
+            }
+            return grafo;
+        }
+    }
+
+    // lê a matriz, dividindo as linhas entre os núcleos quando o arquivo é grande
+    public static Grafo<String> lerMatriz(Path arquivo) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        return lerMatriz(arquivo, Files.size(arquivo) >= LIMITE_PARALELO ? threads : 1);
+    }
+
+    // lê a matriz usando o número de threads informado (1 lê tudo em sequência)
+    // erros de formato no arquivo viram NumberFormatException
+    public static Grafo<String> lerMatriz(Path arquivo, int threads) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (threads > 1 && canal.size() <= Integer.MAX_VALUE) {
+                return lerMatrizParalela(canal, threads);
+            }
+            LeitorBytes leitor = new LeitorBytes(canal, ByteBuffer.allocateDirect(TAMANHO_BLOCO));
+            Cabecalho cabecalho = lerCabecalho(leitor, true);
+            int n = cabecalho.cidades;
+            // as posições diferentes de zero ficam em vetores primitivos até o fim, pra saber se a
+            // matriz é simétrica antes de criar as arestas
+            ListaArestas arestas = new ListaArestas(n);
+            for (int i = 0; i < n; i++) {
+                lerLinhaMatriz(leitor, i, n, arestas);
+            }
+            return montarMatriz(cabecalho, arestas);
+        }
+    }
+
+    // cria o grafo da matriz: não direcionado, com só a metade de cima (e a diagonal), se a matriz
+    // for simétrica; senão direcionado, com todas as posições
+    private static Grafo<String> montarMatriz(Cabecalho cabecalho, ListaArestas arestas) {
+        boolean simetrica = simetrica(arestas, cabecalho.cidades);
+        Grafo<String> grafo = criarGrafo(cabecalho, simetrica);
+        List<Vertice<String>> vertices = grafo.getVertices();
+        for (int k = 0; k < arestas.tamanho; k++) {
+            if (!simetrica || arestas.origens[k] <= arestas.destinos[k]) {
+                grafo.adicionarAresta(vertices.get(arestas.origens[k]), vertices.get(arestas.destinos[k]), arestas.pesos[k]);
+            }
+        }
+        return grafo;
+    }
+
+    // as posições chegam linha por linha, então as de cima da diagonal já estão na ordem (i, j); as de
+    // baixo são postas na ordem (j, i) agrupando pela coluna (counting sort, O(n + arestas)), e a matriz
+    // é simétrica se as duas sequências forem o espelho uma da outra, com os mesmos pesos
+    static boolean simetrica(ListaArestas arestas, int n) {
+        int acima = 0;
+        int abaixo = 0;
+        int[] inicioColuna = new int[n + 1];
+        for (int k = 0; k < arestas.tamanho; k++) {
+            if (arestas.origens[k] < arestas.destinos[k]) {
+                acima++;
+            } else if (arestas.origens[k] > arestas.destinos[k]) {
+                abaixo++;
+                inicioColuna[arestas.destinos[k] + 1]++;
+            }
+        }
+        if (acima != abaixo) {
+            return false;
+        }
+        for (int j = 0; j < n; j++) {
+            inicioColuna[j + 1] += inicioColuna[j];
+        }
+        int[] porColuna = new int[abaixo];
+        for (int k = 0; k < arestas.tamanho; k++) {
+            if (arestas.origens[k] > arestas.destinos[k]) {
+                porColuna[inicioColuna[arestas.destinos[k]]++] = k;
+            }
+        }
+        int espelho = 0;
+        for (int k = 0; k < arestas.tamanho; k++) {
+            if (arestas.origens[k] < arestas.destinos[k]) {
+                int outra = porColuna[espelho++];
+                if (arestas.origens[outra] != arestas.destinos[k] || arestas.destinos[outra] != arestas.origens[k]
+                        || arestas.pesos[outra] != arestas.pesos[k]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // mapeia o arquivo na memória, acha onde começa cada linha da matriz e converte
+    // blocos de linhas em paralelo; as arestas entram no grafo na ordem das linhas
+    private static Grafo<String> lerMatrizParalela(FileChannel canal, int threads) throws IOException {
+        MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        Cabecalho cabecalho = lerCabecalho(new LeitorBytes(null, mapa), true);
+        int n = cabecalho.cidades;
+
+        int limite = mapa.limit();
+        int[] inicioLinha = new int[n + 1];
+        int posicao = mapa.position();
+        for (int i = 0; i < n; i++) {
+            if (posicao >= limite) {
+                throw new NumberFormatException("A matriz tem menos linhas do que cidades");
+            }
+            inicioLinha[i] = posicao;
+            while (posicao < limite && mapa.get(posicao) != '\n') {
+                posicao++;
+            }
+            posicao = Math.min(posicao + 1, limite);
+        }
+        inicioLinha[n] = posicao;
+
+        int blocos = Math.min(n, threads * 4);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<ListaArestas>> partes = new ArrayList<>(blocos);
+            for (int b = 0; b < blocos; b++) {
+                int de = (int) ((long) n * b / blocos);
+                int ate = (int) ((long) n * (b + 1) / blocos);
+                partes.add(pool.submit(() -> {
+                    ByteBuffer trecho = mapa.duplicate();
+                    trecho.limit(inicioLinha[ate]).position(inicioLinha[de]);
+                    LeitorBytes leitor = new LeitorBytes(null, trecho.slice());
+                    ListaArestas arestas = new ListaArestas(ate - de);
+                    for (int i = de; i < ate; i++) {
+                        lerLinhaMatriz(leitor, i, n, arestas);
+                    }
+                    return arestas;
+                }));
+            }
+            ListaArestas arestas = new ListaArestas(n);
+            for (Future<ListaArestas> parte : partes) {
+                arestas.adicionarTodas(parte.get());
+            }
+            return montarMatriz(cabecalho, arestas);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Leitura interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // primeira linha do arquivo e os nomes das cidades
+    private static final class Cabecalho {
+        int cidades;
+        // número de arestas, ou -1 quando a primeira linha só tem o número de cidades
+        int arestas = -1;
+        // "nd" depois do número de arestas
+        boolean naoDirecionado;
+        final List<String> nomes = new ArrayList<>();
+    }
+
+    // lê a primeira linha e os nomes (guardados no cabeçalho só se guardarNomes for true)
+    private static Cabecalho lerCabecalho(LeitorBytes leitor, boolean guardarNomes) throws IOException {
+        String primeira = leitor.lerLinha();
+        if (primeira == null) {
+            throw new IOException("Arquivo vazio");
+        }
+        if (primeira.startsWith("\uFEFF")) {
+            primeira = primeira.substring(1);
+        }
+        String[] numeros = primeira.trim().split("[\\s,]+");
+        Cabecalho cabecalho = new Cabecalho();
+        cabecalho.cidades = Integer.parseInt(numeros[0]);
+        if (numeros.length > 1) {
+            cabecalho.arestas = Integer.parseInt(numeros[1]);
+        }
+        if (numeros.length > 2) {
+            if (!numeros[2].equals(FormatoTexto.NAO_DIRECIONADO)) {
+                throw new NumberFormatException("Indicador desconhecido no cabeçalho: " + numeros[2]);
+            }
+            cabecalho.naoDirecionado = true;
+        }
+        for (int i = 0; i < cabecalho.cidades; i++) {
+            String cidade = leitor.lerLinha();
+            if (cidade == null) {
+                throw new NumberFormatException("O arquivo tem menos cidades do que o informado");
+            }
+            if (guardarNomes) {
+                cabecalho.nomes.add(cidade.trim());
+            }
+        }
+        return cabecalho;
+    }
+
+    // grafo com um vértice por cidade do cabeçalho, na ordem do arquivo
+    private static Grafo<String> criarGrafo(Cabecalho cabecalho, boolean naoDirecionado) {
+        Grafo<String> grafo = new Grafo<>(naoDirecionado);
+        for (String nome : cabecalho.nomes) {
+            grafo.adicionaVertice(nome);
+        }
+        return grafo;
+    }
+
+    // lê uma linha da matriz e guarda as posições diferentes de zero como arestas
+    // valores a mais no fim da linha são ignorados, valores a menos são erro
+    private static void lerLinhaMatriz(LeitorBytes leitor, int linha, int n, ListaArestas arestas) throws IOException {
+        for (int j = 0; j < n; j++) {
+            float valor = leitor.lerNumero();
+            if (valor != 0) {
+                arestas.adicionar(linha, j, valor);
+            }
+            int separador = leitor.separador;
+            if (j < n - 1 && separador != ',') {
+                throw new NumberFormatException("A linha " + (linha + 1) + " da matriz não tem " + n + " valores");
+            }
+        }
+        if (leitor.separador == ',') {
+            leitor.pularLinha();
+        }
+    }
+
+    // lê bytes de um canal (em blocos) ou de um trecho já mapeado na memória
+    private static final class LeitorBytes {
+
+        private final FileChannel canal;
+        private final ByteBuffer buffer;
+        // bytes do número ou da linha sendo lida
+        private byte[] token = new byte[64];
+        private int tamanhoToken;
+        // o caractere que terminou o último número (',' ou '\n'), ou -1 no fim do arquivo
+        int separador;
+
+        LeitorBytes(FileChannel canal, ByteBuffer buffer) {
+            this.canal = canal;
+            this.buffer = buffer;
+            if (canal != null) {
+                buffer.limit(0);
+            }
+        }
+
+        private int proximo() throws IOException {
+            if (!buffer.hasRemaining()) {
+                if (canal == null) {
+                    return -1;
+                }
+                buffer.clear();
+                int lidos = canal.read(buffer);
+                buffer.flip();
+                if (lidos <= 0) {
+                    return -1;
+                }
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        private void guardar(int c) {
+            if (tamanhoToken == token.length) {
+                token = Arrays.copyOf(token, token.length * 2);
+            }
+            token[tamanhoToken++] = (byte) c;
+        }
+
+        // lê até o fim da linha e devolve o texto (UTF-8), ou null se o arquivo já acabou
+        String lerLinha() throws IOException {
+            tamanhoToken = 0;
+            int c = proximo();
+            if (c < 0) {
+                return null;
+            }
+            while (c >= 0 && c != '\n') {
+                guardar(c);
+                c = proximo();
+            }
+            return new String(token, 0, tamanhoToken, StandardCharsets.UTF_8);
+        }
+
+        // lê um campo de texto até a vírgula ou o fim da linha, sem os espaços das pontas
+        // devolve null se o arquivo já acabou
+        String lerCampo() throws IOException {
+            tamanhoToken = 0;
+            int c = proximo();
+            if (c < 0) {
+                separador = -1;
+                return null;
+            }
+            while (c >= 0 && c != ',' && c != '\n') {
+                guardar(c);
+                c = proximo();
+            }
+            separador = c;
+            return new String(token, 0, tamanhoToken, StandardCharsets.UTF_8).trim();
+        }
+
+        void pularLinha() throws IOException {
+            int c = proximo();
+            while (c >= 0 && c != '\n') {
+                c = proximo();
+            }
+            separador = c;
+        }
+
+        float lerNumero() throws IOException {
+            int c = proximo();
+            while (c == ' ' || c == '\t') {
+                c = proximo();
+            }
+            tamanhoToken = 0;
+            while (c >= 0 && c != ',' && c != '\n' && c != '\r' && c != ' ' && c != '\t') {
+                guardar(c);
+                c = proximo();
+            }
+            while (c == ' ' || c == '\t' || c == '\r') {
+                c = proximo();
+            }
+            separador = c;
+            return converter();
+        }
+
+        // caminho rápido pra números simples como 20, 20.0 ou -3.75: junta os dígitos num long
+        // e faz uma divisão em float; com a mantissa abaixo de 2^24 e até 10 casas os dois lados são
+        // exatos em float, então a divisão arredonda uma vez só, igual ao Float.parseFloat
+        // (dividir em double e depois converter pra float arredondaria duas vezes)
+        // qualquer outra coisa (expoente, Infinity, muitos dígitos) vai pelo Float.parseFloat
+        private float converter() {
+            if (tamanhoToken == 0) {
+                throw new NumberFormatException("Valor vazio na matriz");
+            }
+            int i = 0;
+            boolean negativo = token[0] == '-';
+            if (negativo || token[0] == '+') {
+                i++;
+            }
+            long mantissa = 0;
+            boolean grande = false;
+            int casas = 0;
+            boolean ponto = false;
+            boolean digito = false;
+            for (; i < tamanhoToken; i++) {
+                int b = token[i];
+                if (b >= '0' && b <= '9') {
+                    digito = true;
+                    if (!grande) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        grande = mantissa >= LIMITE_MANTISSA;
+                    }
+                    if (ponto) {
+                        casas++;
+                    }
+                } else if (b == '.' && !ponto) {
+                    ponto = true;
+                } else {
+                    return Float.parseFloat(new String(token, 0, tamanhoToken, StandardCharsets.US_ASCII));
+                }
+            }
+            if (!digito || grande || casas >= POTENCIAS_DE_DEZ.length) {
+                return Float.parseFloat(new String(token, 0, tamanhoToken, StandardCharsets.US_ASCII));
+            }
+            float valor = casas == 0 ? (float) mantissa : (float) mantissa / POTENCIAS_DE_DEZ[casas];
+            return negativo ? -valor : valor;
+        }
+    }
+}
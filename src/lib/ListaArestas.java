@@ -0,0 +1,47 @@
+package lib;
+
+import java.util.Arrays;
+
+// lista de arestas (origem, destino, peso) em vetores primitivos que crescem conforme precisa
+// usada pelos leitores de arquivo pra juntar as arestas sem criar um objeto por aresta
+final class ListaArestas {
+
+    int[] origens;
+    int[] destinos;
+    float[] pesos;
+    int tamanho;
+
+    ListaArestas(int capacidade) {
+        capacidade = Math.max(capacidade, 16);
+        this.origens = new int[capacidade];
+        this.destinos = new int[capacidade];
+        this.pesos = new float[capacidade];
+    }
+
+    void adicionar(int origem, int destino, float peso) {
+        if (tamanho == origens.length) {
+            int novaCapacidade = tamanho + (tamanho >> 1);
+            origens = Arrays.copyOf(origens, novaCapacidade);
+            destinos = Arrays.copyOf(destinos, novaCapacidade);
+            pesos = Arrays.copyOf(pesos, novaCapacidade);
+        }
+        origens[tamanho] = origem;
+        destinos[tamanho] = destino;
+        pesos[tamanho] = peso;
+        tamanho++;
+    }
+
+    // junta no fim todas as arestas da outra lista
+    void adicionarTodas(ListaArestas outra) {
+        int total = tamanho + outra.tamanho;
+        if (total > origens.length) {
+            origens = Arrays.copyOf(origens, total);
+            destinos = Arrays.copyOf(destinos, total);
+            pesos = Arrays.copyOf(pesos, total);
+        }
+        System.arraycopy(outra.origens, 0, origens, tamanho, outra.tamanho);
+        System.arraycopy(outra.destinos, 0, destinos, tamanho, outra.tamanho);
+        System.arraycopy(outra.pesos, 0, pesos, tamanho, outra.tamanho);
+        tamanho = total;
+    }
+}
@@ -0,0 +1,37 @@
+package lib;
+
+// tabela com a distância mínima entre todos os pares de vértices, calculada pelo DistanciasTodosPares
+// fica num vetor de float só, linha por linha (a linha i tem as distâncias a partir do vértice i)
+public class MatrizDistancias<T> {
+
+    private final GrafoCompacto<T> grafo;
+    private final float[] distancias;
+
+    MatrizDistancias(GrafoCompacto<T> grafo, float[] distancias) {
+        this.grafo = grafo;
+        this.distancias = distancias;
+    }
+
+    public GrafoCompacto<T> getGrafo() {
+        return grafo;
+    }
+
+    public int getNumeroVertices() {
+        return grafo.getNumeroVertices();
+    }
+
+    // distância mínima entre dois vértices, ou Float.POSITIVE_INFINITY se não houver caminho
+    public float getDistancia(int origem, int destino) {
+        return distancias[origem * grafo.getNumeroVertices() + destino];
+    }
+
+    // mesma coisa pelos valores; também devolve Float.POSITIVE_INFINITY se algum não existir
+    public float getDistancia(T origem, T destino) {
+        int o = grafo.indiceDe(origem);
+        int d = grafo.indiceDe(destino);
+        if (o < 0 || d < 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return getDistancia(o, d);
+    }
+}
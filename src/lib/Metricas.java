@@ -0,0 +1,253 @@
+package lib;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// métricas internas da biblioteca: contadores, histogramas e eventos do JDK Flight Recorder
+// ficam desligadas por padrão; ligadas com Metricas.ativar() ou com -Dgrafinhos.metricas=true
+// desligadas, cada busca ou cálculo de AGM paga só a leitura de um campo volatile (os contadores
+// de cada busca já são somados nos próprios motores, uma vez por vértice fechado, e só são
+// publicados aqui no fim, se estiver ligado)
+// ligadas, além dos contadores e histogramas daqui, cada operação gera um evento JFR
+// (grafinhos.Busca, grafinhos.Agm, grafinhos.Arquivo), gravado só se houver uma gravação JFR
+// com eles habilitados, por exemplo: java -XX:StartFlightRecording=filename=grafinhos.jfr ...
+//
+// o heap das buscas é indexado (diminui a chave no lugar), então nunca tira da fila uma entrada
+// velha; o que corresponde às retiradas obsoletas de um heap comum são as DIMINUICOES_FILA
+public final class Metricas {
+
+    public enum Contador {
+        BUSCAS,
+        VERTICES_FECHADOS,
+        ARESTAS_EXAMINADAS,
+        INSERCOES_FILA,
+        DIMINUICOES_FILA,
+        AGM_CALCULADAS,
+        AGM_ARESTAS_EXAMINADAS,
+        AGM_PASSOS_UNIAO_BUSCA,
+        CARGAS,
+        GRAVACOES
+    }
+
+    public enum Medida {
+        // tempos em nanossegundos
+        TEMPO_BUSCA,
+        TEMPO_AGM,
+        TEMPO_CARGA,
+        TEMPO_GRAVACAO,
+        // vértices fechados por busca
+        FECHADOS_POR_BUSCA,
+        // maior número de passos de um encontrar do union-find, por cálculo de AGM
+        PROFUNDIDADE_UNIAO_BUSCA
+    }
+
+    // valor devolvido pelo inicio() quando as métricas estão desligadas
+    public static final long DESLIGADO = Long.MIN_VALUE;
+
+    private static volatile boolean ativo = Boolean.getBoolean("grafinhos.metricas");
+
+    private static final Map<Contador, LongAdder> CONTADORES = new EnumMap<>(Contador.class);
+    private static final Map<Medida, Histograma> HISTOGRAMAS = new EnumMap<>(Medida.class);
+
+    static {
+        for (Contador contador : Contador.values()) {
+            CONTADORES.put(contador, new LongAdder());
+        }
+        for (Medida medida : Medida.values()) {
+            HISTOGRAMAS.put(medida, new Histograma(medida.name()));
+        }
+    }
+
+    private Metricas() {
+    }
+
+    public static void ativar() {
+        ativo = true;
+    }
+
+    public static void desativar() {
+        ativo = false;
+    }
+
+    public static boolean estaAtivo() {
+        return ativo;
+    }
+
+    // marca o começo de uma operação: System.nanoTime() se estiver ligado, ou DESLIGADO
+    public static long inicio() {
+        return ativo ? System.nanoTime() : DESLIGADO;
+    }
+
+    public static long getContador(Contador contador) {
+        return CONTADORES.get(contador).sum();
+    }
+
+    public static Histograma getHistograma(Medida medida) {
+        return HISTOGRAMAS.get(medida);
+    }
+
+    public static void zerar() {
+        for (LongAdder contador : CONTADORES.values()) {
+            contador.reset();
+        }
+        for (Histograma histograma : HISTOGRAMAS.values()) {
+            histograma.zerar();
+        }
+    }
+
+    // todos os contadores e histogramas, um por linha
+    public static String relatorio() {
+        StringBuilder texto = new StringBuilder();
+        for (Contador contador : Contador.values()) {
+            texto.append(String.format(Locale.ROOT, "%-26s %d%n", contador, getContador(contador)));
+        }
+        for (Medida medida : Medida.values()) {
+            Histograma h = getHistograma(medida);
+            texto.append(String.format(Locale.ROOT, "%-26s n=%d media=%.1f p50=%d p99=%d max=%d%n", medida,
+                    h.getTotal(), h.getMedia(), h.percentil(0.5), h.percentil(0.99), h.getMaximo()));
+        }
+        return texto.toString();
+    }
+
+    // fim de uma busca de caminho mínimo começada em inicio (vindo do inicio())
+    static void registrarBusca(String tipo, long inicio, int fechados, long arestas, long insercoes, long diminuicoes) {
+        if (inicio == DESLIGADO) {
+            return;
+        }
+        long duracao = System.nanoTime() - inicio;
+        CONTADORES.get(Contador.BUSCAS).increment();
+        CONTADORES.get(Contador.VERTICES_FECHADOS).add(fechados);
+        CONTADORES.get(Contador.ARESTAS_EXAMINADAS).add(arestas);
+        CONTADORES.get(Contador.INSERCOES_FILA).add(insercoes);
+        CONTADORES.get(Contador.DIMINUICOES_FILA).add(diminuicoes);
+        HISTOGRAMAS.get(Medida.TEMPO_BUSCA).registrar(duracao);
+        HISTOGRAMAS.get(Medida.FECHADOS_POR_BUSCA).registrar(fechados);
+
+        EventoBusca evento = new EventoBusca();
+        if (evento.shouldCommit()) {
+            evento.tipo = tipo;
+            evento.duracao = duracao;
+            evento.verticesFechados = fechados;
+            evento.arestasExaminadas = arestas;
+            evento.insercoesFila = insercoes;
+            evento.diminuicoesFila = diminuicoes;
+            evento.commit();
+        }
+    }
+
+    // fim de um cálculo de árvore geradora mínima
+    static void registrarAgm(String algoritmo, long inicio, int vertices, long arestas, UniaoBusca conjuntos) {
+        if (inicio == DESLIGADO) {
+            return;
+        }
+        long duracao = System.nanoTime() - inicio;
+        CONTADORES.get(Contador.AGM_CALCULADAS).increment();
+        CONTADORES.get(Contador.AGM_ARESTAS_EXAMINADAS).add(arestas);
+        CONTADORES.get(Contador.AGM_PASSOS_UNIAO_BUSCA).add(conjuntos.getPassos());
+        HISTOGRAMAS.get(Medida.TEMPO_AGM).registrar(duracao);
+        HISTOGRAMAS.get(Medida.PROFUNDIDADE_UNIAO_BUSCA).registrar(conjuntos.getMaiorProfundidade());
+
+        EventoAgm evento = new EventoAgm();
+        if (evento.shouldCommit()) {
+            evento.algoritmo = algoritmo;
+            evento.duracao = duracao;
+            evento.vertices = vertices;
+            evento.arestasExaminadas = arestas;
+            evento.passosUniaoBusca = conjuntos.getPassos();
+            evento.maiorProfundidade = conjuntos.getMaiorProfundidade();
+            evento.commit();
+        }
+    }
+
+    // fim da leitura de um arquivo de grafo
+    public static void registrarCarga(String arquivo, long bytes, long inicio) {
+        registrarArquivo("carga", arquivo, bytes, inicio, Contador.CARGAS, Medida.TEMPO_CARGA);
+    }
+
+    // fim da gravação de um arquivo de grafo
+    public static void registrarGravacao(String arquivo, long bytes, long inicio) {
+        registrarArquivo("gravacao", arquivo, bytes, inicio, Contador.GRAVACOES, Medida.TEMPO_GRAVACAO);
+    }
+
+    private static void registrarArquivo(String operacao, String arquivo, long bytes, long inicio, Contador contador, Medida medida) {
+        if (inicio == DESLIGADO) {
+            return;
+        }
+        long duracao = System.nanoTime() - inicio;
+        CONTADORES.get(contador).increment();
+        HISTOGRAMAS.get(medida).registrar(duracao);
+
+        EventoArquivo evento = new EventoArquivo();
+        if (evento.shouldCommit()) {
+            evento.operacao = operacao;
+            evento.arquivo = arquivo;
+            evento.bytes = bytes;
+            evento.duracao = duracao;
+            evento.commit();
+        }
+    }
+
+    @Name("grafinhos.Busca")
+    @Label("Busca de caminho mínimo")
+    @Category("grafinhos")
+    static final class EventoBusca extends Event {
+        @Label("Tipo")
+        String tipo;
+        @Label("Duração")
+        @Timespan(Timespan.NANOSECONDS)
+        long duracao;
+        @Label("Vértices fechados")
+        int verticesFechados;
+        @Label("Arestas examinadas")
+        long arestasExaminadas;
+        @Label("Inserções na fila")
+        long insercoesFila;
+        @Label("Diminuições de chave")
+        @Description("Equivalem às retiradas obsoletas de um heap sem diminuição de chave")
+        long diminuicoesFila;
+    }
+
+    @Name("grafinhos.Agm")
+    @Label("Árvore geradora mínima")
+    @Category("grafinhos")
+    static final class EventoAgm extends Event {
+        @Label("Algoritmo")
+        String algoritmo;
+        @Label("Duração")
+        @Timespan(Timespan.NANOSECONDS)
+        long duracao;
+        @Label("Vértices")
+        int vertices;
+        @Label("Arestas examinadas")
+        long arestasExaminadas;
+        @Label("Passos do union-find")
+        long passosUniaoBusca;
+        @Label("Maior profundidade do union-find")
+        int maiorProfundidade;
+    }
+
+    @Name("grafinhos.Arquivo")
+    @Label("Carga ou gravação de arquivo")
+    @Category("grafinhos")
+    static final class EventoArquivo extends Event {
+        @Label("Operação")
+        String operacao;
+        @Label("Arquivo")
+        String arquivo;
+        @Label("Tamanho")
+        @DataAmount
+        long bytes;
+        @Label("Duração")
+        @Timespan(Timespan.NANOSECONDS)
+        long duracao;
+    }
+}
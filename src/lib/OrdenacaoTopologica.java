@@ -0,0 +1,41 @@
+package lib;
+
+import java.util.*;
+
+// resultado da ordenação topológica: a ordem dos vértices, ou um ciclo que impede a ordenação
+public class OrdenacaoTopologica<T> {
+
+    private final GrafoCompacto<T> grafo;
+    // posições dos vértices na ordem encontrada, ou null se houver ciclo
+    final int[] ordem;
+    // posições dos vértices de um ciclo, seguindo o sentido das arestas, ou null se não houver ciclo
+    final int[] ciclo;
+
+    OrdenacaoTopologica(GrafoCompacto<T> grafo, int[] ordem, int[] ciclo) {
+        this.grafo = grafo;
+        this.ordem = ordem;
+        this.ciclo = ciclo;
+    }
+
+    public boolean temCiclo() {
+        return ciclo != null;
+    }
+
+    // valores dos vértices em ordem topológica, ou null se o grafo tiver ciclo
+    public List<T> getOrdem() {
+        return ordem == null ? null : valores(ordem);
+    }
+
+    // valores dos vértices de um ciclo (o último aponta de volta pro primeiro), ou null se não houver
+    public List<T> getCiclo() {
+        return ciclo == null ? null : valores(ciclo);
+    }
+
+    private List<T> valores(int[] ids) {
+        List<T> valores = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            valores.add(grafo.getValor(id));
+        }
+        return valores;
+    }
+}
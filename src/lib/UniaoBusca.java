@@ -0,0 +1,63 @@
+package lib;
+
+// conjuntos disjuntos (union-find) em vetores de int, usados pela árvore geradora mínima
+// o encontrar não usa recursão: cada passo faz o vértice apontar pro avô (path halving),
+// então cadeias longas não estouram a pilha e vão ficando curtas
+// conta os passos dados nos encontrar, pras Metricas
+class UniaoBusca {
+
+    private final int[] pai;
+    private final byte[] rank;
+    private long passos;
+    private int maiorProfundidade;
+
+    UniaoBusca(int n) {
+        this.pai = new int[n];
+        this.rank = new byte[n];
+        for (int v = 0; v < n; v++) {
+            this.pai[v] = v;
+        }
+    }
+
+    int encontrar(int v) {
+        int profundidade = 0;
+        while (pai[v] != v) {
+            pai[v] = pai[pai[v]];
+            v = pai[v];
+            profundidade++;
+        }
+        passos += profundidade;
+        if (profundidade > maiorProfundidade) {
+            maiorProfundidade = profundidade;
+        }
+        return v;
+    }
+
+    // total de passos de todos os encontrar até agora
+    long getPassos() {
+        return passos;
+    }
+
+    // maior número de passos de um encontrar só
+    int getMaiorProfundidade() {
+        return maiorProfundidade;
+    }
+
+    // junta os conjuntos de u e v; devolve false se eles já estavam juntos
+    boolean unir(int u, int v) {
+        int raizU = encontrar(u);
+        int raizV = encontrar(v);
+        if (raizU == raizV) {
+            return false;
+        }
+        if (rank[raizU] < rank[raizV]) {
+            pai[raizU] = raizV;
+        } else if (rank[raizU] > rank[raizV]) {
+            pai[raizV] = raizU;
+        } else {
+            pai[raizV] = raizU;
+            rank[raizU]++;
+        }
+        return true;
+    }
+}
@@ -6,6 +6,10 @@ public class Vertice<T> {
     // aqui a gente declara um atributo privado chamado valor, que vai ser do tipo T (pode ser qualquer tipo)
     private T valor; 
 
+    // posição do vértice dentro do grafo (0, 1, 2...), quem define é o Grafo no adicionaVertice
+    // enquanto o vértice não pertence a nenhum grafo ele fica com -1
+    private int id = -1;
+
     // esse é o construtor da classe, ele recebe um parâmetro e atribui ao atributo valor
     public Vertice(T valor) {
         this.valor = valor;
@@ -21,4 +25,14 @@ public class Vertice<T> {
         this.valor = valor;
     }
 
+    // pega o id do vértice no grafo
+    public int getId() {
+        return id;
+    }
+
+    // só o Grafo muda o id, por isso fica visível apenas dentro do pacote
+    void setId(int id) {
+        this.id = id;
+    }
+
 }
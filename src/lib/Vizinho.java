@@ -0,0 +1,25 @@
+package lib;
+
+// resultado das consultas de vizinhança (vértices no raio, vértices mais próximos): um vértice e a
+// distância mínima da origem até ele
+public class Vizinho<T> {
+
+    private final T valor;
+    // posição do vértice no grafo compacto
+    final int id;
+    private final float distancia;
+
+    Vizinho(T valor, int id, float distancia) {
+        this.valor = valor;
+        this.id = id;
+        this.distancia = distancia;
+    }
+
+    public T getValor() {
+        return valor;
+    }
+
+    public float getDistancia() {
+        return distancia;
+    }
+}
@@ -0,0 +1,97 @@
+package testes;
+
+import lib.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// o grafo gravado no arquivo binário e lido de volta (as consultas passam a ler direto do arquivo
+// mapeado) tem que responder igual ao original: mesmas cidades e arestas, o índice de nomes achando
+// as mesmas cidades (e nenhuma que não existe), a mesma árvore guardada, e caminhos pelo Dijkstra,
+// pelo A* e pela hierarquia gravada iguais aos do grafo em memória
+public final class VerificaArquivoBinario {
+
+    private static final int CASOS = 300;
+    private static final int CONSULTAS = 20;
+
+    private VerificaArquivoBinario() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Random sorteio = new Random(9);
+        Path arquivo = Files.createTempFile("verifica", ".bin");
+        try {
+            for (int caso = 0; caso < CASOS; caso++) {
+                conferir(sorteio, arquivo, caso);
+            }
+        } finally {
+            Files.delete(arquivo);
+        }
+        System.out.println("ok arquivo binário: " + CASOS + " grafos");
+    }
+
+    private static void conferir(Random sorteio, Path arquivo, int caso) throws IOException {
+        int n = 1 + sorteio.nextInt(60);
+        Grafo<String> grafo = new Grafo<>(caso % 3 == 0);
+        //nomes com acento, pra tabela de nomes em UTF-8
+        for (int v = 0; v < n; v++) {
+            grafo.adicionaVertice(v % 11 == 3 ? "são" + v : "v" + v);
+        }
+        int m = sorteio.nextInt(4 * n);
+        for (int e = 0; e < m; e++) {
+            grafo.adicionarAresta(grafo.getVertices().get(sorteio.nextInt(n)).getValor(), grafo.getVertices().get(sorteio.nextInt(n)).getValor(), 1 + sorteio.nextInt(50));
+        }
+        boolean localizacoes = caso % 2 == 0;
+        if (localizacoes) {
+            Verificacoes.sortearLocalizacoes(sorteio, grafo);
+        }
+        GrafoCompacto<String> original = grafo.congelar();
+        HierarquiaContracao<String> hierarquia = caso % 4 == 0 ? null : HierarquiaContracao.construir(original);
+        ArquivoBinario.gravar(arquivo, original, original.arvoreGeradoraMinima(), hierarquia);
+        ArquivoBinario.Conteudo lido = ArquivoBinario.ler(arquivo);
+        GrafoCompacto<String> copia = lido.getGrafo();
+        String descricao = "caso " + caso;
+
+        Verificacoes.conferir(copia.getNumeroVertices() == n && copia.getNumeroArestas() == original.getNumeroArestas(), descricao + ": tamanho");
+        Verificacoes.conferir(copia.ehNaoDirecionado() == original.ehNaoDirecionado() && copia.temLocalizacoes() == localizacoes, descricao + ": modo");
+        Verificacoes.conferir(copia.getValores().equals(original.getValores()), descricao + ": nomes");
+        for (int v = 0; v < n; v++) {
+            String nome = original.getValor(v);
+            Verificacoes.conferir(copia.indiceDe(nome) == v, descricao + ": índice de " + nome);
+            Verificacoes.conferir(copia.inicioSaida(v) == original.inicioSaida(v) && copia.inicioEntrada(v) == original.inicioEntrada(v),
+                    descricao + ": vizinhança de " + nome);
+            if (localizacoes) {
+                Verificacoes.conferir(copia.getX(v) == original.getX(v) && copia.getY(v) == original.getY(v), descricao + ": localização de " + nome);
+            }
+        }
+        for (String inexistente : new String[] {"", "x", "v" + n, "são"}) {
+            Verificacoes.conferir(copia.indiceDe(inexistente) == -1, descricao + ": achou \"" + inexistente + "\"");
+        }
+        for (int e = 0; e < original.getNumeroArestas(); e++) {
+            Verificacoes.conferir(copia.getOrigem(e) == original.getOrigem(e) && copia.getDestino(e) == original.getDestino(e)
+                    && copia.getPeso(e) == original.getPeso(e) && copia.arestaEntrada(e) == original.arestaEntrada(e), descricao + ": aresta " + e);
+        }
+        Verificacoes.conferirArvore(copia, lido.getAgm(), original.arvoreGeradoraMinima(), descricao + " (árvore gravada)");
+        Verificacoes.conferir((lido.getHierarquia() == null) == (hierarquia == null), descricao + ": hierarquia");
+
+        BuscaCaminhoMinimo<String> buscaOriginal = new BuscaCaminhoMinimo<>(original);
+        BuscaCaminhoMinimo<String> buscaCopia = new BuscaCaminhoMinimo<>(copia);
+        ConsultaHierarquia<String> consultaCopia = hierarquia == null ? null : new ConsultaHierarquia<>(lido.getHierarquia());
+        for (int consulta = 0; consulta < CONSULTAS; consulta++) {
+            int origem = sorteio.nextInt(n);
+            int destino = sorteio.nextInt(n);
+            String trecho = descricao + " de " + original.getValor(origem) + " a " + original.getValor(destino);
+            Caminho<String> esperado = buscaOriginal.caminho(origem, destino);
+            Caminho<String> caminho = buscaCopia.caminho(origem, destino);
+            Verificacoes.conferir(Objects.equals(esperado == null ? null : esperado.getVertices(), caminho == null ? null : caminho.getVertices()),
+                    trecho + ": o Dijkstra no arquivo deu " + caminho + " no lugar de " + esperado);
+            float distancia = esperado == null ? Float.POSITIVE_INFINITY : esperado.getDistancia();
+            Verificacoes.conferirCaminho(copia, caminho, origem, destino, distancia, trecho + " (Dijkstra)");
+            Verificacoes.conferirCaminho(copia, buscaCopia.caminhoAEstrela(origem, destino), origem, destino, distancia, trecho + " (A*)");
+            if (consultaCopia != null) {
+                Verificacoes.conferirCaminho(copia, consultaCopia.caminho(origem, destino), origem, destino, distancia, trecho + " (hierarquia)");
+            }
+        }
+    }
+}
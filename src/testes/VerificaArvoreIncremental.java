@@ -0,0 +1,40 @@
+package testes;
+
+import lib.*;
+import java.util.*;
+
+// a árvore geradora mínima guardada no Grafo é atualizada aresta por aresta quando entram poucas
+// arestas novas; aqui ela é comparada, depois de cada leva de arestas, com o Kruskal refeito do zero
+// na mesma versão
+public final class VerificaArvoreIncremental {
+
+    private static final int CASOS = 400;
+    private static final int LEVAS = 25;
+
+    private VerificaArvoreIncremental() {
+    }
+
+    public static void main(String[] args) {
+        Random sorteio = new Random(5);
+        for (int caso = 0; caso < CASOS; caso++) {
+            int n = 2 + sorteio.nextInt(60);
+            boolean naoDirecionado = caso % 2 == 0;
+            boolean pesosInteiros = caso % 3 != 0;
+            Grafo<String> grafo = Verificacoes.sortear(sorteio, n, sorteio.nextInt(4 * n), naoDirecionado, pesosInteiros);
+            grafo.calcularArvoreGeradoraMinimaCompacta();
+            for (int leva = 0; leva < LEVAS; leva++) {
+                if (sorteio.nextInt(8) == 0) {
+                    grafo.adicionaVertice("v" + n++);
+                }
+                int novas = 1 + sorteio.nextInt(3);
+                for (int e = 0; e < novas; e++) {
+                    Verificacoes.adicionarSorteada(sorteio, grafo, n, pesosInteiros);
+                }
+                GrafoCompacto<String> atualizada = grafo.calcularArvoreGeradoraMinimaCompacta();
+                GrafoCompacto<String> versao = grafo.congelar();
+                Verificacoes.conferirArvore(versao, atualizada, versao.arvoreGeradoraMinima(), "caso " + caso + " leva " + leva);
+            }
+        }
+        System.out.println("ok árvore incremental: " + CASOS + " grafos, " + LEVAS + " levas cada");
+    }
+}
@@ -0,0 +1,39 @@
+package testes;
+
+import lib.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// o Borůvka paralelo comparado com o Kruskal no mesmo grafo, com pools de tamanhos diferentes
+// (a divisão do trabalho muda com o número de threads) e pesos inteiros pra ter muito empate,
+// que é onde uma regra de desempate errada fecha ciclo
+public final class VerificaBoruvka {
+
+    private static final int CASOS = 300;
+
+    private VerificaBoruvka() {
+    }
+
+    public static void main(String[] args) {
+        Random sorteio = new Random(6);
+        ForkJoinPool[] pools = {new ForkJoinPool(1), new ForkJoinPool(2), new ForkJoinPool(4), ForkJoinPool.commonPool()};
+        try {
+            for (int caso = 0; caso < CASOS; caso++) {
+                //de vez em quando um grafo maior, pra ter trabalho dividido de verdade entre as threads
+                int n = 1 + (caso % 10 == 0 ? sorteio.nextInt(5000) : sorteio.nextInt(80));
+                int m = sorteio.nextInt(4 * n + 1);
+                GrafoCompacto<String> grafo = Verificacoes.sortear(sorteio, n, m, caso % 2 == 0, caso % 3 != 0).congelar();
+                GrafoCompacto<String> kruskal = grafo.arvoreGeradoraMinima();
+                for (ForkJoinPool pool : pools) {
+                    Verificacoes.conferirArvore(grafo, grafo.arvoreGeradoraMinimaParalela(pool), kruskal,
+                            "caso " + caso + " com " + pool.getParallelism() + " threads");
+                }
+            }
+        } finally {
+            for (int i = 0; i < 3; i++) {
+                pools[i].shutdown();
+            }
+        }
+        System.out.println("ok borůvka: " + CASOS + " grafos, " + pools.length + " pools cada");
+    }
+}
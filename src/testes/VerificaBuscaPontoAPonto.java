@@ -0,0 +1,39 @@
+package testes;
+
+import lib.*;
+import java.util.*;
+
+// a busca bidirecional e o A* comparados com o Dijkstra comum (a árvore de caminhos mínimos da
+// origem), em grafos direcionados e não direcionados, com e sem localização das cidades; a mesma
+// BuscaCaminhoMinimo responde todas as consultas de um grafo, pra pegar estado que sobra de uma
+// busca pra outra
+public final class VerificaBuscaPontoAPonto {
+
+    private static final int CASOS = 600;
+    private static final int CONSULTAS = 30;
+
+    private VerificaBuscaPontoAPonto() {
+    }
+
+    public static void main(String[] args) {
+        Random sorteio = new Random(12);
+        for (int caso = 0; caso < CASOS; caso++) {
+            int n = 1 + sorteio.nextInt(caso % 10 == 0 ? 2000 : 60);
+            Grafo<String> grafo = Verificacoes.sortear(sorteio, n, sorteio.nextInt(3 * n + 1), caso % 2 == 0, caso % 3 != 0);
+            if (caso % 4 != 3) {
+                Verificacoes.sortearLocalizacoes(sorteio, grafo);
+            }
+            GrafoCompacto<String> compacto = grafo.congelar();
+            BuscaCaminhoMinimo<String> busca = new BuscaCaminhoMinimo<>(compacto);
+            for (int consulta = 0; consulta < CONSULTAS; consulta++) {
+                int origem = sorteio.nextInt(n);
+                int destino = sorteio.nextInt(n);
+                float esperada = new BuscaCaminhoMinimo<>(compacto).arvore(origem).getDistancia(destino);
+                String descricao = "caso " + caso + " de v" + origem + " a v" + destino;
+                Verificacoes.conferirCaminho(compacto, busca.caminhoBidirecional(origem, destino), origem, destino, esperada, descricao + " (bidirecional)");
+                Verificacoes.conferirCaminho(compacto, busca.caminhoAEstrela(origem, destino), origem, destino, esperada, descricao + " (A*)");
+            }
+        }
+        System.out.println("ok busca ponto a ponto: " + CASOS + " grafos, " + CONSULTAS + " consultas cada");
+    }
+}
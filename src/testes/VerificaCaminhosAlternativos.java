@@ -0,0 +1,91 @@
+package testes;
+
+import lib.*;
+import java.util.*;
+
+// os k caminhos mais curtos do Yen comparados com a força bruta: em grafos pequenos dá pra listar
+// todos os caminhos sem repetir vértice, ordenar pelo custo e pegar os k primeiros; como nas outras
+// buscas, toda aresta é de mão dupla, e arestas paralelas entre as mesmas cidades são caminhos
+// diferentes; a versão paralela tem que devolver exatamente os mesmos caminhos, e o primeiro
+// tem que ter a distância do caminho mínimo
+public final class VerificaCaminhosAlternativos {
+
+    private static final int CASOS = 3000;
+
+    private VerificaCaminhosAlternativos() {
+    }
+
+    public static void main(String[] args) {
+        Random sorteio = new Random(23);
+        for (int caso = 0; caso < CASOS; caso++) {
+            int n = 1 + sorteio.nextInt(7);
+            Grafo<String> grafo = Verificacoes.sortear(sorteio, n, sorteio.nextInt(13), caso % 4 == 0, caso % 3 == 0);
+            GrafoCompacto<String> compacto = grafo.congelar();
+            int origem = sorteio.nextInt(n);
+            int destino = sorteio.nextInt(n);
+            List<Double> custos = new ArrayList<>();
+            boolean[] usado = new boolean[n];
+            usado[origem] = true;
+            listarCaminhos(compacto, origem, destino, usado, 0, custos);
+            Collections.sort(custos);
+
+            int k = 1 + sorteio.nextInt(12);
+            String descricao = "caso " + caso + " de v" + origem + " a v" + destino + " com k " + k;
+            List<Caminho<String>> caminhos = grafo.caminhosMinimos("v" + origem, "v" + destino, k);
+            List<Caminho<String>> paralelos = grafo.caminhosMinimosParalelo("v" + origem, "v" + destino, k);
+            Verificacoes.conferir(caminhos.size() == Math.min(k, custos.size()),
+                    descricao + ": " + caminhos.size() + " caminhos, a força bruta dá " + custos);
+            Verificacoes.conferir(paralelos.size() == caminhos.size(), descricao + ": a versão paralela deu " + paralelos.size() + " caminhos");
+            for (int i = 0; i < caminhos.size(); i++) {
+                Caminho<String> caminho = caminhos.get(i);
+                float esperada = (float) (double) custos.get(i);
+                Verificacoes.conferir(caminho.getDistancia() == esperada, descricao + ": o caminho " + i + " custa " + caminho.getDistancia() + ", a força bruta dá " + custos);
+                //com arestas paralelas o caminho pode usar uma que não é a mais leve, então a soma não
+                //dá pra refazer pelos vértices; o custo já foi conferido com a força bruta
+                List<String> vertices = caminho.getVertices();
+                Verificacoes.conferir(vertices.get(0).equals("v" + origem) && vertices.get(vertices.size() - 1).equals("v" + destino),
+                        descricao + ": o caminho " + vertices + " não liga as pontas");
+                for (int j = 0; j + 1 < vertices.size(); j++) {
+                    float peso = Verificacoes.menorPeso(compacto, compacto.indiceDe(vertices.get(j)), compacto.indiceDe(vertices.get(j + 1)));
+                    Verificacoes.conferir(peso != Float.POSITIVE_INFINITY, descricao + ": o caminho " + vertices + " usa uma aresta que não existe");
+                }
+                Verificacoes.conferir(new HashSet<>(vertices).size() == vertices.size(), descricao + ": o caminho " + vertices + " repete vértice");
+                Verificacoes.conferir(vertices.equals(paralelos.get(i).getVertices()) && caminho.getDistancia() == paralelos.get(i).getDistancia(),
+                        descricao + ": a versão paralela deu " + paralelos.get(i).getVertices() + " no lugar de " + vertices);
+            }
+            if (!caminhos.isEmpty()) {
+                float minimo = grafo.caminhoMinimo("v" + origem, "v" + destino).getDistancia();
+                Verificacoes.conferir(caminhos.get(0).getDistancia() == minimo, descricao + ": o primeiro custa " + caminhos.get(0).getDistancia() + ", o mínimo é " + minimo);
+            }
+        }
+
+        //cidade que não existe não tem caminho
+        Grafo<String> grafo = new Grafo<>();
+        grafo.adicionaVertice("a");
+        Verificacoes.conferir(grafo.caminhosMinimos("a", "x", 3) == null, "cidade que não existe");
+        System.out.println("ok caminhos alternativos: " + CASOS + " consultas");
+    }
+
+    // todos os caminhos sem repetir vértice de u até o destino, guardando só o custo de cada um
+    private static void listarCaminhos(GrafoCompacto<String> grafo, int u, int destino, boolean[] usado, double custo, List<Double> custos) {
+        if (u == destino) {
+            custos.add(custo);
+            return;
+        }
+        for (int e = 0; e < grafo.getNumeroArestas(); e++) {
+            int v;
+            if (grafo.getOrigem(e) == u) {
+                v = grafo.getDestino(e);
+            } else if (grafo.getDestino(e) == u) {
+                v = grafo.getOrigem(e);
+            } else {
+                continue;
+            }
+            if (!usado[v]) {
+                usado[v] = true;
+                listarCaminhos(grafo, v, destino, usado, custo + grafo.getPeso(e), custos);
+                usado[v] = false;
+            }
+        }
+    }
+}
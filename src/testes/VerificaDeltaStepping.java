@@ -0,0 +1,87 @@
+package testes;
+
+import lib.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// o delta-stepping comparado com o Dijkstra comum a partir da mesma origem, com o delta padrão
+// (também pedido com 0), deltas minúsculos que batem no limite de baldes e um enorme que põe tudo num
+// balde só, e pools de tamanhos diferentes; os dois somam em double, então as distâncias têm que
+// bater bit a bit
+// os pesos vão de inteiros pequenos (muito empate) a valores enormes que diferem só nas últimas casas
+public final class VerificaDeltaStepping {
+
+    private static final int CASOS = 150;
+    private static final int ORIGENS = 2;
+    // montar e conferir o caminho de cada vértice custaria mais que a busca, então vai uma amostra
+    private static final int CAMINHOS = 20;
+
+    private VerificaDeltaStepping() {
+    }
+
+    public static void main(String[] args) {
+        Random sorteio = new Random(20);
+        ForkJoinPool[] pools = {new ForkJoinPool(1), new ForkJoinPool(4), ForkJoinPool.commonPool()};
+        try {
+            for (int caso = 0; caso < CASOS; caso++) {
+                int n = 1 + sorteio.nextInt(caso % 10 == 0 ? 1000 : 60);
+                Grafo<String> grafo = sortear(sorteio, n, sorteio.nextInt(4 * n + 1), caso);
+                GrafoCompacto<String> compacto = grafo.congelar();
+                double[] deltas = {0, DeltaStepping.deltaPadrao(compacto), 0.001, 3.7, 1e9};
+                for (int i = 0; i < ORIGENS; i++) {
+                    int origem = sorteio.nextInt(n);
+                    ArvoreCaminhos<String> dijkstra = new BuscaCaminhoMinimo<>(compacto).arvore(origem);
+                    for (double delta : deltas) {
+                        for (ForkJoinPool pool : pools) {
+                            conferir(compacto, dijkstra, DeltaStepping.calcular(compacto, origem, delta, pool), origem,
+                                    "caso " + caso + " de v" + origem + " com delta " + delta + " e " + pool.getParallelism() + " threads");
+                        }
+                    }
+                    conferir(compacto, dijkstra, grafo.arvoreCaminhosMinimosParalela(compacto.getValor(origem)), origem,
+                            "caso " + caso + " de v" + origem + " pelo Grafo");
+                }
+            }
+        } finally {
+            pools[0].shutdown();
+            pools[1].shutdown();
+        }
+        System.out.println("ok delta-stepping: " + CASOS + " grafos, " + ORIGENS + " origens cada");
+    }
+
+    private static Grafo<String> sortear(Random sorteio, int n, int m, int caso) {
+        Grafo<String> grafo = new Grafo<>(caso % 5 == 0);
+        for (int v = 0; v < n; v++) {
+            grafo.adicionaVertice("v" + v);
+        }
+        for (int e = 0; e < m; e++) {
+            float peso;
+            switch (caso % 4) {
+                case 0:
+                    peso = sorteio.nextInt(5);
+                    break;
+                case 1:
+                    peso = sorteio.nextFloat() * 100;
+                    break;
+                case 2:
+                    peso = (float) (1e6 + sorteio.nextDouble() * 1e-3);
+                    break;
+                default:
+                    peso = 1 + sorteio.nextInt(1000);
+            }
+            grafo.adicionarAresta("v" + sorteio.nextInt(n), "v" + sorteio.nextInt(n), peso);
+        }
+        return grafo;
+    }
+
+    private static void conferir(GrafoCompacto<String> grafo, ArvoreCaminhos<String> dijkstra, ArvoreCaminhos<String> arvore, int origem, String caso) {
+        for (int v = 0; v < grafo.getNumeroVertices(); v++) {
+            float esperada = dijkstra.getDistancia(v);
+            Verificacoes.conferir(Float.floatToIntBits(arvore.getDistancia(v)) == Float.floatToIntBits(esperada),
+                    caso + ": até v" + v + " dá " + arvore.getDistancia(v) + ", o Dijkstra dá " + esperada);
+        }
+        for (int i = 0; i < CAMINHOS; i++) {
+            int v = (int) ((long) i * grafo.getNumeroVertices() / CAMINHOS);
+            Verificacoes.conferirCaminho(grafo, arvore.caminhoAte(v), origem, v, dijkstra.getDistancia(v), caso + " até v" + v);
+        }
+    }
+}
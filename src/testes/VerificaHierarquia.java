@@ -0,0 +1,57 @@
+package testes;
+
+import bench.GeradorGrafos;
+import lib.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// as consultas na hierarquia de contração comparadas com o Dijkstra comum, com a hierarquia
+// construída em sequência e dividida entre threads; além dos grafos sorteados entram grades, que
+// é onde a contração cria mais atalhos, e as consultas também passam pelo Grafo.caminhoMinimo,
+// que usa a hierarquia depois do construirHierarquiaContracao
+public final class VerificaHierarquia {
+
+    private static final int CASOS = 150;
+    private static final int CONSULTAS = 40;
+
+    private VerificaHierarquia() {
+    }
+
+    public static void main(String[] args) {
+        Random sorteio = new Random(13);
+        ForkJoinPool umaThread = new ForkJoinPool(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int caso = 0; caso < CASOS; caso++) {
+                Grafo<String> grafo;
+                if (caso % 5 == 4) {
+                    grafo = GeradorGrafos.grade(2 + sorteio.nextInt(40), caso);
+                } else {
+                    int n = 1 + sorteio.nextInt(caso % 10 == 0 ? 1500 : 200);
+                    grafo = Verificacoes.sortear(sorteio, n, sorteio.nextInt(3 * n + 1), caso % 2 == 0, caso % 3 != 0);
+                }
+                GrafoCompacto<String> compacto = grafo.congelar();
+                ConsultaHierarquia<String> sequencial = new ConsultaHierarquia<>(HierarquiaContracao.construir(compacto, umaThread));
+                ConsultaHierarquia<String> paralela = new ConsultaHierarquia<>(HierarquiaContracao.construir(compacto, pool));
+                grafo.construirHierarquiaContracao();
+                int n = compacto.getNumeroVertices();
+                for (int consulta = 0; consulta < CONSULTAS; consulta++) {
+                    int origem = sorteio.nextInt(n);
+                    int destino = sorteio.nextInt(n);
+                    float esperada = new BuscaCaminhoMinimo<>(compacto).arvore(origem).getDistancia(destino);
+                    String descricao = "caso " + caso + " de v" + origem + " a v" + destino;
+                    Verificacoes.conferirCaminho(compacto, sequencial.caminho(origem, destino), origem, destino, esperada, descricao + " (sequencial)");
+                    Verificacoes.conferirCaminho(compacto, paralela.caminho(origem, destino), origem, destino, esperada, descricao + " (paralela)");
+                    float distancia = paralela.distancia(origem, destino);
+                    Verificacoes.conferir(Verificacoes.quaseIguais(distancia, esperada), descricao + ": só a distância dá " + distancia + ", o Dijkstra dá " + esperada);
+                    Verificacoes.conferirCaminho(compacto, grafo.caminhoMinimo(compacto.getValor(origem), compacto.getValor(destino)),
+                            origem, destino, esperada, descricao + " (pelo Grafo)");
+                }
+            }
+        } finally {
+            umaThread.shutdown();
+            pool.shutdown();
+        }
+        System.out.println("ok hierarquia de contração: " + CASOS + " grafos, " + CONSULTAS + " consultas cada");
+    }
+}
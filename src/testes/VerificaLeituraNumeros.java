@@ -0,0 +1,133 @@
+package testes;
+
+import lib.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// o LeitorGrafo converte os pesos direto dos bytes, e pros números simples usa uma conta própria em
+// vez do Float.parseFloat; aqui os dois são comparados bit a bit em números sorteados dos tipos que
+// costumam errar (os que caem quase no meio de dois floats, mantissas no limite de 2^24, muitas casas,
+// sinal, ponto sem dígito de um lado, expoente), lidos como lista de arestas e como matriz
+public final class VerificaLeituraNumeros {
+
+    private static final int VALORES_LISTA = 300000;
+    private static final int LADO_MATRIZ = 250;
+
+    private VerificaLeituraNumeros() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Random sorteio = new Random(8);
+        Path arquivo = Files.createTempFile("verifica", ".txt");
+        try {
+            conferirLista(sorteio, arquivo);
+            conferirMatriz(sorteio, arquivo);
+        } finally {
+            Files.delete(arquivo);
+        }
+        System.out.println("ok leitura de números: " + VALORES_LISTA + " na lista e " + LADO_MATRIZ * LADO_MATRIZ + " na matriz");
+    }
+
+    private static void conferirLista(Random sorteio, Path arquivo) throws IOException {
+        String[] valores = new String[VALORES_LISTA];
+        try (BufferedWriter escritor = Files.newBufferedWriter(arquivo)) {
+            escritor.write("2 " + valores.length + "\na\nb\n");
+            for (int i = 0; i < valores.length; i++) {
+                valores[i] = sortearNumero(sorteio);
+                escritor.write("a,b," + valores[i] + "\n");
+            }
+        }
+        //no modo direcionado cada linha vira uma aresta, na ordem do arquivo
+        GrafoCompacto<String> grafo = LeitorGrafo.lerListaArestas(arquivo).congelar();
+        Verificacoes.conferir(grafo.getNumeroArestas() == valores.length, "lista: " + grafo.getNumeroArestas() + " arestas");
+        for (int e = 0; e < valores.length; e++) {
+            conferirValor(valores[e], grafo.getPeso(e), "lista");
+        }
+    }
+
+    private static void conferirMatriz(Random sorteio, Path arquivo) throws IOException {
+        int n = LADO_MATRIZ;
+        String[][] valores = new String[n][n];
+        try (BufferedWriter escritor = Files.newBufferedWriter(arquivo)) {
+            escritor.write(n + "\n");
+            for (int i = 0; i < n; i++) {
+                escritor.write("c" + i + "\n");
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    valores[i][j] = sortearNumero(sorteio);
+                    escritor.write((j == 0 ? "" : ",") + valores[i][j]);
+                }
+                escritor.write("\n");
+            }
+        }
+        //a leitura em uma thread e dividida entre várias têm que dar o mesmo; a matriz sorteada
+        //não é simétrica, então cada posição diferente de zero é uma aresta
+        for (int threads : new int[] {1, 4}) {
+            GrafoCompacto<String> grafo = LeitorGrafo.lerMatriz(arquivo, threads).congelar();
+            float[][] lidos = new float[n][n];
+            for (int e = 0; e < grafo.getNumeroArestas(); e++) {
+                lidos[grafo.getOrigem(e)][grafo.getDestino(e)] = grafo.getPeso(e);
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    conferirValor(valores[i][j], lidos[i][j], "matriz com " + threads + " threads");
+                }
+            }
+        }
+    }
+
+    private static void conferirValor(String texto, float lido, String onde) {
+        float esperado = Float.parseFloat(texto);
+        //o zero da matriz (com ou sem sinal) é "sem aresta"
+        if (esperado == 0 && lido == 0 && onde.startsWith("matriz")) {
+            return;
+        }
+        Verificacoes.conferir(Float.floatToIntBits(lido) == Float.floatToIntBits(esperado),
+                onde + ": \"" + texto + "\" virou " + lido + ", o Float.parseFloat dá " + esperado);
+    }
+
+    private static String sortearNumero(Random sorteio) {
+        String numero;
+        switch (sorteio.nextInt(7)) {
+            case 0: {
+                //quase no meio de dois floats vizinhos, com precisão de sobra ou faltando
+                float f = sorteio.nextFloat() * 100;
+                double meio = ((double) f + Math.nextUp(f)) / 2;
+                numero = new BigDecimal(meio).round(new MathContext(6 + sorteio.nextInt(12))).toPlainString();
+                break;
+            }
+            case 1: {
+                //mantissa perto de 2^24, o limite da conta rápida
+                long mantissa = (1L << 24) - 50 + sorteio.nextInt(100);
+                numero = new BigDecimal(BigInteger.valueOf(mantissa), sorteio.nextInt(12)).toPlainString();
+                break;
+            }
+            case 2:
+                numero = new BigDecimal(BigInteger.valueOf(sorteio.nextInt(1 << 24)), sorteio.nextInt(13)).toPlainString();
+                break;
+            case 3:
+                numero = sorteio.nextInt(100000) + "." + sorteio.nextInt(1000000);
+                break;
+            case 4:
+                numero = sorteio.nextBoolean() ? "." + sorteio.nextInt(10000) : sorteio.nextInt(10000) + ".";
+                break;
+            case 5:
+                numero = (sorteio.nextFloat() * 1000) + "e" + (sorteio.nextInt(20) - 10);
+                break;
+            default:
+                numero = Float.toString(Float.intBitsToFloat(sorteio.nextInt() & 0x7FFFFFFF));
+                if (numero.startsWith("N") || numero.startsWith("I")) {
+                    numero = "3.55681049823761";
+                }
+        }
+        int sinal = sorteio.nextInt(4);
+        return sinal == 0 ? "-" + numero : sinal == 1 ? "+" + numero : numero;
+    }
+}
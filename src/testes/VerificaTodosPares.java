@@ -0,0 +1,103 @@
+package testes;
+
+import lib.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// a tabela de distâncias entre todos os pares, pelos dois métodos, comparada com um Dijkstra comum
+// a partir de cada vértice; de vez em quando a tabela também é gravada em texto e em binário e lida
+// de volta, pra conferir que os lotes de linhas saem todos e na ordem
+public final class VerificaTodosPares {
+
+    private static final int CASOS = 120;
+
+    private VerificaTodosPares() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Random sorteio = new Random(14);
+        Path arquivo = Files.createTempFile("verifica", ".tmp");
+        try {
+            for (int caso = 0; caso < CASOS; caso++) {
+                int n = sorteio.nextInt(caso % 10 == 0 ? 400 : 100);
+                //densidades bem diferentes, do quase vazio ao quase completo
+                int m = sorteio.nextInt(1 + (caso % 4 == 0 ? n * n / 2 : 3 * n));
+                GrafoCompacto<String> grafo = Verificacoes.sortear(sorteio, n, m, caso % 2 == 0, caso % 3 != 0).congelar();
+                float[][] esperadas = new float[n][n];
+                for (int origem = 0; origem < n; origem++) {
+                    ArvoreCaminhos<String> arvore = new BuscaCaminhoMinimo<>(grafo).arvore(origem);
+                    for (int destino = 0; destino < n; destino++) {
+                        esperadas[origem][destino] = arvore.getDistancia(destino);
+                    }
+                }
+                for (DistanciasTodosPares.Metodo metodo : DistanciasTodosPares.Metodo.values()) {
+                    MatrizDistancias<String> matriz = DistanciasTodosPares.calcular(grafo, metodo);
+                    for (int origem = 0; origem < n; origem++) {
+                        for (int destino = 0; destino < n; destino++) {
+                            conferir(matriz.getDistancia(origem, destino), esperadas[origem][destino], "caso " + caso + " " + metodo, origem, destino);
+                        }
+                    }
+                }
+                if (caso % 10 == 0) {
+                    for (DistanciasTodosPares.Metodo metodo : DistanciasTodosPares.Metodo.values()) {
+                        DistanciasTodosPares.gravarMatriz(arquivo, grafo, metodo);
+                        conferirTexto(arquivo, grafo, esperadas, "caso " + caso + " " + metodo + " em texto");
+                        DistanciasTodosPares.gravarBinario(arquivo, grafo, metodo);
+                        conferirBinario(arquivo, grafo, esperadas, "caso " + caso + " " + metodo + " em binário");
+                    }
+                }
+            }
+        } finally {
+            Files.delete(arquivo);
+        }
+        System.out.println("ok distâncias entre todos os pares: " + CASOS + " grafos");
+    }
+
+    // a matriz de cidades: n, os nomes, e as n linhas de distâncias separadas por vírgula
+    private static void conferirTexto(Path arquivo, GrafoCompacto<String> grafo, float[][] esperadas, String caso) throws IOException {
+        int n = grafo.getNumeroVertices();
+        List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
+        Verificacoes.conferir(linhas.size() == 1 + 2 * n && linhas.get(0).equals(Integer.toString(n)), caso + ": " + linhas.size() + " linhas");
+        for (int origem = 0; origem < n; origem++) {
+            Verificacoes.conferir(linhas.get(1 + origem).equals(grafo.getValor(origem)), caso + ": nome da cidade " + origem);
+            String[] celulas = linhas.get(1 + n + origem).split(",");
+            Verificacoes.conferir(celulas.length == n, caso + ": a linha " + origem + " tem " + celulas.length + " valores");
+            for (int destino = 0; destino < n; destino++) {
+                conferir(Float.parseFloat(celulas[destino]), esperadas[origem][destino], caso, origem, destino);
+            }
+        }
+    }
+
+    // "GRFD", versão, n, os n + 1 inícios dos nomes, os bytes dos nomes e as n² distâncias
+    private static void conferirBinario(Path arquivo, GrafoCompacto<String> grafo, float[][] esperadas, String caso) throws IOException {
+        int n = grafo.getNumeroVertices();
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(arquivo)).order(ByteOrder.LITTLE_ENDIAN);
+        Verificacoes.conferir(conteudo.getInt() == 0x44465247 && conteudo.getInt() == 1 && conteudo.getInt() == n, caso + ": cabeçalho");
+        int[] inicios = new int[n + 1];
+        for (int v = 0; v <= n; v++) {
+            inicios[v] = conteudo.getInt();
+        }
+        byte[] nomes = new byte[inicios[n]];
+        conteudo.get(nomes);
+        for (int v = 0; v < n; v++) {
+            String nome = new String(nomes, inicios[v], inicios[v + 1] - inicios[v], StandardCharsets.UTF_8);
+            Verificacoes.conferir(nome.equals(grafo.getValor(v)), caso + ": nome da cidade " + v);
+        }
+        Verificacoes.conferir(conteudo.remaining() == 4 * n * n, caso + ": " + conteudo.remaining() + " bytes de distâncias");
+        for (int origem = 0; origem < n; origem++) {
+            for (int destino = 0; destino < n; destino++) {
+                conferir(conteudo.getFloat(), esperadas[origem][destino], caso, origem, destino);
+            }
+        }
+    }
+
+    private static void conferir(float distancia, float esperada, String caso, int origem, int destino) {
+        Verificacoes.conferir(Verificacoes.quaseIguais(distancia, esperada),
+                caso + ": de v" + origem + " a v" + destino + " dá " + distancia + ", o Dijkstra dá " + esperada);
+    }
+}
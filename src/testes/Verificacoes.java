@@ -0,0 +1,157 @@
+package testes;
+
+import lib.*;
+import java.util.*;
+
+// verificações dos algoritmos do lib contra versões simples que dão pra conferir de olho
+// (o Dijkstra da BuscaCaminhoMinimo, o Kruskal do GrafoCompacto, força bruta), em grafos sorteados
+// com semente fixa pra dar pra repetir; cada verificação tem seu main e para no primeiro resultado
+// errado com um AssertionError, e este aqui roda todas em sequência
+//
+// uso (da pasta do projeto):
+//   javac -d out $(find src -name '*.java')
+//   java -cp out testes.Verificacoes
+//   java -cp out testes.VerificaArvoreIncremental   (só uma)
+public final class Verificacoes {
+
+    private Verificacoes() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        VerificaArvoreIncremental.main(args);
+        VerificaBoruvka.main(args);
+        VerificaLeituraNumeros.main(args);
+        VerificaBuscaPontoAPonto.main(args);
+        VerificaHierarquia.main(args);
+        VerificaTodosPares.main(args);
+        VerificaDeltaStepping.main(args);
+        VerificaCaminhosAlternativos.main(args);
+        VerificaArquivoBinario.main(args);
+        System.out.println("todas as verificações passaram");
+    }
+
+    // grafo com as cidades "v0" até "v(n-1)" e m arestas entre pares sorteados (pode sair laço e
+    // aresta repetida); com pesosInteiros os pesos vão de 0 a 9 e dão muito empate, senão são quebrados
+    static Grafo<String> sortear(Random sorteio, int n, int m, boolean naoDirecionado, boolean pesosInteiros) {
+        Grafo<String> grafo = new Grafo<>(naoDirecionado);
+        for (int v = 0; v < n; v++) {
+            grafo.adicionaVertice("v" + v);
+        }
+        for (int e = 0; e < m; e++) {
+            adicionarSorteada(sorteio, grafo, n, pesosInteiros);
+        }
+        return grafo;
+    }
+
+    static void adicionarSorteada(Random sorteio, Grafo<String> grafo, int n, boolean pesosInteiros) {
+        float peso = pesosInteiros ? sorteio.nextInt(10) : sorteio.nextFloat() * 100;
+        grafo.adicionarAresta("v" + sorteio.nextInt(n), "v" + sorteio.nextInt(n), peso);
+    }
+
+    // coordenadas sorteadas pra todas as cidades, pro A*
+    static void sortearLocalizacoes(Random sorteio, Grafo<String> grafo) {
+        for (Vertice<String> vertice : grafo.getVertices()) {
+            grafo.definirLocalizacao(vertice.getValor(), sorteio.nextDouble() * 100, sorteio.nextDouble() * 100);
+        }
+    }
+
+    static double pesoTotal(GrafoCompacto<?> grafo) {
+        double total = 0;
+        for (int e = 0; e < grafo.getNumeroArestas(); e++) {
+            total += grafo.getPeso(e);
+        }
+        return total;
+    }
+
+    // somas de float feitas em ordens diferentes podem diferir no último bit
+    static boolean quaseIguais(double a, double b) {
+        return a == b || Math.abs(a - b) <= 1e-4 * Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+    }
+
+    // confere se a árvore é uma árvore geradora mínima do grafo: o mesmo número de arestas e o mesmo
+    // peso total da do Kruskal, sem ciclo e só com arestas que estão no grafo
+    static void conferirArvore(GrafoCompacto<String> grafo, GrafoCompacto<String> arvore, GrafoCompacto<String> kruskal, String caso) {
+        conferir(arvore.getNumeroVertices() == grafo.getNumeroVertices(), caso + ": vértices da árvore");
+        conferir(arvore.getNumeroArestas() == kruskal.getNumeroArestas(),
+                caso + ": " + arvore.getNumeroArestas() + " arestas, o Kruskal dá " + kruskal.getNumeroArestas());
+        double peso = pesoTotal(arvore);
+        double esperado = pesoTotal(kruskal);
+        conferir(quaseIguais(peso, esperado), caso + ": peso " + peso + ", o Kruskal dá " + esperado);
+
+        //as arestas do grafo, sem olhar a direção (a árvore ignora a direção)
+        Set<String> existentes = new HashSet<>();
+        for (int e = 0; e < grafo.getNumeroArestas(); e++) {
+            existentes.add(chave(grafo.getOrigem(e), grafo.getDestino(e), grafo.getPeso(e)));
+        }
+        int[] pai = new int[grafo.getNumeroVertices()];
+        for (int v = 0; v < pai.length; v++) {
+            pai[v] = v;
+        }
+        for (int e = 0; e < arvore.getNumeroArestas(); e++) {
+            int u = arvore.getOrigem(e);
+            int v = arvore.getDestino(e);
+            conferir(existentes.contains(chave(u, v, arvore.getPeso(e))), caso + ": aresta que não está no grafo");
+            int raizU = raiz(pai, u);
+            int raizV = raiz(pai, v);
+            conferir(raizU != raizV, caso + ": a árvore tem ciclo");
+            pai[raizU] = raizV;
+        }
+    }
+
+    private static String chave(int u, int v, float peso) {
+        return Math.min(u, v) + " " + Math.max(u, v) + " " + peso;
+    }
+
+    private static int raiz(int[] pai, int v) {
+        while (pai[v] != v) {
+            v = pai[v];
+        }
+        return v;
+    }
+
+    // confere um caminho contra a distância do Dijkstra (infinita se não há caminho): ele tem que
+    // existir só quando há caminho, ir da origem ao destino, usar só arestas do grafo e ter a
+    // distância certa, que também tem que bater com a soma dos pesos das arestas usadas
+    static void conferirCaminho(GrafoCompacto<String> grafo, Caminho<String> caminho, int origem, int destino, float esperada, String caso) {
+        if (esperada == Float.POSITIVE_INFINITY) {
+            conferir(caminho == null, caso + ": achou caminho onde o Dijkstra não acha");
+            return;
+        }
+        conferir(caminho != null, caso + ": não achou caminho, o Dijkstra dá " + esperada);
+        conferir(quaseIguais(caminho.getDistancia(), esperada), caso + ": distância " + caminho.getDistancia() + ", o Dijkstra dá " + esperada);
+        List<String> vertices = caminho.getVertices();
+        conferir(grafo.indiceDe(vertices.get(0)) == origem && grafo.indiceDe(vertices.get(vertices.size() - 1)) == destino,
+                caso + ": o caminho " + vertices + " não liga as pontas");
+        double soma = 0;
+        for (int i = 0; i + 1 < vertices.size(); i++) {
+            float peso = menorPeso(grafo, grafo.indiceDe(vertices.get(i)), grafo.indiceDe(vertices.get(i + 1)));
+            conferir(peso != Float.POSITIVE_INFINITY, caso + ": o caminho " + vertices + " usa uma aresta que não existe");
+            soma += peso;
+        }
+        conferir(quaseIguais(soma, caminho.getDistancia()), caso + ": o caminho " + vertices + " soma " + soma + " e diz " + caminho.getDistancia());
+    }
+
+    // o peso da aresta mais leve entre u e v; as buscas tratam toda aresta como via de mão dupla,
+    // então vale tanto a que sai de u quanto a que chega nele
+    static float menorPeso(GrafoCompacto<?> grafo, int u, int v) {
+        float menor = Float.POSITIVE_INFINITY;
+        for (int e = grafo.inicioSaida(u); e < grafo.fimSaida(u); e++) {
+            if (grafo.getDestino(e) == v) {
+                menor = Math.min(menor, grafo.getPeso(e));
+            }
+        }
+        for (int p = grafo.inicioEntrada(u); p < grafo.fimEntrada(u); p++) {
+            int e = grafo.arestaEntrada(p);
+            if (grafo.getOrigem(e) == v) {
+                menor = Math.min(menor, grafo.getPeso(e));
+            }
+        }
+        return menor;
+    }
+
+    static void conferir(boolean condicao, String mensagem) {
+        if (!condicao) {
+            throw new AssertionError(mensagem);
+        }
+    }
+}